@@ -0,0 +1,53 @@
+package com.example.payment_service.config;
+
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.CreatePaymentResponse;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
+import com.example.payment_service.dto.PaymentPageResponse;
+import com.example.payment_service.dto.PaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Jackson (de)serializers, the Blackbird accessors behind them and Hibernate Validator bean metadata are all built
+// lazily on first use; resolving them here keeps that work off the first requests after a deploy
+@Component
+public class BindingWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(BindingWarmup.class);
+
+    private static final List<Class<?>> REQUESTS = List.of(CreatePaymentRequest.class, PaymentCallbackRequest.class);
+    private static final List<Class<?>> RESPONSES = List.of(CreatePaymentResponse.class, PaymentResponse.class,
+            PaymentCallbackResult.class, PaymentPageResponse.class);
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public BindingWarmup(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long started = System.nanoTime();
+        for (Class<?> type : REQUESTS) {
+            // readerFor/writerFor fetch the root (de)serializer eagerly and it stays in the mapper's cache
+            objectMapper.readerFor(type);
+            validator.getConstraintsForClass(type);
+        }
+        objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class,
+                PaymentCallbackRequest.class));
+        for (Class<?> type : RESPONSES) {
+            objectMapper.writerFor(type);
+        }
+        log.info("Resolved JSON and validation metadata for {} request and {} response types in {} ms",
+                REQUESTS.size(), RESPONSES.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.payment_service.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.OffsetDateTimeSerializer;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Responses are mostly served from the payment response cache, so the same createdAt/updatedAt values are formatted
+// over and over. A direct-mapped table keeps the last text per slot: a hit writes the cached string without
+// allocating, a miss formats like JavaTimeModule would and overwrites the slot. Slots hold immutable records, so racy
+// reads and writes only ever cost a re-format.
+public class CachedOffsetDateTimeSerializer extends StdSerializer<OffsetDateTime> {
+
+    private final Formatted[] slots;
+    private final int mask;
+
+    public CachedOffsetDateTimeSerializer(int size) {
+        super(OffsetDateTime.class);
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.slots = new Formatted[capacity];
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public void serialize(OffsetDateTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            OffsetDateTimeSerializer.INSTANCE.serialize(value, generator, provider);
+            return;
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ hash >>> 16) & mask;
+        Formatted formatted = slots[slot];
+        if (formatted == null || !formatted.value().equals(value)) {
+            formatted = new Formatted(value, DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(value));
+            slots[slot] = formatted;
+        }
+        generator.writeString(formatted.text());
+    }
+
+    private record Formatted(OffsetDateTime value, String text) {
+    }
+}
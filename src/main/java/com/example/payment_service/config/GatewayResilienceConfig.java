@@ -0,0 +1,80 @@
+package com.example.payment_service.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRateLimiterMetrics;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+@Configuration
+public class GatewayResilienceConfig {
+
+    private static final String GATEWAY = "paymentGateway";
+
+    @Bean
+    public CircuitBreaker gatewayCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${payment.gateway.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${payment.gateway.circuit-breaker.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+            @Value("${payment.gateway.circuit-breaker.slow-call-duration:2s}") Duration slowCallDuration,
+            @Value("${payment.gateway.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${payment.gateway.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${payment.gateway.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${payment.gateway.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .recordExceptions(RestClientException.class)
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker(GATEWAY);
+    }
+
+    @Bean
+    public Bulkhead gatewayBulkhead(
+            MeterRegistry meterRegistry,
+            @Value("${payment.gateway.bulkhead.max-concurrent-calls:50}") int maxConcurrentCalls,
+            @Value("${payment.gateway.bulkhead.max-wait:100ms}") Duration maxWait) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead(GATEWAY);
+    }
+
+    // caps background status queries so the stale sweeper leaves gateway capacity to live charges
+    @Bean
+    public RateLimiter sweeperRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${payment.sweeper.rate-limit.permits-per-second:20}") int permitsPerSecond,
+            @Value("${payment.sweeper.rate-limit.max-wait:5s}") Duration maxWait) {
+        RateLimiterRegistry registry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+                .limitForPeriod(permitsPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(maxWait)
+                .build());
+        TaggedRateLimiterMetrics.ofRateLimiterRegistry(registry).bindTo(meterRegistry);
+        return registry.rateLimiter("paymentSweeper");
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.payment_service.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.time.OffsetDateTime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Spring Boot installs every Module bean into the MVC ObjectMapper after its own well-known modules, so these take
+// precedence over the JavaTimeModule defaults
+@Configuration
+public class JsonConfig {
+
+    // replaces reflective getter/constructor calls with generated lambdas
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public Module timestampModule(@Value("${payment.json.timestamp-cache-size:4096}") int cacheSize) {
+        return new SimpleModule("payment-timestamps")
+                .addSerializer(OffsetDateTime.class, new CachedOffsetDateTimeSerializer(cacheSize));
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.payment_service.config;
+
+import com.example.payment_service.controller.AdmissionInterceptor;
+import com.example.payment_service.service.AdmissionControl;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AdmissionControl admissionControl;
+
+    public WebConfig(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionInterceptor(admissionControl, "create"))
+                .addPathPatterns("/api/payments");
+        registry.addInterceptor(new AdmissionInterceptor(admissionControl, "callback"))
+                .addPathPatterns("/api/payments/callback", "/api/payments/callbacks:batch");
+    }
+}
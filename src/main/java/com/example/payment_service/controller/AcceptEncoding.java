@@ -0,0 +1,45 @@
+package com.example.payment_service.controller;
+
+import java.util.Locale;
+
+final class AcceptEncoding {
+
+    private AcceptEncoding() {
+    }
+
+    // RFC 9110: a coding is acceptable unless its q is 0; one the header does not name follows "*", and without
+    // "*" it is not acceptable. No header at all means identity, so gzip is never assumed
+    static boolean acceptsGzip(String header) {
+        if (header == null) {
+            return false;
+        }
+        Double wildcard = null;
+        for (String element : header.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return q > 0;
+            }
+            if (coding.equals("*")) {
+                wildcard = q;
+            }
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    // a malformed weight counts as 0, so a coding is only chosen when the client clearly allows it
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.service.AdmissionControl;
+import com.example.payment_service.service.AdmissionControl.Limits;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+// the live limits and a write operation changing any of them without a restart; over JMX only unless a profile adds it
+// to management.endpoints.web.exposure.include
+@Component
+@Endpoint(id = "admission")
+public class AdmissionEndpoint {
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionEndpoint(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @ReadOperation
+    public Map<String, Object> limits() {
+        Limits limits = admissionControl.limits();
+        return Map.of(
+                "permitsPerSecond", limits.permitsPerSecond(),
+                "burst", limits.burst(),
+                "maxConcurrent", limits.maxConcurrent(),
+                "inFlight", admissionControl.inFlight(),
+                "trackedMerchants", admissionControl.trackedMerchants());
+    }
+
+    @WriteOperation
+    public Map<String, Object> update(@Nullable Double permitsPerSecond, @Nullable Integer burst,
+                                      @Nullable Integer maxConcurrent) {
+        Limits current = admissionControl.limits();
+        admissionControl.update(new Limits(
+                permitsPerSecond != null ? permitsPerSecond : current.permitsPerSecond(),
+                burst != null ? burst : current.burst(),
+                maxConcurrent != null ? maxConcurrent : current.maxConcurrent()));
+        return limits();
+    }
+}
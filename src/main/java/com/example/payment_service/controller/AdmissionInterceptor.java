@@ -0,0 +1,45 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.service.AdmissionControl;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// runs before the request body is read, so a shed request costs no JSON parsing and no connection
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED = AdmissionInterceptor.class.getName() + ".admitted";
+
+    private final AdmissionControl admissionControl;
+    private final String endpoint;
+
+    public AdmissionInterceptor(AdmissionControl admissionControl, String endpoint) {
+        this.admissionControl = admissionControl;
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        if (!admissionControl.tryEnter(endpoint)) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    AdmissionControl.retryAfterSeconds(admissionControl.concurrencyRetryAfter()));
+            return false;
+        }
+        request.setAttribute(ADMITTED, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMITTED) != null) {
+            request.removeAttribute(ADMITTED);
+            admissionControl.exit();
+        }
+    }
+}
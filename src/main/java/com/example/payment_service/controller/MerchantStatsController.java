@@ -0,0 +1,23 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.dto.MerchantStatsResponse;
+import com.example.payment_service.service.MerchantStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MerchantStatsController {
+
+    private final MerchantStats merchantStats;
+
+    public MerchantStatsController(MerchantStats merchantStats) {
+        this.merchantStats = merchantStats;
+    }
+
+    @GetMapping("/api/merchants/{merchantId}/stats")
+    public ResponseEntity<MerchantStatsResponse> getMerchantStats(@PathVariable String merchantId) {
+        return ResponseEntity.ok(merchantStats.find(merchantId));
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.payment_service.controller;
 
+import com.example.payment_service.domain.PaymentStatus;
 import com.example.payment_service.dto.CreatePaymentRequest;
 import com.example.payment_service.dto.CreatePaymentResponse;
 import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
 import com.example.payment_service.dto.PaymentResponse;
+import com.example.payment_service.service.AdmissionControl;
+import com.example.payment_service.service.PaymentIdempotencyService;
 import com.example.payment_service.service.PaymentService;
+import com.example.payment_service.service.PaymentStatusWatcher;
 import jakarta.validation.Valid;
+import java.time.Duration;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -22,15 +35,44 @@ public class PaymentController {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final PaymentService paymentService;
+    private final PaymentIdempotencyService paymentIdempotencyService;
+    private final PaymentStatusWatcher paymentStatusWatcher;
+    private final AdmissionControl admissionControl;
+    private final int maxCallbackBatchSize;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService,
+                             PaymentIdempotencyService paymentIdempotencyService,
+                             PaymentStatusWatcher paymentStatusWatcher,
+                             AdmissionControl admissionControl,
+                             @Value("${payment.callback.batch.max-size:1000}") int maxCallbackBatchSize) {
         this.paymentService = paymentService;
+        this.paymentIdempotencyService = paymentIdempotencyService;
+        this.paymentStatusWatcher = paymentStatusWatcher;
+        this.admissionControl = admissionControl;
+        this.maxCallbackBatchSize = maxCallbackBatchSize;
     }
 
     @PostMapping
-    public ResponseEntity<CreatePaymentResponse> createPayment(@RequestBody @Valid CreatePaymentRequest request) {
-        CreatePaymentResponse response = paymentService.createPayment(request);
+    public ResponseEntity<CreatePaymentResponse> createPayment(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody @Valid CreatePaymentRequest request) {
+        Duration wait = admissionControl.acquireMerchant(request.merchantId(), "create");
+        if (!wait.isZero()) {
+            log.warn("Rate limited payment creation for merchant {}", request.merchantId());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(wait))
+                    .build();
+        }
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(paymentService.createPayment(request));
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        CreatePaymentResponse response = paymentIdempotencyService.createPayment(request, idempotencyKey);
         return ResponseEntity.ok(response);
     }
 
@@ -40,10 +82,29 @@ public class PaymentController {
         return ResponseEntity.ok(response);
     }
 
+    // long-poll: answers once the status differs from knownStatus, or 204 after timeout seconds
+    @GetMapping("/{paymentId}/await")
+    public DeferredResult<ResponseEntity<PaymentResponse>> awaitStatusChange(
+            @PathVariable String paymentId,
+            @RequestParam(defaultValue = "INITIATED") PaymentStatus knownStatus,
+            @RequestParam(required = false) Integer timeout) {
+        return paymentStatusWatcher.await(paymentId, knownStatus, timeout != null ? Duration.ofSeconds(timeout) : null);
+    }
+
     @PostMapping("/callback")
     public ResponseEntity<Void> handleCallback(@RequestBody @Valid PaymentCallbackRequest request) {
-        log.info("Received payment callback for payment {} with status {}", request.getPaymentId(), request.getStatus());
+        log.info("Received payment callback for payment {} with status {}", request.paymentId(), request.status());
         paymentService.handlePaymentCallback(request);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/callbacks:batch")
+    public ResponseEntity<List<PaymentCallbackResult>> handleCallbacks(@RequestBody List<PaymentCallbackRequest> requests) {
+        if (requests.size() > maxCallbackBatchSize) {
+            log.warn("Rejected callback batch of {} items, limit is {}", requests.size(), maxCallbackBatchSize);
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        log.info("Received batch of {} payment callbacks", requests.size());
+        return ResponseEntity.ok(paymentService.handlePaymentCallbacks(requests));
+    }
 }
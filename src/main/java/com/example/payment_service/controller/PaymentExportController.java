@@ -0,0 +1,82 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.service.PaymentExportService;
+import com.example.payment_service.service.PaymentExportService.Format;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+public class PaymentExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final PaymentExportService paymentExportService;
+    private final Duration timeout;
+
+    public PaymentExportController(PaymentExportService paymentExportService,
+                                   @Value("${payment.export.timeout:30m}") Duration timeout) {
+        this.paymentExportService = paymentExportService;
+        this.timeout = timeout;
+    }
+
+    @GetMapping("/api/merchants/{merchantId}/payments/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @PathVariable String merchantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
+        Format exportFormat = "csv".equalsIgnoreCase(format) ? Format.CSV : Format.NDJSON;
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        paymentExportService.reserve();
+
+        // the body is written as an async request on the export executor; the timeout applies to this export only,
+        // not to every async request
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.getAsyncWebRequest().setTimeout(timeout.toMillis());
+        asyncManager.setTaskExecutor(paymentExportService.executor());
+
+        StreamingResponseBody body = out -> {
+            try {
+                if (gzip) {
+                    try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                        paymentExportService.export(merchantId, from, to, exportFormat, compressed);
+                    }
+                } else {
+                    paymentExportService.export(merchantId, from, to, exportFormat, out);
+                }
+            } finally {
+                paymentExportService.release();
+            }
+        };
+
+        var response = ResponseEntity.ok()
+                .contentType(exportFormat == Format.CSV ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("payments-%s.%s".formatted(merchantId, exportFormat == Format.CSV ? "csv" : "ndjson"))
+                        .build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.dto.PaymentEventResponse;
+import com.example.payment_service.service.PaymentJournal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+public class PaymentJournalController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final PaymentJournal paymentJournal;
+
+    public PaymentJournalController(PaymentJournal paymentJournal) {
+        this.paymentJournal = paymentJournal;
+    }
+
+    @GetMapping("/api/payment-events")
+    public ResponseEntity<StreamingResponseBody> feed(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return ndjson(acceptEncoding, out -> paymentJournal.feed(after, limit, out));
+    }
+
+    @GetMapping("/api/payment-events/state")
+    public ResponseEntity<StreamingResponseBody> replayState(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime at,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return ndjson(acceptEncoding, out -> paymentJournal.replayState(at, out));
+    }
+
+    @GetMapping("/api/payments/{paymentId}/events")
+    public ResponseEntity<List<PaymentEventResponse>> history(@PathVariable String paymentId) {
+        return ResponseEntity.ok(paymentJournal.history(paymentId));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(String acceptEncoding, StreamingResponseBody writer) {
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = !gzip ? writer : out -> {
+            try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                writer.writeTo(compressed);
+            }
+        };
+        var response = ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
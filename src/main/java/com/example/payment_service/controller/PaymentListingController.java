@@ -0,0 +1,45 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.PaymentPageResponse;
+import com.example.payment_service.repository.PaymentListing.Owner;
+import com.example.payment_service.service.PaymentListingService;
+import java.time.OffsetDateTime;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class PaymentListingController {
+
+    private final PaymentListingService paymentListingService;
+
+    public PaymentListingController(PaymentListingService paymentListingService) {
+        this.paymentListingService = paymentListingService;
+    }
+
+    @GetMapping("/api/merchants/{merchantId}/payments")
+    public ResponseEntity<PaymentPageResponse> listMerchantPayments(
+            @PathVariable String merchantId,
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(paymentListingService.listPayments(Owner.MERCHANT, merchantId, status, from, to, limit, cursor));
+    }
+
+    @GetMapping("/api/customers/{customerId}/payments")
+    public ResponseEntity<PaymentPageResponse> listCustomerPayments(
+            @PathVariable String customerId,
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(paymentListingService.listPayments(Owner.CUSTOMER, customerId, status, from, to, limit, cursor));
+    }
+}
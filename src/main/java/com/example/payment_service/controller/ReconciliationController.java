@@ -0,0 +1,39 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.dto.ReconciliationJobResponse;
+import com.example.payment_service.service.ReconciliationService;
+import java.net.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ReconciliationController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationController.class);
+
+    private final ReconciliationService reconciliationService;
+
+    public ReconciliationController(ReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    // runs in the background: 202 with the job, whose Location reports progress and, once done, the report
+    @PostMapping("/api/reconciliations")
+    public ResponseEntity<ReconciliationJobResponse> reconcile(@RequestParam String file,
+                                                               @RequestParam(defaultValue = "false") boolean apply) {
+        ReconciliationJobResponse job = reconciliationService.submit(file, apply);
+        log.info("Queued reconciliation job {} of settlement file {} (apply corrections: {})", job.jobId(), file, apply);
+        return ResponseEntity.accepted().location(URI.create("/api/reconciliations/" + job.jobId())).body(job);
+    }
+
+    @GetMapping("/api/reconciliations/{jobId}")
+    public ResponseEntity<ReconciliationJobResponse> job(@PathVariable String jobId) {
+        return ResponseEntity.ok(reconciliationService.job(jobId));
+    }
+}
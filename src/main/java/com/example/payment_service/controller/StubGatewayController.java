@@ -0,0 +1,66 @@
+package com.example.payment_service.controller;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@ConditionalOnProperty(name = "payment.gateway.stub.enabled", havingValue = "true")
+public class StubGatewayController {
+
+    private static final Logger log = LoggerFactory.getLogger(StubGatewayController.class);
+
+    // bounded so long-running local load tests do not grow the heap
+    private final Cache<String, Object> charges = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    // what GET /payments/{paymentId} reports for an accepted charge; non-terminal by default, so a sweeper pointed at
+    // the stub never settles a payment nobody paid
+    private final PaymentStatus queryStatus;
+
+    public StubGatewayController(@Value("${payment.gateway.stub.query-status:INITIATED}") PaymentStatus queryStatus) {
+        this.queryStatus = queryStatus;
+    }
+
+    @PostMapping("/payments")
+    public ResponseEntity<Void> initiateCharge(@RequestBody Map<String, Object> request) {
+        log.info("Stub gateway accepted charge for payment {}", request.get("paymentId"));
+        charges.put(String.valueOf(request.get("paymentId")), request.get("amount"));
+        return ResponseEntity.accepted().build();
+    }
+
+    @PostMapping("/payments:batch")
+    public ResponseEntity<List<Map<String, Object>>> initiateCharges(@RequestBody List<Map<String, Object>> requests) {
+        log.info("Stub gateway accepted batch of {} charges", requests.size());
+        List<Map<String, Object>> results = requests.stream()
+                .map(request -> {
+                    String paymentId = String.valueOf(request.get("paymentId"));
+                    charges.put(paymentId, request.get("amount"));
+                    return Map.<String, Object>of("paymentId", paymentId, "status", 202);
+                })
+                .toList();
+        return ResponseEntity.ok(results);
+    }
+
+    @GetMapping("/payments/{paymentId}")
+    public ResponseEntity<Map<String, Object>> getCharge(@PathVariable String paymentId) {
+        Object amount = charges.getIfPresent(paymentId);
+        if (amount == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("paymentId", paymentId, "status", queryStatus, "amount", amount));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.payment_service.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+
+// catalog row of an archive segment file; it commits together with the delete of the payments the file holds, so a
+// file without a row is a run that rolled back or crashed
+@Entity
+@Table(name = "archive_segments")
+public class ArchiveSegment {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private int payments;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+
+    public ArchiveSegment() {
+    }
+
+    public ArchiveSegment(String name, int payments) {
+        this.name = name;
+        this.payments = payments;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPayments() {
+        return payments;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @PrePersist
+    void onCreate() {
+        this.createdAt = OffsetDateTime.now();
+    }
+}
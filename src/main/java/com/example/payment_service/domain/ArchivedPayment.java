@@ -0,0 +1,32 @@
+package com.example.payment_service.domain;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// a terminal payment and its notifications as stored in an archive segment
+public record ArchivedPayment(String paymentId, String merchantId, String customerId, BigDecimal amount,
+                              String currency, String description, String idempotencyKey, PaymentStatus status,
+                              OffsetDateTime createdAt, OffsetDateTime updatedAt,
+                              List<ArchivedNotification> notifications) {
+
+    public static ArchivedPayment of(Payment payment, List<Notification> notifications) {
+        return new ArchivedPayment(payment.getPaymentId(), payment.getMerchantId(), payment.getCustomerId(),
+                payment.getAmount(), payment.getCurrency(), payment.getDescription(), payment.getIdempotencyKey(),
+                payment.getStatus(), payment.getCreatedAt(), payment.getUpdatedAt(),
+                notifications.stream().map(ArchivedNotification::of).toList());
+    }
+
+    public record ArchivedNotification(UUID id, String customerId, String channel, NotificationType type,
+                                       String message, NotificationStatus status, int attempts, String lastError,
+                                       OffsetDateTime createdAt) {
+
+        static ArchivedNotification of(Notification notification) {
+            return new ArchivedNotification(notification.getId(), notification.getCustomerId(),
+                    notification.getChannel(), notification.getType(), notification.getMessage(),
+                    notification.getStatus(), notification.getAttempts(), notification.getLastError(),
+                    notification.getCreatedAt());
+        }
+    }
+}
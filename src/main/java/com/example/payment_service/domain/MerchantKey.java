@@ -0,0 +1,49 @@
+package com.example.payment_service.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "merchant_keys")
+public class MerchantKey {
+
+    @Id
+    private String merchantId;
+
+    @Column(nullable = false, length = 200)
+    private String secret;
+
+    @Column(nullable = false)
+    private OffsetDateTime updatedAt;
+
+    public MerchantKey() {
+    }
+
+    public MerchantKey(String merchantId, String secret) {
+        this.merchantId = merchantId;
+        this.secret = secret;
+    }
+
+    public String getMerchantId() {
+        return merchantId;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void onWrite() {
+        this.updatedAt = OffsetDateTime.now();
+    }
+}
@@ -4,22 +4,30 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import java.time.OffsetDateTime;
+import java.util.UUID;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.UuidGenerator;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_notifications_payment_channel_type", columnNames = {"paymentId", "channel", "type"})
+}, indexes = {
+        @Index(name = "idx_notifications_status_next_attempt", columnList = "status, nextAttemptAt")
+})
 public class Notification {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private String id;
+    @UuidGenerator(algorithm = PaymentIds.Generator.class)
+    private UUID id;
 
     @Column(nullable = false)
+    @JavaType(UuidStringJavaType.class)
     private String paymentId;
 
     @Column(nullable = false)
@@ -28,6 +36,10 @@ public class Notification {
     @Column(nullable = false)
     private String channel;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationType type;
+
     @Column(nullable = false, length = 500)
     private String message;
 
@@ -35,21 +47,32 @@ public class Notification {
     @Column(nullable = false)
     private NotificationStatus status;
 
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    private String lastError;
+
     @Column(nullable = false)
     private OffsetDateTime createdAt;
 
     public Notification() {
     }
 
-    public Notification(String paymentId, String customerId, String channel, String message, NotificationStatus status) {
+    public Notification(String paymentId, String customerId, String channel, NotificationType type, String message,
+                        NotificationStatus status) {
         this.paymentId = paymentId;
         this.customerId = customerId;
         this.channel = channel;
+        this.type = type;
         this.message = message;
         this.status = status;
     }
 
-    public String getId() {
+    public UUID getId() {
         return id;
     }
 
@@ -65,6 +88,10 @@ public class Notification {
         return channel;
     }
 
+    public NotificationType getType() {
+        return type;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -73,20 +100,55 @@ public class Notification {
         return status;
     }
 
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
     public OffsetDateTime getCreatedAt() {
         return createdAt;
     }
 
+    public void claim(OffsetDateTime leaseUntil) {
+        this.attempts++;
+        this.nextAttemptAt = leaseUntil;
+    }
+
     public void markSent() {
         this.status = NotificationStatus.SENT;
+        this.lastError = null;
     }
 
     public void markFailed() {
         this.status = NotificationStatus.FAILED;
     }
 
+    public void markFailed(String error) {
+        markFailed();
+        this.lastError = truncate(error);
+    }
+
+    public void scheduleRetry(OffsetDateTime retryAt, String error) {
+        this.nextAttemptAt = retryAt;
+        this.lastError = truncate(error);
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
     @PrePersist
     void onCreate() {
         this.createdAt = OffsetDateTime.now();
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = this.createdAt;
+        }
     }
 }
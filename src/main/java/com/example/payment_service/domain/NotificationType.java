@@ -0,0 +1,5 @@
+package com.example.payment_service.domain;
+
+public enum NotificationType {
+    PAYMENT_SUCCESS
+}
@@ -5,18 +5,27 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
-import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.Version;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import org.hibernate.annotations.JavaType;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payments_merchant_idempotency_key", columnNames = {"merchantId", "idempotencyKey"})
+}, indexes = {
+        @Index(name = "idx_payments_merchant_created", columnList = "merchantId, createdAt desc, paymentId desc"),
+        @Index(name = "idx_payments_customer_created", columnList = "customerId, createdAt desc, paymentId desc"),
+        @Index(name = "idx_payments_status_updated", columnList = "status, updatedAt")
+})
 public class Payment {
 
     @Id
+    @JavaType(UuidStringJavaType.class)
     private String paymentId;
 
     @Column(nullable = false)
@@ -34,6 +43,9 @@ public class Payment {
     @Column(nullable = false)
     private String description;
 
+    @Column(updatable = false)
+    private String idempotencyKey;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private PaymentStatus status;
@@ -44,6 +56,9 @@ public class Payment {
     @Column(nullable = false)
     private OffsetDateTime updatedAt;
 
+    // set by bulk update only, so claiming a payment for the stale sweeper does not bump version or updatedAt
+    private OffsetDateTime sweepLeaseUntil;
+
     @Version
     private Long version;
 
@@ -51,12 +66,18 @@ public class Payment {
     }
 
     public Payment(String paymentId, String merchantId, String customerId, BigDecimal amount, String currency, String description) {
+        this(paymentId, merchantId, customerId, amount, currency, description, null);
+    }
+
+    public Payment(String paymentId, String merchantId, String customerId, BigDecimal amount, String currency, String description,
+                   String idempotencyKey) {
         this.paymentId = paymentId;
         this.merchantId = merchantId;
         this.customerId = customerId;
         this.amount = amount;
         this.currency = currency;
         this.description = description;
+        this.idempotencyKey = idempotencyKey;
         this.status = PaymentStatus.INITIATED;
     }
 
@@ -84,6 +105,10 @@ public class Payment {
         return description;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
     public PaymentStatus getStatus() {
         return status;
     }
@@ -100,20 +125,24 @@ public class Payment {
         return updatedAt;
     }
 
+    public OffsetDateTime getSweepLeaseUntil() {
+        return sweepLeaseUntil;
+    }
+
     public Long getVersion() {
         return version;
     }
 
     public void markSuccess() {
-        this.status = PaymentStatus.SUCCESS;
+        transition(PaymentStatus.SUCCESS);
     }
 
     public void markFailed() {
-        this.status = PaymentStatus.FAILED;
+        transition(PaymentStatus.FAILED);
     }
 
     public void markUnknown() {
-        this.status = PaymentStatus.UNKNOWN;
+        transition(PaymentStatus.UNKNOWN);
     }
 
     @PrePersist
@@ -126,8 +155,9 @@ public class Payment {
         }
     }
 
-    @PreUpdate
-    void onUpdate() {
+    // stamped with the status rather than at flush, so the change event carries the updatedAt the row will hold
+    private void transition(PaymentStatus status) {
+        this.status = status;
         this.updatedAt = OffsetDateTime.now();
     }
 }
@@ -0,0 +1,13 @@
+package com.example.payment_service.domain;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+public record PaymentCreatedEvent(String paymentId, String merchantId, BigDecimal amount, String currency,
+                                  PaymentStatus status, OffsetDateTime createdAt) {
+
+    public static PaymentCreatedEvent of(Payment payment) {
+        return new PaymentCreatedEvent(payment.getPaymentId(), payment.getMerchantId(), payment.getAmount(),
+                payment.getCurrency(), payment.getStatus(), payment.getCreatedAt());
+    }
+}
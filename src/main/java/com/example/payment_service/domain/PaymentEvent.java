@@ -0,0 +1,114 @@
+package com.example.payment_service.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JavaType;
+
+// one committed state change of a payment; previousStatus is null for the creation. Rows are only ever appended
+// (PaymentEventRepository.append) and outlive the payment when it is archived
+@Entity
+@Immutable
+@Table(name = "payment_events", indexes = {
+        @Index(name = "idx_payment_events_payment", columnList = "paymentId, seq"),
+        @Index(name = "idx_payment_events_feed", columnList = "feedPosition, seq")
+})
+public class PaymentEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @JavaType(UuidStringJavaType.class)
+    @Column(nullable = false)
+    private String paymentId;
+
+    @Column(nullable = false)
+    private String merchantId;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus previousStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private String currency;
+
+    @Column(nullable = false)
+    private OffsetDateTime occurredAt;
+
+    // database clock when the row was written, just before its transaction committed
+    @Column(nullable = false)
+    private OffsetDateTime recordedAt;
+
+    // stamped after commit by PaymentJournal.sequence, in the order rows became visible; null until then
+    private Long feedPosition;
+
+    public PaymentEvent() {
+    }
+
+    public PaymentEvent(String paymentId, String merchantId, PaymentStatus previousStatus, PaymentStatus status,
+                        BigDecimal amount, String currency, OffsetDateTime occurredAt) {
+        this.paymentId = paymentId;
+        this.merchantId = merchantId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.amount = amount;
+        this.currency = currency;
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public String getMerchantId() {
+        return merchantId;
+    }
+
+    public PaymentStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public OffsetDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public OffsetDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public Long getFeedPosition() {
+        return feedPosition;
+    }
+}
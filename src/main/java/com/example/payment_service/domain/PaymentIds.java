@@ -0,0 +1,70 @@
+package com.example.payment_service.domain;
+
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+// UUIDv7 (RFC 9562): 48-bit unix millis, then a 12-bit counter in rand_a, then 62 random bits. Ids sort by creation
+// time, so inserts append to the right edge of the primary key index instead of splitting pages all over it.
+public final class PaymentIds {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // millis << 12 | counter; carrying the counter into the millis keeps ids strictly increasing on this node even
+    // when more than 4096 are taken in one millisecond or the clock steps back
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private PaymentIds() {
+    }
+
+    public static String next() {
+        return nextUuid().toString();
+    }
+
+    public static UUID nextUuid() {
+        return nextUuid(System.currentTimeMillis());
+    }
+
+    public static UUID nextUuid(long currentMillis) {
+        long now = currentMillis << 12;
+        long stamp = LAST.updateAndGet(last -> Math.max(last + 1, now));
+        long msb = (stamp >>> 12) << 16 | 0x7000L | (stamp & 0xFFFL);
+        long lsb = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    // strict 8-4-4-4-12 hex form; UUID.fromString also accepts short groups like "1-1-1-1-1", which would come back
+    // from the database as a different string than the one the caller sent
+    public static boolean isValid(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23
+                    ? c == '-'
+                    : c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the form the database hands back. Every map key, cache key, lock stripe and waiter list is keyed by it, so an id
+    // a client sends in upper case finds the same entries as the one the service returned
+    public static String canonical(String id) {
+        return id == null ? null : id.toLowerCase(Locale.ROOT);
+    }
+
+    public static class Generator implements UuidValueGenerator {
+
+        @Override
+        public UUID generateUuid(SharedSessionContractImplementor session) {
+            return nextUuid();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.payment_service.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// single row holding the last feed position handed out; PaymentJournal.sequence locks it, so one sequencer at a time
+// stamps positions and each stamping commits before the next begins
+@Entity
+@Table(name = "payment_journal_head")
+public class PaymentJournalHead {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long lastPosition;
+
+    public PaymentJournalHead() {
+        this.id = ID;
+    }
+
+    public long getLastPosition() {
+        return lastPosition;
+    }
+
+    public void advance(long lastPosition) {
+        this.lastPosition = lastPosition;
+    }
+}
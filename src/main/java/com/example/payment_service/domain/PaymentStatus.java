@@ -4,5 +4,9 @@ public enum PaymentStatus {
     INITIATED,
     SUCCESS,
     FAILED,
-    UNKNOWN
+    UNKNOWN;
+
+    public boolean isTerminal() {
+        return this == SUCCESS || this == FAILED;
+    }
 }
@@ -0,0 +1,16 @@
+package com.example.payment_service.domain;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+// carries the whole payment as committed, so listeners after commit can answer without reading it back
+public record PaymentStatusChangedEvent(String paymentId, String merchantId, String customerId, String description,
+                                        PaymentStatus previousStatus, PaymentStatus status, BigDecimal amount,
+                                        String currency, OffsetDateTime createdAt, OffsetDateTime occurredAt) {
+
+    public static PaymentStatusChangedEvent of(Payment payment, PaymentStatus previousStatus) {
+        return new PaymentStatusChangedEvent(payment.getPaymentId(), payment.getMerchantId(), payment.getCustomerId(),
+                payment.getDescription(), previousStatus, payment.getStatus(), payment.getAmount(),
+                payment.getCurrency(), payment.getCreatedAt(), payment.getUpdatedAt());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.payment_service.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import java.time.OffsetDateTime;
+import org.hibernate.annotations.JavaType;
+
+@Entity
+@Table(name = "pending_charges", indexes = @Index(name = "idx_pending_charges_next_attempt", columnList = "nextAttemptAt"))
+public class PendingCharge {
+
+    @Id
+    @JavaType(UuidStringJavaType.class)
+    private String paymentId;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Version
+    private Long version;
+
+    public PendingCharge() {
+    }
+
+    public PendingCharge(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void claim(OffsetDateTime leaseUntil) {
+        this.attempts++;
+        this.nextAttemptAt = leaseUntil;
+    }
+
+    public void scheduleRetry(OffsetDateTime retryAt, String error) {
+        this.nextAttemptAt = retryAt;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    @PrePersist
+    void onCreate() {
+        this.createdAt = OffsetDateTime.now();
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = this.createdAt;
+        }
+    }
+}
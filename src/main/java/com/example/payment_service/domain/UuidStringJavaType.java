@@ -0,0 +1,38 @@
+package com.example.payment_service.domain;
+
+import java.util.UUID;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.StringJavaType;
+import org.hibernate.type.descriptor.jdbc.JdbcType;
+import org.hibernate.type.descriptor.jdbc.JdbcTypeIndicators;
+
+// ids stay strings in the API and the entities while the column holds the 16-byte uuid form. This is a JavaType
+// rather than an AttributeConverter because JPA does not apply converters to @Id attributes.
+public class UuidStringJavaType extends StringJavaType {
+
+    @Override
+    public JdbcType getRecommendedJdbcType(JdbcTypeIndicators indicators) {
+        return indicators.getJdbcType(SqlTypes.UUID);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <X> X unwrap(String value, Class<X> type, WrapperOptions options) {
+        if (value != null && type == UUID.class) {
+            if (!PaymentIds.isValid(value)) {
+                throw new IllegalArgumentException("Not a UUID: " + value);
+            }
+            return (X) UUID.fromString(value);
+        }
+        return super.unwrap(value, type, options);
+    }
+
+    @Override
+    public <X> String wrap(X value, WrapperOptions options) {
+        if (value instanceof UUID uuid) {
+            return uuid.toString();
+        }
+        return super.wrap(value, options);
+    }
+}
@@ -5,72 +5,16 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
-public class CreatePaymentRequest {
-
-    @NotBlank
-    private String merchantId;
-
-    @NotBlank
-    private String customerId;
-
-    @NotNull
-    @DecimalMin(value = "0.01", message = "Amount must be greater than zero")
-    private BigDecimal amount;
-
-    @NotBlank
-    private String currency = "IDR";
-
-    @NotBlank
-    private String description;
-
-    public CreatePaymentRequest() {
-    }
-
-    public CreatePaymentRequest(String merchantId, String customerId, BigDecimal amount, String currency, String description) {
-        this.merchantId = merchantId;
-        this.customerId = customerId;
-        this.amount = amount;
-        this.currency = currency;
-        this.description = description;
-    }
-
-    public String getMerchantId() {
-        return merchantId;
-    }
-
-    public void setMerchantId(String merchantId) {
-        this.merchantId = merchantId;
-    }
-
-    public String getCustomerId() {
-        return customerId;
-    }
-
-    public void setCustomerId(String customerId) {
-        this.customerId = customerId;
-    }
-
-    public BigDecimal getAmount() {
-        return amount;
-    }
-
-    public void setAmount(BigDecimal amount) {
-        this.amount = amount;
-    }
-
-    public String getCurrency() {
-        return currency;
-    }
-
-    public void setCurrency(String currency) {
-        this.currency = currency;
-    }
-
-    public String getDescription() {
-        return description;
-    }
-
-    public void setDescription(String description) {
-        this.description = description;
+public record CreatePaymentRequest(@NotBlank String merchantId,
+                                   @NotBlank String customerId,
+                                   @NotNull @DecimalMin(value = "0.01", message = "Amount must be greater than zero")
+                                   BigDecimal amount,
+                                   @NotBlank String currency,
+                                   @NotBlank String description) {
+
+    public CreatePaymentRequest {
+        if (currency == null) {
+            currency = "IDR";
+        }
     }
 }
@@ -0,0 +1,13 @@
+package com.example.payment_service.dto;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+// counts and amounts are payments currently in each status; windows count payments entering each status, so
+// INITIATED there is payments created
+public record MerchantStatsResponse(String merchantId, Map<PaymentStatus, Long> counts,
+                                    Map<String, Map<PaymentStatus, BigDecimal>> amounts,
+                                    Map<String, Map<PaymentStatus, Long>> windows, OffsetDateTime rebuiltAt) {
+}
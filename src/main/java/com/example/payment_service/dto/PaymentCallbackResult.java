@@ -0,0 +1,41 @@
+package com.example.payment_service.dto;
+
+import com.example.payment_service.domain.PaymentStatus;
+
+public class PaymentCallbackResult {
+
+    public enum Outcome {
+        APPLIED,
+        IGNORED,
+        REJECTED,
+        NOT_FOUND
+    }
+
+    private final String paymentId;
+    private final Outcome outcome;
+    private final PaymentStatus status;
+    private final String message;
+
+    public PaymentCallbackResult(String paymentId, Outcome outcome, PaymentStatus status, String message) {
+        this.paymentId = paymentId;
+        this.outcome = outcome;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
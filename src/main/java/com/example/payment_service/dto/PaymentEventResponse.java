@@ -0,0 +1,11 @@
+package com.example.payment_service.dto;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+// position is the feed cursor, null until the event is sequenced
+public record PaymentEventResponse(long seq, Long position, String paymentId, String merchantId,
+                                   PaymentStatus previousStatus, PaymentStatus status, BigDecimal amount,
+                                   String currency, OffsetDateTime occurredAt) {
+}
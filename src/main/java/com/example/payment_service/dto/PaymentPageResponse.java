@@ -0,0 +1,22 @@
+package com.example.payment_service.dto;
+
+import java.util.List;
+
+public class PaymentPageResponse {
+
+    private final List<PaymentResponse> items;
+    private final String nextCursor;
+
+    public PaymentPageResponse(List<PaymentResponse> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PaymentResponse> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.payment_service.dto;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+public record PaymentStateResponse(String paymentId, String merchantId, BigDecimal amount, String currency,
+                                   PaymentStatus status, OffsetDateTime createdAt, OffsetDateTime updatedAt,
+                                   long lastSeq) {
+}
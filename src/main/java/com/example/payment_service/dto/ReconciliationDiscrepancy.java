@@ -0,0 +1,54 @@
+package com.example.payment_service.dto;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.math.BigDecimal;
+
+public class ReconciliationDiscrepancy {
+
+    public enum Type {
+        AMOUNT_MISMATCH,
+        STATUS_DRIFT,
+        MISSING
+    }
+
+    private final String paymentId;
+    private final Type type;
+    private final BigDecimal settledAmount;
+    private final PaymentStatus settledStatus;
+    private final BigDecimal amount;
+    private final PaymentStatus status;
+
+    public ReconciliationDiscrepancy(String paymentId, Type type, BigDecimal settledAmount, PaymentStatus settledStatus,
+                                     BigDecimal amount, PaymentStatus status) {
+        this.paymentId = paymentId;
+        this.type = type;
+        this.settledAmount = settledAmount;
+        this.settledStatus = settledStatus;
+        this.amount = amount;
+        this.status = status;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public BigDecimal getSettledAmount() {
+        return settledAmount;
+    }
+
+    public PaymentStatus getSettledStatus() {
+        return settledStatus;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+}
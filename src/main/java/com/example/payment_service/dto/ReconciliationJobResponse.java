@@ -0,0 +1,12 @@
+package com.example.payment_service.dto;
+
+import java.time.OffsetDateTime;
+
+public record ReconciliationJobResponse(String jobId, String file, boolean apply, State state,
+                                        OffsetDateTime submittedAt, OffsetDateTime finishedAt,
+                                        ReconciliationReport report, String error) {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
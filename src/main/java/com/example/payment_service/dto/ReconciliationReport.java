@@ -0,0 +1,72 @@
+package com.example.payment_service.dto;
+
+import java.util.List;
+
+public class ReconciliationReport {
+
+    private final String file;
+    private final long lines;
+    private final long matched;
+    private final long amountMismatches;
+    private final long statusDrift;
+    private final long missing;
+    private final long malformed;
+    private final long corrected;
+    private final long durationMillis;
+    private final List<ReconciliationDiscrepancy> samples;
+
+    public ReconciliationReport(String file, long lines, long matched, long amountMismatches, long statusDrift,
+                                long missing, long malformed, long corrected, long durationMillis,
+                                List<ReconciliationDiscrepancy> samples) {
+        this.file = file;
+        this.lines = lines;
+        this.matched = matched;
+        this.amountMismatches = amountMismatches;
+        this.statusDrift = statusDrift;
+        this.missing = missing;
+        this.malformed = malformed;
+        this.corrected = corrected;
+        this.durationMillis = durationMillis;
+        this.samples = samples;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getAmountMismatches() {
+        return amountMismatches;
+    }
+
+    public long getStatusDrift() {
+        return statusDrift;
+    }
+
+    public long getMissing() {
+        return missing;
+    }
+
+    public long getMalformed() {
+        return malformed;
+    }
+
+    public long getCorrected() {
+        return corrected;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public List<ReconciliationDiscrepancy> getSamples() {
+        return samples;
+    }
+}
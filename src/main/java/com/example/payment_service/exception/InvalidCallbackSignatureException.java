@@ -0,0 +1,12 @@
+package com.example.payment_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class InvalidCallbackSignatureException extends RuntimeException {
+
+    public InvalidCallbackSignatureException(String message) {
+        super(message);
+    }
+}
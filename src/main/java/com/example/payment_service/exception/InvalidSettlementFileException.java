@@ -0,0 +1,12 @@
+package com.example.payment_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSettlementFileException extends RuntimeException {
+
+    public InvalidSettlementFileException(String message) {
+        super(message);
+    }
+}
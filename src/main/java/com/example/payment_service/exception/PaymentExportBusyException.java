@@ -0,0 +1,12 @@
+package com.example.payment_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class PaymentExportBusyException extends RuntimeException {
+
+    public PaymentExportBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.payment_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class ReconciliationBusyException extends RuntimeException {
+
+    public ReconciliationBusyException(String message) {
+        super(message);
+    }
+}
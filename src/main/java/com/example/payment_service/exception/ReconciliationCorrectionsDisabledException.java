@@ -0,0 +1,12 @@
+package com.example.payment_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class ReconciliationCorrectionsDisabledException extends RuntimeException {
+
+    public ReconciliationCorrectionsDisabledException(String message) {
+        super(message);
+    }
+}
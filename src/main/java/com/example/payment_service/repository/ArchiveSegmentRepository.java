@@ -0,0 +1,16 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.ArchiveSegment;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ArchiveSegmentRepository extends JpaRepository<ArchiveSegment, String> {
+
+    @Query("select s.name from ArchiveSegment s")
+    List<String> findAllNames();
+
+    @Query("select s.name from ArchiveSegment s where s.name > :after")
+    List<String> findNamesAfter(@Param("after") String after);
+}
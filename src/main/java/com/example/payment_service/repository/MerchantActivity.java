@@ -0,0 +1,8 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.time.OffsetDateTime;
+
+public record MerchantActivity(String merchantId, PaymentStatus status, OffsetDateTime createdAt,
+                               OffsetDateTime updatedAt) {
+}
@@ -0,0 +1,7 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.MerchantKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MerchantKeyRepository extends JpaRepository<MerchantKey, String> {
+}
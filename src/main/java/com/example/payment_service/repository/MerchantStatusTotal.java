@@ -0,0 +1,8 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.math.BigDecimal;
+
+public record MerchantStatusTotal(String merchantId, PaymentStatus status, String currency, long count,
+                                  BigDecimal amount) {
+}
@@ -0,0 +1,10 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.Notification;
+import java.util.List;
+
+public interface NotificationInsertRepository {
+
+    // inserts the notifications whose (paymentId, channel, type) is not taken yet and returns how many were written
+    int insertIfAbsent(List<Notification> notifications);
+}
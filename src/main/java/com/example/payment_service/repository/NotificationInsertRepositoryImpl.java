@@ -0,0 +1,79 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.Notification;
+import com.example.payment_service.domain.PaymentIds;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+public class NotificationInsertRepositoryImpl implements NotificationInsertRepository {
+
+    private static final int CHUNK = 50;
+
+    private static final String COLUMNS = "id, payment_id, customer_id, channel, type, message, status, attempts, "
+            + "next_attempt_at, created_at";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+    private static final int PARAMETERS_PER_ROW = 9;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int insertIfAbsent(List<Notification> notifications) {
+        // a statement must not carry the same key twice: MERGE would insert both and trip the constraint
+        Map<List<Object>, Notification> unique = new LinkedHashMap<>();
+        for (Notification notification : notifications) {
+            unique.putIfAbsent(List.of(notification.getPaymentId(), notification.getChannel(), notification.getType()),
+                    notification);
+        }
+
+        List<Notification> rows = new ArrayList<>(unique.values());
+        boolean postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        OffsetDateTime now = OffsetDateTime.now();
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += CHUNK) {
+            List<Notification> chunk = rows.subList(from, Math.min(from + CHUNK, rows.size()));
+            inserted += insertChunk(chunk, postgres, now);
+        }
+        return inserted;
+    }
+
+    // PostgreSQL skips conflicting rows itself, including ones a concurrent transaction is inserting, without
+    // aborting ours. Elsewhere (H2 in development and tests) the standard MERGE only inserts unmatched keys.
+    private int insertChunk(List<Notification> chunk, boolean postgres, OffsetDateTime now) {
+        String values = String.join(", ", Collections.nCopies(chunk.size(), ROW));
+        String sql = postgres
+                ? "insert into notifications (" + COLUMNS + ") values " + values
+                        + " on conflict (payment_id, channel, type) do nothing"
+                : "merge into notifications n using (values " + values + ") v (" + COLUMNS + ")"
+                        + " on n.payment_id = v.payment_id and n.channel = v.channel and n.type = v.type"
+                        + " when not matched then insert (" + COLUMNS + ") values (v.id, v.payment_id, v.customer_id,"
+                        + " v.channel, v.type, v.message, v.status, v.attempts, v.next_attempt_at, v.created_at)";
+
+        Query query = entityManager.createNativeQuery(sql);
+        for (int i = 0; i < chunk.size(); i++) {
+            Notification notification = chunk.get(i);
+            int base = i * PARAMETERS_PER_ROW;
+            query.setParameter(base + 1, PaymentIds.nextUuid())
+                    .setParameter(base + 2, UUID.fromString(notification.getPaymentId()))
+                    .setParameter(base + 3, notification.getCustomerId())
+                    .setParameter(base + 4, notification.getChannel())
+                    .setParameter(base + 5, notification.getType().name())
+                    .setParameter(base + 6, notification.getMessage())
+                    .setParameter(base + 7, notification.getStatus().name())
+                    .setParameter(base + 8, now)
+                    .setParameter(base + 9, now);
+        }
+        return query.executeUpdate();
+    }
+}
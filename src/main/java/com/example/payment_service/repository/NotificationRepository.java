@@ -2,9 +2,43 @@ package com.example.payment_service.repository;
 
 import com.example.payment_service.domain.Notification;
 import com.example.payment_service.domain.NotificationStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface NotificationRepository extends JpaRepository<Notification, String> {
+public interface NotificationRepository extends JpaRepository<Notification, UUID>, NotificationInsertRepository {
 
-    boolean existsByPaymentIdAndStatus(String paymentId, NotificationStatus status);
+    // lock timeout -2 asks Hibernate for SKIP LOCKED so several dispatchers can claim disjoint batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select n from Notification n where n.status = :status and n.nextAttemptAt <= :now order by n.nextAttemptAt")
+    List<Notification> findDueForUpdate(@Param("status") NotificationStatus status, @Param("now") OffsetDateTime now,
+                                        Limit limit);
+
+    // a dispatcher's claim is the attempt it took; once its lease runs out and the row is claimed again, attempts has
+    // moved on and the stale claim no longer matches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from Notification n where n.id = :id and n.status = com.example.payment_service.domain.NotificationStatus.PENDING and n.attempts = :attempts")
+    Optional<Notification> findClaimedForUpdate(@Param("id") UUID id, @Param("attempts") int attempts);
+
+    List<Notification> findByPaymentIdIn(Collection<String> paymentIds);
+
+    @Modifying
+    @Query("delete from Notification n where n.paymentId in :paymentIds")
+    int deleteArchived(@Param("paymentIds") Collection<String> paymentIds);
+
+    @Modifying
+    @Query("update Notification n set n.status = com.example.payment_service.domain.NotificationStatus.SENT, n.lastError = null where n.id in :ids and n.status = com.example.payment_service.domain.NotificationStatus.PENDING and n.attempts = :attempts")
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("attempts") int attempts);
 }
@@ -0,0 +1,10 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentEvent;
+import java.util.List;
+
+public interface PaymentEventInsertRepository {
+
+    // inserts the events in order with multi-row statements; seq is assigned by the database
+    void append(List<PaymentEvent> events);
+}
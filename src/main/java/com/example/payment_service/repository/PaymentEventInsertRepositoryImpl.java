@@ -0,0 +1,49 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.hibernate.query.TypedParameterValue;
+import org.hibernate.type.StandardBasicTypes;
+
+public class PaymentEventInsertRepositoryImpl implements PaymentEventInsertRepository {
+
+    private static final int CHUNK = 100;
+
+    private static final String COLUMNS = "payment_id, merchant_id, previous_status, status, amount, currency, "
+            + "occurred_at, recorded_at";
+    // recorded_at from the database clock, the same for every instance
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, current_timestamp)";
+    private static final int PARAMETERS_PER_ROW = 7;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // the identity column rules out Hibernate's own insert batching, so rows go out as multi-row statements instead
+    @Override
+    public void append(List<PaymentEvent> events) {
+        for (int from = 0; from < events.size(); from += CHUNK) {
+            List<PaymentEvent> chunk = events.subList(from, Math.min(from + CHUNK, events.size()));
+            Query query = entityManager.createNativeQuery("insert into payment_events (" + COLUMNS + ") values "
+                    + String.join(", ", Collections.nCopies(chunk.size(), ROW)));
+            for (int i = 0; i < chunk.size(); i++) {
+                PaymentEvent event = chunk.get(i);
+                int base = i * PARAMETERS_PER_ROW;
+                // typed, since a bare null leaves the database to guess the parameter type
+                query.setParameter(base + 1, UUID.fromString(event.getPaymentId()))
+                        .setParameter(base + 2, event.getMerchantId())
+                        .setParameter(base + 3, new TypedParameterValue<>(StandardBasicTypes.STRING,
+                                event.getPreviousStatus() == null ? null : event.getPreviousStatus().name()))
+                        .setParameter(base + 4, event.getStatus().name())
+                        .setParameter(base + 5, event.getAmount())
+                        .setParameter(base + 6, event.getCurrency())
+                        .setParameter(base + 7, event.getOccurredAt());
+            }
+            query.executeUpdate();
+        }
+    }
+}
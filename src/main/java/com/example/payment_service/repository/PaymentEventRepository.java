@@ -0,0 +1,69 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentEvent;
+import com.example.payment_service.dto.PaymentEventResponse;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface PaymentEventRepository extends JpaRepository<PaymentEvent, Long>, PaymentEventInsertRepository {
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            select new com.example.payment_service.dto.PaymentEventResponse(e.seq, e.feedPosition, e.paymentId, e.merchantId,
+                e.previousStatus, e.status, e.amount, e.currency, e.occurredAt)
+            from PaymentEvent e
+            where e.feedPosition > :after
+            order by e.feedPosition
+            """)
+    Stream<PaymentEventResponse> streamAfter(@Param("after") long after, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            select new com.example.payment_service.dto.PaymentEventResponse(e.seq, e.feedPosition, e.paymentId, e.merchantId,
+                e.previousStatus, e.status, e.amount, e.currency, e.occurredAt)
+            from PaymentEvent e
+            where e.occurredAt <= :at
+            order by e.paymentId, e.seq
+            """)
+    Stream<PaymentEventResponse> streamByPaymentUntil(@Param("at") OffsetDateTime at);
+
+    @Query("""
+            select new com.example.payment_service.dto.PaymentEventResponse(e.seq, e.feedPosition, e.paymentId, e.merchantId,
+                e.previousStatus, e.status, e.amount, e.currency, e.occurredAt)
+            from PaymentEvent e
+            where e.paymentId = :paymentId
+            order by e.seq
+            """)
+    List<PaymentEventResponse> findHistory(@Param("paymentId") String paymentId);
+
+    @Query("select min(e.seq) from PaymentEvent e where e.feedPosition is null")
+    Long findFirstUnsequenced();
+
+    @Query("select max(e.seq) from PaymentEvent e where e.feedPosition is null and e.seq < :before")
+    Long findLastUnsequenced(@Param("before") long before);
+
+    // native, since the entity is immutable to Hibernate; rows still uncommitted in the range are left for a later pass
+    @Modifying
+    @Query(value = """
+            update payment_events set feed_position = seq + :offset
+            where feed_position is null and seq between :from and :to
+            """, nativeQuery = true)
+    int sequence(@Param("from") long from, @Param("to") long to, @Param("offset") long offset);
+}
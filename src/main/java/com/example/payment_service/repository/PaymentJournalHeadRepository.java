@@ -0,0 +1,15 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentJournalHead;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+public interface PaymentJournalHeadRepository extends JpaRepository<PaymentJournalHead, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from PaymentJournalHead h where h.id = " + PaymentJournalHead.ID)
+    Optional<PaymentJournalHead> findForUpdate();
+}
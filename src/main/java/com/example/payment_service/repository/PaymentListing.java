@@ -0,0 +1,23 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.time.OffsetDateTime;
+
+public record PaymentListing(Owner owner, String ownerId, PaymentStatus status, OffsetDateTime from,
+                             OffsetDateTime to, OffsetDateTime afterCreatedAt, String afterPaymentId, int limit) {
+
+    public enum Owner {
+        MERCHANT("merchantId"),
+        CUSTOMER("customerId");
+
+        private final String attribute;
+
+        Owner(String attribute) {
+            this.attribute = attribute;
+        }
+
+        String attribute() {
+            return attribute;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.dto.PaymentResponse;
+import java.util.List;
+
+public interface PaymentListingRepository {
+
+    List<PaymentResponse> findPage(PaymentListing listing);
+}
@@ -0,0 +1,55 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.dto.PaymentResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.util.List;
+
+public class PaymentListingRepositoryImpl implements PaymentListingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PaymentResponse> findPage(PaymentListing listing) {
+        // seeks on (owner, createdAt, paymentId) so a deep page costs the same as the first one
+        StringBuilder jpql = new StringBuilder("""
+                select new com.example.payment_service.dto.PaymentResponse(p.paymentId, p.merchantId, p.customerId,
+                    p.amount, p.currency, p.description, p.status, p.createdAt, p.updatedAt)
+                from Payment p
+                where p.""").append(listing.owner().attribute()).append(" = :ownerId");
+        if (listing.status() != null) {
+            jpql.append(" and p.status = :status");
+        }
+        if (listing.from() != null) {
+            jpql.append(" and p.createdAt >= :from");
+        }
+        if (listing.to() != null) {
+            jpql.append(" and p.createdAt < :to");
+        }
+        if (listing.afterPaymentId() != null) {
+            jpql.append(" and (p.createdAt, p.paymentId) < (:afterCreatedAt, :afterPaymentId)");
+        }
+        // the constant owner column leads the sort so the planner can read the index in order instead of sorting
+        jpql.append(" order by p.").append(listing.owner().attribute()).append(", p.createdAt desc, p.paymentId desc");
+
+        TypedQuery<PaymentResponse> query = entityManager.createQuery(jpql.toString(), PaymentResponse.class)
+                .setParameter("ownerId", listing.ownerId())
+                .setMaxResults(listing.limit());
+        if (listing.status() != null) {
+            query.setParameter("status", listing.status());
+        }
+        if (listing.from() != null) {
+            query.setParameter("from", listing.from());
+        }
+        if (listing.to() != null) {
+            query.setParameter("to", listing.to());
+        }
+        if (listing.afterPaymentId() != null) {
+            query.setParameter("afterCreatedAt", listing.afterCreatedAt())
+                    .setParameter("afterPaymentId", listing.afterPaymentId());
+        }
+        return query.getResultList();
+    }
+}
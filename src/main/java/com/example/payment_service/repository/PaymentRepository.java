@@ -1,10 +1,108 @@
 package com.example.payment_service.repository;
 
 import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.PaymentResponse;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface PaymentRepository extends JpaRepository<Payment, String> {
+public interface PaymentRepository extends JpaRepository<Payment, String>, PaymentListingRepository {
 
-    Optional<Payment> findByCustomerId(String customerId);
+    Optional<Payment> findByMerchantIdAndIdempotencyKey(String merchantId, String idempotencyKey);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            select new com.example.payment_service.dto.PaymentResponse(p.paymentId, p.merchantId, p.customerId,
+                p.amount, p.currency, p.description, p.status, p.createdAt, p.updatedAt)
+            from Payment p
+            where p.merchantId = :merchantId and p.createdAt >= :from and p.createdAt < :to
+            order by p.merchantId, p.createdAt desc, p.paymentId desc
+            """)
+    Stream<PaymentResponse> streamForExport(@Param("merchantId") String merchantId,
+                                            @Param("from") OffsetDateTime from,
+                                            @Param("to") OffsetDateTime to);
+
+    @Query("""
+            select new com.example.payment_service.repository.PaymentSettlementView(p.paymentId, p.amount, p.status)
+            from Payment p
+            where p.paymentId in :paymentIds
+            """)
+    List<PaymentSettlementView> findSettlementViews(@Param("paymentIds") Collection<String> paymentIds);
+
+    @Query("""
+            select new com.example.payment_service.repository.MerchantStatusTotal(p.merchantId, p.status, p.currency,
+                count(p), sum(p.amount))
+            from Payment p
+            group by p.merchantId, p.status, p.currency
+            """)
+    List<MerchantStatusTotal> sumByMerchantStatusAndCurrency();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            select new com.example.payment_service.repository.MerchantActivity(p.merchantId, p.status, p.createdAt,
+                p.updatedAt)
+            from Payment p
+            where p.updatedAt >= :since
+            """)
+    Stream<MerchantActivity> streamActivitySince(@Param("since") OffsetDateTime since);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select p from Payment p
+            where p.status in :statuses and p.updatedAt < :staleBefore
+              and (p.sweepLeaseUntil is null or p.sweepLeaseUntil <= :now)
+              and not exists (select c from PendingCharge c where c.paymentId = p.paymentId)
+            order by p.updatedAt
+            """)
+    List<Payment> findStaleForUpdate(@Param("statuses") Collection<PaymentStatus> statuses,
+                                     @Param("staleBefore") OffsetDateTime staleBefore,
+                                     @Param("now") OffsetDateTime now,
+                                     Limit limit);
+
+    // lock timeout -2 is SKIP LOCKED, so archivers on several nodes take disjoint chunks; payments with a queued charge
+    // or an undelivered notification are still in use. One status per query lets (status, updatedAt) supply the order,
+    // so the scan stops at the limit instead of checking and sorting every terminal payment
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select p from Payment p
+            where p.status = :status and p.updatedAt < :before
+              and not exists (select c from PendingCharge c where c.paymentId = p.paymentId)
+              and not exists (select n from Notification n where n.paymentId = p.paymentId
+                  and n.status = com.example.payment_service.domain.NotificationStatus.PENDING)
+            order by p.updatedAt
+            """)
+    List<Payment> findArchivableForUpdate(@Param("status") PaymentStatus status,
+                                          @Param("before") OffsetDateTime before,
+                                          Limit limit);
+
+    @Modifying
+    @Query("delete from Payment p where p.paymentId in :paymentIds")
+    int deleteArchived(@Param("paymentIds") Collection<String> paymentIds);
+
+    @Modifying
+    @Query("update Payment p set p.sweepLeaseUntil = :leaseUntil where p.paymentId in :paymentIds")
+    int leaseForSweep(@Param("paymentIds") Collection<String> paymentIds, @Param("leaseUntil") OffsetDateTime leaseUntil);
 }
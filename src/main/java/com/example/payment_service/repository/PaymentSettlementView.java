@@ -0,0 +1,7 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.math.BigDecimal;
+
+public record PaymentSettlementView(String paymentId, BigDecimal amount, PaymentStatus status) {
+}
@@ -0,0 +1,21 @@
+package com.example.payment_service.repository;
+
+import com.example.payment_service.domain.PendingCharge;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface PendingChargeRepository extends JpaRepository<PendingCharge, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select c from PendingCharge c where c.nextAttemptAt <= :now order by c.nextAttemptAt")
+    List<PendingCharge> findDueForUpdate(@Param("now") OffsetDateTime now, Limit limit);
+}
@@ -0,0 +1,133 @@
+package com.example.payment_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// sheds create and callback requests before they reach the database: a token bucket per merchant plus a cap on
+// requests in flight across all merchants
+@Component
+public class AdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    // each bucket is the merchant's theoretical arrival time (GCRA), so admitting a request is one CAS
+    private final Cache<String, AtomicLong> buckets;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final PaymentMetrics paymentMetrics;
+    private final Duration concurrencyRetryAfter;
+
+    private volatile Limits limits;
+
+    public AdmissionControl(PaymentMetrics paymentMetrics,
+                            MeterRegistry meterRegistry,
+                            @Value("${payment.admission.merchant.permits-per-second:200}") double permitsPerSecond,
+                            @Value("${payment.admission.merchant.burst:400}") int burst,
+                            @Value("${payment.admission.merchant.max-tracked:100000}") long maxTracked,
+                            @Value("${payment.admission.merchant.idle-eviction:10m}") Duration idleEviction,
+                            @Value("${payment.admission.max-concurrent:256}") int maxConcurrent,
+                            @Value("${payment.admission.concurrency-retry-after:1s}") Duration concurrencyRetryAfter) {
+        this.paymentMetrics = paymentMetrics;
+        this.concurrencyRetryAfter = concurrencyRetryAfter;
+        this.limits = new Limits(permitsPerSecond, burst, maxConcurrent);
+        // an evicted merchant was idle long enough to have a full bucket again
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterAccess(idleEviction)
+                .build();
+        Gauge.builder("payment.admission.in.flight", inFlight, AtomicInteger::get)
+                .description("Create and callback requests currently admitted")
+                .register(meterRegistry);
+    }
+
+    // Duration.ZERO when admitted, otherwise how long until the merchant's bucket has a token again
+    public Duration acquireMerchant(String merchantId, String endpoint) {
+        Limits current = limits;
+        if (current.permitsPerSecond() <= 0) {
+            return Duration.ZERO;
+        }
+        long interval = current.intervalNanos();
+        long tolerance = interval * (current.burst() - 1);
+        AtomicLong arrival = buckets.get(merchantId, id -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = System.nanoTime();
+            long previous = arrival.get();
+            long next = Math.max(previous, now);
+            long wait = next - tolerance - now;
+            if (wait > 0) {
+                paymentMetrics.recordAdmissionRejection("merchant", endpoint);
+                return Duration.ofNanos(wait);
+            }
+            if (arrival.compareAndSet(previous, next + interval)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    public boolean tryEnter(String endpoint) {
+        int max = limits.maxConcurrent();
+        while (true) {
+            int current = inFlight.get();
+            if (max > 0 && current >= max) {
+                paymentMetrics.recordAdmissionRejection("concurrency", endpoint);
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    public Duration concurrencyRetryAfter() {
+        return concurrencyRetryAfter;
+    }
+
+    public Limits limits() {
+        return limits;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long trackedMerchants() {
+        return buckets.estimatedSize();
+    }
+
+    public void update(Limits updated) {
+        log.info("Admission limits changed from {} to {}", limits, updated);
+        limits = updated;
+    }
+
+    // Retry-After is whole seconds; round up so a client honouring it finds a token
+    public static String retryAfterSeconds(Duration wait) {
+        return Long.toString(Math.max(1, (wait.toNanos() + 999_999_999) / 1_000_000_000));
+    }
+
+    // zero or less disables the limit
+    public record Limits(double permitsPerSecond, int burst, int maxConcurrent) {
+
+        public Limits {
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst must be at least 1");
+            }
+        }
+
+        long intervalNanos() {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        }
+    }
+}
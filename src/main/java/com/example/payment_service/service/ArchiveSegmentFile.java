@@ -0,0 +1,281 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.ArchivedPayment;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.repository.MerchantStatusTotal;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// an immutable segment of archived payments: deflate-compressed blocks of records sorted by paymentId, then the sparse
+// index (first paymentId, offset and length of every block), a Bloom filter over the paymentIds and the per-merchant
+// totals of the payments inside, then the offset of that footer and a magic number. A lookup reads and inflates a
+// single block
+final class ArchiveSegmentFile {
+
+    static final String SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x50415931;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+    // 10 bits and 7 probes per payment: about 1% false positives
+    private static final int BLOOM_BITS_PER_PAYMENT = 10;
+    private static final int BLOOM_PROBES = 7;
+
+    private final String name;
+    private final Path path;
+    private final int payments;
+    private final String[] blockFirstIds;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final String lastPaymentId;
+    private final long[] bloom;
+    private final List<MerchantStatusTotal> totals;
+
+    private ArchiveSegmentFile(String name, Path path, int payments, String[] blockFirstIds, long[] blockOffsets,
+                               int[] blockLengths, String lastPaymentId, long[] bloom, List<MerchantStatusTotal> totals) {
+        this.name = name;
+        this.path = path;
+        this.payments = payments;
+        this.blockFirstIds = blockFirstIds;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.lastPaymentId = lastPaymentId;
+        this.bloom = bloom;
+        this.totals = totals;
+    }
+
+    // payments must be sorted by paymentId; the file is forced to disk before this returns
+    static ArchiveSegmentFile write(Path path, String name, List<ArchivedPayment> payments, int blockSize,
+                                    ObjectWriter writer) throws IOException {
+        int blocks = (payments.size() + blockSize - 1) / blockSize;
+        String[] blockFirstIds = new String[blocks];
+        long[] blockOffsets = new long[blocks];
+        int[] blockLengths = new int[blocks];
+        long[] bloom = new long[Math.max(1, (payments.size() * BLOOM_BITS_PER_PAYMENT + 63) / 64)];
+        Map<List<Object>, MerchantStatusTotal> totals = new LinkedHashMap<>();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            ByteArrayOutputStream block = new ByteArrayOutputStream(64 * 1024);
+            Deflater deflater = new Deflater();
+            try {
+                for (int b = 0; b < blocks; b++) {
+                    block.reset();
+                    deflater.reset();
+                    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(block, deflater))) {
+                        for (ArchivedPayment payment : payments.subList(b * blockSize,
+                                Math.min(payments.size(), (b + 1) * blockSize))) {
+                            byte[] json = writer.writeValueAsBytes(payment);
+                            out.writeUTF(payment.paymentId());
+                            out.writeInt(json.length);
+                            out.write(json);
+                            addToBloom(bloom, hash(payment.paymentId()));
+                            totals.merge(List.of(payment.merchantId(), payment.status(), payment.currency()),
+                                    new MerchantStatusTotal(payment.merchantId(), payment.status(), payment.currency(),
+                                            1, payment.amount()),
+                                    (a, c) -> new MerchantStatusTotal(a.merchantId(), a.status(), a.currency(),
+                                            a.count() + c.count(), a.amount().add(c.amount())));
+                        }
+                    }
+                    blockFirstIds[b] = payments.get(b * blockSize).paymentId();
+                    blockOffsets[b] = offset;
+                    blockLengths[b] = block.size();
+                    offset += writeFully(channel, ByteBuffer.wrap(block.toByteArray()));
+                }
+            } finally {
+                deflater.end();
+            }
+
+            String lastPaymentId = payments.get(payments.size() - 1).paymentId();
+            ByteArrayOutputStream footer = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(footer)) {
+                out.writeInt(payments.size());
+                out.writeUTF(lastPaymentId);
+                out.writeInt(blocks);
+                for (int b = 0; b < blocks; b++) {
+                    out.writeUTF(blockFirstIds[b]);
+                    out.writeLong(blockOffsets[b]);
+                    out.writeInt(blockLengths[b]);
+                }
+                out.writeInt(bloom.length);
+                for (long word : bloom) {
+                    out.writeLong(word);
+                }
+                out.writeInt(totals.size());
+                for (MerchantStatusTotal total : totals.values()) {
+                    out.writeUTF(total.merchantId());
+                    out.writeUTF(total.status().name());
+                    out.writeUTF(total.currency());
+                    out.writeLong(total.count());
+                    out.writeUTF(total.amount().toPlainString());
+                }
+                out.writeLong(offset);
+                out.writeInt(MAGIC);
+            }
+            writeFully(channel, ByteBuffer.wrap(footer.toByteArray()));
+            channel.force(true);
+            return new ArchiveSegmentFile(name, path, payments.size(), blockFirstIds, blockOffsets, blockLengths,
+                    lastPaymentId, bloom, List.copyOf(totals.values()));
+        }
+    }
+
+    static ArchiveSegmentFile open(Path path, String name) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_BYTES) {
+                throw new IOException("Archive segment %s is truncated".formatted(path));
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || footerOffset < 0 || footerOffset > size - TRAILER_BYTES) {
+                throw new IOException("Archive segment %s has no valid footer".formatted(path));
+            }
+            ByteBuffer footer = readFully(channel, footerOffset, (int) (size - TRAILER_BYTES - footerOffset));
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer.array()))) {
+                int payments = in.readInt();
+                String lastPaymentId = in.readUTF();
+                int blocks = in.readInt();
+                String[] blockFirstIds = new String[blocks];
+                long[] blockOffsets = new long[blocks];
+                int[] blockLengths = new int[blocks];
+                for (int b = 0; b < blocks; b++) {
+                    blockFirstIds[b] = in.readUTF();
+                    blockOffsets[b] = in.readLong();
+                    blockLengths[b] = in.readInt();
+                }
+                long[] bloom = new long[in.readInt()];
+                for (int i = 0; i < bloom.length; i++) {
+                    bloom[i] = in.readLong();
+                }
+                int totalCount = in.readInt();
+                List<MerchantStatusTotal> totals = new ArrayList<>(totalCount);
+                for (int i = 0; i < totalCount; i++) {
+                    totals.add(new MerchantStatusTotal(in.readUTF(), PaymentStatus.valueOf(in.readUTF()), in.readUTF(),
+                            in.readLong(), new BigDecimal(in.readUTF())));
+                }
+                return new ArchiveSegmentFile(name, path, payments, blockFirstIds, blockOffsets, blockLengths,
+                        lastPaymentId, bloom, totals);
+            }
+        }
+    }
+
+    // the record's JSON, or null when the payment is not in this segment; paymentId must be lower case and hash is
+    // hash(paymentId), computed once per lookup rather than once per segment
+    byte[] find(String paymentId, long hash) throws IOException {
+        if (blockFirstIds.length == 0 || paymentId.compareTo(blockFirstIds[0]) < 0
+                || paymentId.compareTo(lastPaymentId) > 0 || !mightContain(bloom, hash)) {
+            return null;
+        }
+        int found = Arrays.binarySearch(blockFirstIds, paymentId);
+        int b = found >= 0 ? found : -found - 2;
+        ByteBuffer block;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            block = readFully(channel, blockOffsets[b], blockLengths[b]);
+        }
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(block.array()), inflater))) {
+            while (true) {
+                String id;
+                try {
+                    id = in.readUTF();
+                } catch (EOFException ex) {
+                    return null;
+                }
+                int length = in.readInt();
+                int order = id.compareTo(paymentId);
+                if (order == 0) {
+                    return in.readNBytes(length);
+                }
+                if (order > 0) {
+                    return null;
+                }
+                in.skipNBytes(length);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int payments() {
+        return payments;
+    }
+
+    List<MerchantStatusTotal> totals() {
+        return totals;
+    }
+
+    private static void addToBloom(long[] bloom, long hash) {
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < BLOOM_PROBES; i++) {
+            long bit = Math.floorMod((int) hash + i * (int) (hash >>> 32), bits);
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean mightContain(long[] bloom, long hash) {
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < BLOOM_PROBES; i++) {
+            long bit = Math.floorMod((int) hash + i * (int) (hash >>> 32), bits);
+            if ((bloom[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a with a final avalanche; the two halves are the double-hashing pair for the probes
+    static long hash(String paymentId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < paymentId.length(); i++) {
+            hash = (hash ^ paymentId.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ hash >>> 33) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ hash >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive segment");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CallbackSignatureVerifier {
+
+    private static final int SIGNATURE_BYTES = 32;
+    private static final byte SEPARATOR = '|';
+
+    // a pool rather than a ThreadLocal: on virtual threads every request runs on a fresh thread, so a per-thread Mac
+    // would be built for each callback and then thrown away with its thread
+    private static final BlockingQueue<Scratch> POOL =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final MerchantKeyCache merchantKeyCache;
+    private final boolean enabled;
+
+    public CallbackSignatureVerifier(MerchantKeyCache merchantKeyCache,
+                                     @Value("${payment.callback.signature.enabled:false}") boolean enabled) {
+        this.merchantKeyCache = merchantKeyCache;
+        this.enabled = enabled;
+    }
+
+    public boolean accepts(String merchantId, PaymentCallbackRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        return merchantKeyCache.find(merchantId)
+                .map(key -> verify(key, request))
+                .orElse(false);
+    }
+
+    public static boolean verify(SecretKey key, PaymentCallbackRequest request) {
+        String signature = request.signature();
+        if (signature == null || signature.length() != SIGNATURE_BYTES * 2) {
+            return false;
+        }
+
+        Scratch scratch = acquire();
+        try {
+            if (!decodeHex(signature, scratch.provided)) {
+                return false;
+            }
+            scratch.sign(key, request);
+            return MessageDigest.isEqual(scratch.expected, scratch.provided);
+        } finally {
+            POOL.offer(scratch);
+        }
+    }
+
+    public static String sign(SecretKey key, PaymentCallbackRequest request) {
+        Scratch scratch = acquire();
+        try {
+            scratch.sign(key, request);
+            return HexFormat.of().formatHex(scratch.expected);
+        } finally {
+            POOL.offer(scratch);
+        }
+    }
+
+    // a full pool drops the returned scratch, so a burst above the pool size costs allocations, not memory
+    private static Scratch acquire() {
+        Scratch scratch = POOL.poll();
+        return scratch != null ? scratch : new Scratch();
+    }
+
+    private static boolean decodeHex(String hex, byte[] target) {
+        for (int i = 0; i < target.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            target[i] = (byte) ((high << 4) | low);
+        }
+        return true;
+    }
+
+    private static final class Scratch {
+
+        private final Mac mac;
+        private final byte[] expected = new byte[SIGNATURE_BYTES];
+        private final byte[] provided = new byte[SIGNATURE_BYTES];
+        private byte[] text = new byte[64];
+        private SecretKey currentKey;
+
+        private Scratch() {
+            try {
+                mac = Mac.getInstance(MerchantKeyCache.ALGORITHM);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("HMAC algorithm unavailable", ex);
+            }
+        }
+
+        // canonical payload: paymentId|STATUS|amount with trailing zeros stripped, e.g. "abc|SUCCESS|150000"
+        private void sign(SecretKey key, PaymentCallbackRequest request) {
+            try {
+                if (key != currentKey) {
+                    mac.init(key);
+                    currentKey = key;
+                }
+                update(request.paymentId());
+                mac.update(SEPARATOR);
+                update(request.status().name());
+                mac.update(SEPARATOR);
+                update(request.amount().stripTrailingZeros().toPlainString());
+                mac.doFinal(expected, 0);
+            } catch (GeneralSecurityException ex) {
+                currentKey = null;
+                throw new IllegalStateException("Unable to compute callback signature", ex);
+            }
+        }
+
+        private void update(String value) {
+            int length = value.length();
+            if (text.length < length) {
+                text = new byte[Math.max(length, text.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    mac.update(value.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                text[i] = (byte) c;
+            }
+            mac.update(text, 0, length);
+        }
+    }
+}
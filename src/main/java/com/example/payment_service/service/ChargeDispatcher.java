@@ -0,0 +1,168 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentCreatedEvent;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PendingCharge;
+import com.example.payment_service.exception.PaymentGatewayException;
+import com.example.payment_service.repository.PaymentRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.HttpClientErrorException;
+
+@Component
+@ConditionalOnProperty(name = "payment.charge.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class ChargeDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ChargeDispatcher.class);
+
+    private final PendingChargeService pendingChargeService;
+    private final PaymentRepository paymentRepository;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final PaymentLocks paymentLocks;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    public ChargeDispatcher(PendingChargeService pendingChargeService,
+                            PaymentRepository paymentRepository,
+                            PaymentGatewayClient paymentGatewayClient,
+                            PaymentLocks paymentLocks,
+                            @Value("${payment.charge.dispatcher.workers:16}") int workers,
+                            @Value("${payment.charge.dispatcher.batch-size:64}") int batchSize,
+                            @Value("${payment.charge.dispatcher.max-attempts:5}") int maxAttempts,
+                            @Value("${payment.charge.dispatcher.lease:2m}") Duration lease,
+                            @Value("${payment.charge.dispatcher.initial-backoff:5s}") Duration initialBackoff,
+                            @Value("${payment.charge.dispatcher.max-backoff:5m}") Duration maxBackoff) {
+        this.pendingChargeService = pendingChargeService;
+        this.paymentRepository = paymentRepository;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.paymentLocks = paymentLocks;
+        this.workers = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("charge-worker-"));
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.charge.dispatcher.poll-interval:5s}")
+    public void poll() {
+        drain();
+    }
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentCreated(PaymentCreatedEvent event) {
+        drain();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    void drain() {
+        drainRequested.set(true);
+        while (drainRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                drainRequested.set(false);
+                List<PendingCharge> claimed;
+                do {
+                    claimed = pendingChargeService.claimDue(batchSize, lease);
+                    submit(claimed);
+                } while (claimed.size() == batchSize);
+            } catch (RuntimeException ex) {
+                log.error("Charge dispatch run failed", ex);
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void submit(List<PendingCharge> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        Map<String, Payment> payments = paymentRepository.findAllById(
+                        claimed.stream().map(PendingCharge::getPaymentId).toList()).stream()
+                .collect(Collectors.toMap(Payment::getPaymentId, Function.identity()));
+        CompletableFuture.allOf(claimed.stream()
+                        .map(charge -> CompletableFuture.runAsync(
+                                () -> charge(charge, payments.get(charge.getPaymentId())), workers))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    private void charge(PendingCharge charge, Payment payment) {
+        if (payment == null || payment.getStatus() != PaymentStatus.INITIATED) {
+            log.info("Skipping charge for payment {}, it is no longer awaiting a charge", charge.getPaymentId());
+            pendingChargeService.markSubmitted(charge.getPaymentId());
+            return;
+        }
+
+        try {
+            paymentGatewayClient.initiateCharge(payment);
+            pendingChargeService.markSubmitted(charge.getPaymentId());
+        } catch (PaymentGatewayException ex) {
+            handleFailure(charge, ex);
+        } catch (RuntimeException ex) {
+            log.error("Unexpected error charging payment {}", charge.getPaymentId(), ex);
+            handleFailure(charge, ex);
+        }
+    }
+
+    private void handleFailure(PendingCharge charge, RuntimeException ex) {
+        if (ex.getCause() instanceof HttpClientErrorException rejected) {
+            giveUp(charge, PaymentStatus.FAILED, rejected.getMessage());
+            return;
+        }
+        if (charge.getAttempts() >= maxAttempts) {
+            giveUp(charge, PaymentStatus.UNKNOWN, ex.getMessage());
+            return;
+        }
+
+        OffsetDateTime retryAt = OffsetDateTime.now().plus(backoff(charge.getAttempts()));
+        log.warn("Charge for payment {} failed on attempt {}, retrying at {}: {}",
+                charge.getPaymentId(), charge.getAttempts(), retryAt, ex.getMessage());
+        pendingChargeService.markRetry(charge.getPaymentId(), retryAt, ex.getMessage());
+    }
+
+    private void giveUp(PendingCharge charge, PaymentStatus status, String error) {
+        paymentLocks.runWithLock(charge.getPaymentId(),
+                () -> pendingChargeService.giveUp(charge.getPaymentId(), status, error));
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.service.PaymentGatewayClient.PaymentInitiationRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+// coalesces concurrent charges into one gateway request; each caller still gets its own item's result
+class GatewayChargeBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(GatewayChargeBatcher.class);
+
+    private final BlockingQueue<QueuedCharge> queue = new LinkedBlockingQueue<>();
+    private final Function<List<PaymentInitiationRequest>, Map<String, RuntimeException>> sender;
+    private final int maxSize;
+    private final long windowNanos;
+    private final Thread collector;
+    private final ExecutorService senders;
+
+    private volatile boolean running = true;
+
+    // sender returns the failure per paymentId, accepted items are absent; a thrown exception fails the whole batch
+    GatewayChargeBatcher(Function<List<PaymentInitiationRequest>, Map<String, RuntimeException>> sender,
+                         int maxSize, Duration window, int maxInFlight, int maxQueued) {
+        this.sender = sender;
+        this.maxSize = maxSize;
+        this.windowNanos = window.toNanos();
+        // bounded, so a slow gateway sheds batches instead of queueing them without limit
+        this.senders = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), new CustomizableThreadFactory("gateway-batch-"));
+        this.collector = new CustomizableThreadFactory("gateway-batcher-").newThread(this::collect);
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    CompletableFuture<Void> submit(PaymentInitiationRequest request) {
+        QueuedCharge charge = new QueuedCharge(request, new CompletableFuture<>());
+        queue.add(charge);
+        // a charge queued after shutdown drained the queue would otherwise never complete
+        if (!running && queue.remove(charge)) {
+            charge.result().completeExceptionally(new IllegalStateException("Gateway batcher is shut down"));
+        }
+        return charge.result();
+    }
+
+    void shutdown() throws InterruptedException {
+        running = false;
+        collector.interrupt();
+        collector.join(TimeUnit.SECONDS.toMillis(5));
+        List<QueuedCharge> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            send(leftover);
+        }
+        senders.shutdown();
+        senders.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    // the window starts with the first charge, so a lone charge waits at most one window
+    private void collect() {
+        while (running) {
+            List<QueuedCharge> batch = new ArrayList<>(maxSize);
+            boolean interrupted = false;
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    QueuedCharge next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                interrupted = true;
+            }
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+            }
+            if (interrupted) {
+                return;
+            }
+        }
+    }
+
+    private void dispatch(List<QueuedCharge> batch) {
+        try {
+            senders.execute(() -> send(batch));
+        } catch (RejectedExecutionException ex) {
+            log.warn("Gateway batch backlog is full, rejecting {} charges", batch.size());
+            batch.forEach(charge -> charge.result().completeExceptionally(ex));
+        }
+    }
+
+    private void send(List<QueuedCharge> batch) {
+        Map<String, RuntimeException> failures;
+        try {
+            failures = sender.apply(batch.stream().map(QueuedCharge::request).toList());
+        } catch (RuntimeException ex) {
+            log.warn("Gateway batch of {} charges failed: {}", batch.size(), ex.getMessage());
+            batch.forEach(charge -> charge.result().completeExceptionally(ex));
+            return;
+        }
+        for (QueuedCharge charge : batch) {
+            RuntimeException failure = failures.get(charge.request().paymentId());
+            if (failure == null) {
+                charge.result().complete(null);
+            } else {
+                charge.result().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private record QueuedCharge(PaymentInitiationRequest request, CompletableFuture<Void> result) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LoggingNotificationChannel implements NotificationChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingNotificationChannel.class);
+
+    @Override
+    public String name() {
+        return "EMAIL";
+    }
+
+    @Override
+    public void send(Notification notification) {
+        log.info("Delivering {} notification {} for payment {} to customer {}: {}", name(), notification.getId(),
+                notification.getPaymentId(), notification.getCustomerId(), notification.getMessage());
+    }
+}
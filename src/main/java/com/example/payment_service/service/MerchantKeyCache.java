@@ -0,0 +1,54 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.MerchantKey;
+import com.example.payment_service.repository.MerchantKeyRepository;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MerchantKeyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantKeyCache.class);
+
+    static final String ALGORITHM = "HmacSHA256";
+
+    private final MerchantKeyRepository merchantKeyRepository;
+    private final AsyncLoadingCache<String, Optional<SecretKey>> keys;
+
+    public MerchantKeyCache(MerchantKeyRepository merchantKeyRepository,
+                            @Value("${payment.callback.signature.key-refresh:5m}") Duration refresh,
+                            @Value("${payment.callback.signature.key-cache-size:100000}") long maxSize) {
+        this.merchantKeyRepository = merchantKeyRepository;
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refresh)
+                .buildAsync(merchantId -> merchantKeyRepository.findById(merchantId).map(MerchantKeyCache::toKey));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        var loaded = merchantKeyRepository.findAll();
+        loaded.forEach(key -> keys.put(key.getMerchantId(), CompletableFuture.completedFuture(Optional.of(toKey(key)))));
+        log.info("Preloaded {} merchant callback keys", loaded.size());
+    }
+
+    public Optional<SecretKey> find(String merchantId) {
+        return keys.synchronous().get(merchantId);
+    }
+
+    private static SecretKey toKey(MerchantKey key) {
+        return new SecretKeySpec(key.getSecret().getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentCreatedEvent;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import com.example.payment_service.dto.MerchantStatsResponse;
+import com.example.payment_service.exception.ResourceNotFoundException;
+import com.example.payment_service.repository.MerchantActivity;
+import com.example.payment_service.repository.MerchantStatusTotal;
+import com.example.payment_service.repository.PaymentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// per-merchant counts and amounts by status, kept up to date from committed payment events so the stats endpoint
+// never queries payments
+@Component
+public class MerchantStats implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantStats.class);
+
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+    // payments.amount is numeric(38,2); sums are held in hundredths so a LongAdder can carry them
+    private static final int AMOUNT_SCALE = 2;
+    private static final Duration LONGEST_WINDOW = Duration.ofHours(1);
+    private static final Map<String, Duration> WINDOWS = windows();
+    // a window reads its last twelve slots, so it covers between 11/12 and all of its length
+    private static final int WINDOW_SLOTS = 12;
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentArchive paymentArchive;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // read once per event, so an event sees the live map and the one being rebuilt as a pair
+    private volatile Targets targets = new Targets(new ConcurrentHashMap<>(), null);
+    private volatile OffsetDateTime rebuiltAt;
+
+    public MerchantStats(PaymentRepository paymentRepository,
+                         PaymentArchive paymentArchive,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry) {
+        this.paymentRepository = paymentRepository;
+        this.paymentArchive = paymentArchive;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        Gauge.builder("payment.merchant.stats.merchants", this, stats -> stats.targets.live().size())
+                .description("Merchants with in-memory payment aggregates")
+                .register(meterRegistry);
+    }
+
+    // runs before the web server and the schedulers start, so nothing can commit between the snapshot and the first
+    // live update
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // transitions committed on other instances only reach this one through a resync; a local one that commits just
+    // before the snapshot query but is applied after it starts is counted twice until the next
+    @Scheduled(fixedDelayString = "${payment.merchant-stats.resync-interval:15m}",
+            initialDelayString = "${payment.merchant-stats.resync-interval:15m}")
+    public void resync() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        OffsetDateTime snapshotAt = OffsetDateTime.now();
+        long now = millis(snapshotAt);
+        OffsetDateTime since = snapshotAt.minus(LONGEST_WINDOW);
+        ConcurrentMap<String, Aggregate> rebuilt = new ConcurrentHashMap<>();
+        // archived payments left the table but still count
+        for (MerchantStatusTotal total : paymentArchive.totals()) {
+            rebuilt.computeIfAbsent(total.merchantId(), id -> new Aggregate())
+                    .add(total.status(), total.currency(), total.count(), hundredths(total.amount()));
+        }
+        readOnlyTransaction.executeWithoutResult(status -> {
+            // from here on live events land in the rebuilt map too, so none committing after the snapshot is lost
+            targets = new Targets(targets.live(), rebuilt);
+            for (MerchantStatusTotal total : paymentRepository.sumByMerchantStatusAndCurrency()) {
+                rebuilt.computeIfAbsent(total.merchantId(), id -> new Aggregate())
+                        .add(total.status(), total.currency(), total.count(), hundredths(total.amount()));
+            }
+            // the last status is all the table keeps, so a payment's window entry for it is taken at updatedAt
+            try (Stream<MerchantActivity> activity = paymentRepository.streamActivitySince(since)) {
+                activity.forEach(payment -> {
+                    Aggregate aggregate = rebuilt.computeIfAbsent(payment.merchantId(), id -> new Aggregate());
+                    if (!payment.createdAt().isBefore(since)) {
+                        aggregate.entered(PaymentStatus.INITIATED, millis(payment.createdAt()), now);
+                    }
+                    if (payment.status() != PaymentStatus.INITIATED) {
+                        aggregate.entered(payment.status(), millis(payment.updatedAt()), now);
+                    }
+                });
+            }
+        });
+        targets = new Targets(rebuilt, null);
+        rebuiltAt = snapshotAt;
+        log.info("Rebuilt payment aggregates for {} merchants in {} ms", rebuilt.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentCreated(PaymentCreatedEvent event) {
+        long amount = hundredths(event.amount());
+        long now = System.currentTimeMillis();
+        long at = event.createdAt() != null ? millis(event.createdAt()) : now;
+        targets.forEach(event.merchantId(), aggregate -> {
+            aggregate.add(PaymentStatus.INITIATED, event.currency(), 1, amount);
+            aggregate.entered(PaymentStatus.INITIATED, at, now);
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        long amount = hundredths(event.amount());
+        long at = millis(event.occurredAt());
+        long now = System.currentTimeMillis();
+        targets.forEach(event.merchantId(), aggregate -> {
+            aggregate.add(event.previousStatus(), event.currency(), -1, -amount);
+            aggregate.add(event.status(), event.currency(), 1, amount);
+            aggregate.entered(event.status(), at, now);
+        });
+    }
+
+    public MerchantStatsResponse find(String merchantId) {
+        Aggregate aggregate = targets.live().get(merchantId);
+        if (aggregate == null) {
+            throw new ResourceNotFoundException("No payments for merchant %s".formatted(merchantId));
+        }
+        return aggregate.toResponse(merchantId, rebuiltAt, System.currentTimeMillis());
+    }
+
+    private static long hundredths(BigDecimal amount) {
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static long millis(OffsetDateTime time) {
+        return time.toInstant().toEpochMilli();
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[STATUSES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static Map<String, Duration> windows() {
+        Map<String, Duration> windows = new LinkedHashMap<>();
+        windows.put("1m", Duration.ofMinutes(1));
+        windows.put("5m", Duration.ofMinutes(5));
+        windows.put("1h", LONGEST_WINDOW);
+        return windows;
+    }
+
+    // the map reads are served from and, while a rebuild runs, the map that replaces it
+    private record Targets(ConcurrentMap<String, Aggregate> live, ConcurrentMap<String, Aggregate> rebuilding) {
+
+        void forEach(String merchantId, Consumer<Aggregate> update) {
+            update.accept(live.computeIfAbsent(merchantId, id -> new Aggregate()));
+            if (rebuilding != null) {
+                update.accept(rebuilding.computeIfAbsent(merchantId, id -> new Aggregate()));
+            }
+        }
+    }
+
+    private static final class Aggregate {
+
+        private final LongAdder[] counts = adders();
+        private final ConcurrentMap<String, LongAdder[]> amounts = new ConcurrentHashMap<>(2);
+        private final Window[] windows = WINDOWS.values().stream().map(Window::new).toArray(Window[]::new);
+
+        void add(PaymentStatus status, String currency, long count, long amount) {
+            counts[status.ordinal()].add(count);
+            amounts.computeIfAbsent(currency, c -> adders())[status.ordinal()].add(amount);
+        }
+
+        void entered(PaymentStatus status, long at, long now) {
+            for (Window window : windows) {
+                window.record(status, at, now);
+            }
+        }
+
+        MerchantStatsResponse toResponse(String merchantId, OffsetDateTime rebuiltAt, long now) {
+            Map<PaymentStatus, Long> currentCounts = new EnumMap<>(PaymentStatus.class);
+            for (PaymentStatus status : STATUSES) {
+                currentCounts.put(status, counts[status.ordinal()].sum());
+            }
+            Map<String, Map<PaymentStatus, BigDecimal>> currentAmounts = new TreeMap<>();
+            amounts.forEach((currency, sums) -> {
+                Map<PaymentStatus, BigDecimal> byStatus = new EnumMap<>(PaymentStatus.class);
+                for (PaymentStatus status : STATUSES) {
+                    byStatus.put(status, BigDecimal.valueOf(sums[status.ordinal()].sum(), AMOUNT_SCALE));
+                }
+                currentAmounts.put(currency, byStatus);
+            });
+            Map<String, Map<PaymentStatus, Long>> windowCounts = new LinkedHashMap<>();
+            int i = 0;
+            for (String name : WINDOWS.keySet()) {
+                long[] sums = windows[i++].sum(now);
+                Map<PaymentStatus, Long> byStatus = new EnumMap<>(PaymentStatus.class);
+                for (PaymentStatus status : STATUSES) {
+                    byStatus.put(status, sums[status.ordinal()]);
+                }
+                windowCounts.put(name, byStatus);
+            }
+            return new MerchantStatsResponse(merchantId, currentCounts, currentAmounts, windowCounts, rebuiltAt);
+        }
+    }
+
+    // a ring of slots, each owning the counts of one slot-length period; a slot is cleared when the ring comes back
+    // round to it
+    private static final class Window {
+
+        private final long slotMillis;
+        private final Slot[] slots = new Slot[WINDOW_SLOTS];
+
+        Window(Duration length) {
+            this.slotMillis = length.toMillis() / WINDOW_SLOTS;
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = new Slot();
+            }
+        }
+
+        void record(PaymentStatus status, long at, long now) {
+            long index = at / slotMillis;
+            if (index <= now / slotMillis - slots.length) {
+                return;
+            }
+            Slot slot = slots[(int) (index % slots.length)];
+            if (slot.index < index) {
+                synchronized (slot) {
+                    if (slot.index < index) {
+                        for (LongAdder count : slot.counts) {
+                            count.reset();
+                        }
+                        slot.index = index;
+                    }
+                }
+            }
+            if (slot.index == index) {
+                slot.counts[status.ordinal()].increment();
+            }
+        }
+
+        long[] sum(long now) {
+            long current = now / slotMillis;
+            long[] sums = new long[STATUSES.length];
+            for (Slot slot : slots) {
+                long index = slot.index;
+                if (index > current - slots.length && index <= current) {
+                    for (int i = 0; i < sums.length; i++) {
+                        sums[i] += slot.counts[i].sum();
+                    }
+                }
+            }
+            return sums;
+        }
+    }
+
+    private static final class Slot {
+
+        private volatile long index = Long.MIN_VALUE;
+        private final LongAdder[] counts = adders();
+    }
+}
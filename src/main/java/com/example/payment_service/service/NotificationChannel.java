@@ -0,0 +1,10 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.Notification;
+
+public interface NotificationChannel {
+
+    String name();
+
+    void send(Notification notification);
+}
@@ -0,0 +1,133 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.Notification;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@ConditionalOnProperty(name = "payment.notification.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final NotificationService notificationService;
+    private final Map<String, NotificationChannel> channels;
+    private final PaymentMetrics paymentMetrics;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    public NotificationDispatcher(NotificationService notificationService,
+                                  List<NotificationChannel> channels,
+                                  PaymentMetrics paymentMetrics,
+                                  @Value("${payment.notification.dispatcher.batch-size:100}") int batchSize,
+                                  @Value("${payment.notification.dispatcher.max-attempts:8}") int maxAttempts,
+                                  @Value("${payment.notification.dispatcher.lease:1m}") Duration lease,
+                                  @Value("${payment.notification.dispatcher.initial-backoff:2s}") Duration initialBackoff,
+                                  @Value("${payment.notification.dispatcher.max-backoff:10m}") Duration maxBackoff) {
+        this.notificationService = notificationService;
+        this.channels = channels.stream().collect(Collectors.toMap(NotificationChannel::name, Function.identity()));
+        this.paymentMetrics = paymentMetrics;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.notification.dispatcher.poll-interval:5s}")
+    public void poll() {
+        drain();
+    }
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        if (event.status() == PaymentStatus.SUCCESS) {
+            drain();
+        }
+    }
+
+    void drain() {
+        drainRequested.set(true);
+        while (drainRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                drainRequested.set(false);
+                List<Notification> claimed;
+                do {
+                    claimed = notificationService.claimDue(batchSize, lease);
+                    deliver(claimed);
+                } while (claimed.size() == batchSize);
+            } catch (RuntimeException ex) {
+                log.error("Notification dispatch run failed", ex);
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void deliver(List<Notification> claimed) {
+        List<Notification> sent = new ArrayList<>(claimed.size());
+        for (Notification notification : claimed) {
+            NotificationChannel channel = channels.get(notification.getChannel());
+            if (channel == null) {
+                log.error("No channel {} registered for notification {}", notification.getChannel(), notification.getId());
+                notificationService.markFailed(notification, "Unknown channel " + notification.getChannel());
+                continue;
+            }
+
+            Timer.Sample sample = paymentMetrics.start();
+            try {
+                channel.send(notification);
+                paymentMetrics.recordNotificationDelivery(sample, channel.name(), "sent");
+                sent.add(notification);
+            } catch (RuntimeException ex) {
+                paymentMetrics.recordNotificationDelivery(sample, channel.name(), "failed");
+                handleFailure(notification, ex);
+            }
+        }
+        notificationService.markSent(sent);
+    }
+
+    private void handleFailure(Notification notification, RuntimeException ex) {
+        if (notification.getAttempts() >= maxAttempts) {
+            log.error("Notification {} for payment {} failed permanently after {} attempts",
+                    notification.getId(), notification.getPaymentId(), notification.getAttempts(), ex);
+            notificationService.markFailed(notification, ex.getMessage());
+            return;
+        }
+
+        OffsetDateTime retryAt = OffsetDateTime.now().plus(backoff(notification.getAttempts()));
+        log.warn("Notification {} for payment {} failed on attempt {}, retrying at {}",
+                notification.getId(), notification.getPaymentId(), notification.getAttempts(), retryAt, ex);
+        notificationService.markRetry(notification, retryAt, ex.getMessage());
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
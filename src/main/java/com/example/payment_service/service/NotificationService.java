@@ -2,35 +2,155 @@ package com.example.payment_service.service;
 
 import com.example.payment_service.domain.Notification;
 import com.example.payment_service.domain.NotificationStatus;
+import com.example.payment_service.domain.NotificationType;
 import com.example.payment_service.domain.Payment;
 import com.example.payment_service.repository.NotificationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class NotificationService {
 
     private static final Logger log = LoggerFactory.getLogger(NotificationService.class);
 
+    private static final String CHANNEL = "EMAIL";
+
     private final NotificationRepository notificationRepository;
+    private final PaymentMetrics paymentMetrics;
+    // notifications known to be committed, so a hit can skip the insert entirely; a row is only deleted once the
+    // archiver moves its SUCCESS payment out of the table, and no callback reaches an archived payment
+    private final Cache<NotificationKey, Boolean> recentlyNotified;
 
-    public NotificationService(NotificationRepository notificationRepository) {
+    public NotificationService(NotificationRepository notificationRepository, PaymentMetrics paymentMetrics,
+                               @Value("${payment.notification.recent-filter.max-size:100000}") long recentFilterSize) {
         this.notificationRepository = notificationRepository;
+        this.paymentMetrics = paymentMetrics;
+        this.recentlyNotified = Caffeine.newBuilder()
+                .maximumSize(recentFilterSize)
+                .build();
     }
 
     @Transactional
     public void notifyPaymentSuccess(Payment payment) {
-        if (notificationRepository.existsByPaymentIdAndStatus(payment.getPaymentId(), NotificationStatus.SENT)) {
-            log.info("Notification already sent for payment {}", payment.getPaymentId());
+        if (queueSuccessNotifications(List.of(payment), "single") > 0) {
+            log.info("Notification queued for payment {}", payment.getPaymentId());
+        } else {
+            log.info("Notification already queued or sent for payment {}", payment.getPaymentId());
+        }
+    }
+
+    @Transactional
+    public void notifyPaymentsSuccess(Collection<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+
+        int queued = queueSuccessNotifications(payments, "batch");
+        log.info("{} notifications queued for batch of {} successful payments", queued, payments.size());
+    }
+
+    @Transactional
+    public List<Notification> claimDue(int limit, Duration lease) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Notification> due = notificationRepository.findDueForUpdate(NotificationStatus.PENDING, now, Limit.of(limit));
+        due.forEach(notification -> notification.claim(now.plus(lease)));
+        return due;
+    }
+
+    // outcomes only land while the dispatcher still holds its claim: a row whose lease ran out belongs to whoever
+    // claimed it next, and may already be SENT
+    @Transactional
+    public void markSent(Collection<Notification> claimed) {
+        Map<Integer, List<UUID>> idsByAttempt = claimed.stream().collect(Collectors.groupingBy(Notification::getAttempts,
+                Collectors.mapping(Notification::getId, Collectors.toList())));
+        int marked = 0;
+        for (Map.Entry<Integer, List<UUID>> ids : idsByAttempt.entrySet()) {
+            marked += notificationRepository.markSent(ids.getValue(), ids.getKey());
+        }
+        if (marked < claimed.size()) {
+            log.warn("{} of {} sent notifications were claimed again after their lease ran out",
+                    claimed.size() - marked, claimed.size());
+        }
+    }
+
+    @Transactional
+    public void markRetry(Notification claimed, OffsetDateTime retryAt, String error) {
+        findClaimed(claimed).ifPresent(notification -> notification.scheduleRetry(retryAt, error));
+    }
+
+    @Transactional
+    public void markFailed(Notification claimed, String error) {
+        findClaimed(claimed).ifPresent(notification -> notification.markFailed(error));
+    }
+
+    private Optional<Notification> findClaimed(Notification claimed) {
+        Optional<Notification> notification =
+                notificationRepository.findClaimedForUpdate(claimed.getId(), claimed.getAttempts());
+        if (notification.isEmpty()) {
+            log.warn("Notification {} was claimed again after its lease ran out, leaving it as it is", claimed.getId());
+        }
+        return notification;
+    }
+
+    // the unique (paymentId, channel, type) key decides, so two nodes racing on the same payment write one row
+    private int queueSuccessNotifications(Collection<Payment> payments, String mode) {
+        Timer.Sample sample = paymentMetrics.start();
+        List<Notification> candidates = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            if (recentlyNotified.getIfPresent(new NotificationKey(payment.getPaymentId(), CHANNEL,
+                    NotificationType.PAYMENT_SUCCESS)) == null) {
+                candidates.add(newSuccessNotification(payment));
+            }
+        }
+
+        int inserted = candidates.isEmpty() ? 0 : notificationRepository.insertIfAbsent(candidates);
+        rememberAfterCommit(candidates);
+        paymentMetrics.recordNotificationDedup("filtered", payments.size() - candidates.size());
+        paymentMetrics.recordNotificationDedup("existing", candidates.size() - inserted);
+        paymentMetrics.recordNotificationDedup("inserted", inserted);
+        paymentMetrics.recordNotificationWrite(sample, mode);
+        return inserted;
+    }
+
+    // only after commit: remembering a row that is then rolled back would suppress the notification on the retry
+    private void rememberAfterCommit(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
             return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Notification notification : notifications) {
+                    recentlyNotified.put(new NotificationKey(notification.getPaymentId(), notification.getChannel(),
+                            notification.getType()), Boolean.TRUE);
+                }
+            }
+        });
+    }
 
-        Notification notification = new Notification(payment.getPaymentId(), payment.getCustomerId(), "EMAIL",
+    private Notification newSuccessNotification(Payment payment) {
+        return new Notification(payment.getPaymentId(), payment.getCustomerId(), CHANNEL, NotificationType.PAYMENT_SUCCESS,
                 "Pembayaran untuk payment %s berhasil".formatted(payment.getPaymentId()), NotificationStatus.PENDING);
-        notification.markSent();
-        notificationRepository.save(notification);
-        log.info("Notification {} created for payment {} with status {}", notification.getId(), payment.getPaymentId(), notification.getStatus());
+    }
+
+    private record NotificationKey(String paymentId, String channel, NotificationType type) {
     }
 }
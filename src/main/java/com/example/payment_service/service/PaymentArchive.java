@@ -0,0 +1,220 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.ArchivedPayment;
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.repository.ArchiveSegmentRepository;
+import com.example.payment_service.repository.MerchantStatusTotal;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// read side of the cold store: the sparse index and Bloom filter of every cataloged segment are held in memory, so a
+// lookup costs a filter check per segment plus one block read
+@Component
+public class PaymentArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentArchive.class);
+
+    // far longer than an archive chunk transaction runs between writing its file and committing its catalog row
+    private static final Duration CATALOG_OVERLAP = Duration.ofHours(1);
+
+    private final ArchiveSegmentRepository archiveSegmentRepository;
+    private final PaymentMetrics paymentMetrics;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final Path dir;
+    private final Duration refreshInterval;
+    // newest first; replaced as a whole so readers never see a half-built list
+    private volatile List<ArchiveSegmentFile> segments = List.of();
+    private final Set<String> unavailable = new HashSet<>();
+    private volatile long lastRefresh;
+
+    public PaymentArchive(ArchiveSegmentRepository archiveSegmentRepository,
+                          PaymentMetrics paymentMetrics,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          @Value("${payment.archive.dir:archive}") Path dir,
+                          @Value("${payment.archive.refresh-interval:1s}") Duration refreshInterval) {
+        this.archiveSegmentRepository = archiveSegmentRepository;
+        this.paymentMetrics = paymentMetrics;
+        // keep the offsets the timestamps were archived with instead of shifting them to UTC
+        this.reader = objectMapper.readerFor(ArchivedPayment.class)
+                .without(DeserializationFeature.ADJUST_DATES_TO_CONTEXT_TIME_ZONE);
+        this.writer = objectMapper.writerFor(ArchivedPayment.class);
+        this.dir = dir;
+        this.refreshInterval = refreshInterval;
+        Gauge.builder("payment.archive.segments", this, archive -> archive.segments.size())
+                .description("Archive segment files available for lookups")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        refresh(true);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Set<String> cataloged = new HashSet<>();
+        segments.forEach(segment -> cataloged.add(segment.name()));
+        try (Stream<Path> files = Files.list(dir)) {
+            long orphans = files.map(file -> file.getFileName().toString())
+                    .filter(file -> file.endsWith(ArchiveSegmentFile.SUFFIX))
+                    .filter(file -> !cataloged.contains(file.substring(0, file.length() - ArchiveSegmentFile.SUFFIX.length())))
+                    .count();
+            if (orphans > 0) {
+                log.info("Ignoring {} archive segment files without a catalog row (runs that did not commit)", orphans);
+            }
+        }
+        log.info("Loaded {} archive segments holding {} payments from {}", segments.size(),
+                segments.stream().mapToLong(ArchiveSegmentFile::payments).sum(), dir.toAbsolutePath());
+    }
+
+    public Optional<ArchivedPayment> find(String paymentId) {
+        if (!PaymentIds.isValid(paymentId)) {
+            return Optional.empty();
+        }
+        Timer.Sample sample = paymentMetrics.start();
+        String id = PaymentIds.canonical(paymentId);
+        // segments another node archived since the last refresh are only in the catalog yet
+        Optional<ArchivedPayment> found = lookup(id);
+        if (found.isEmpty() && refresh(false)) {
+            found = lookup(id);
+        }
+        paymentMetrics.recordArchiveLookup(sample, found.isPresent() ? "hit" : "miss");
+        return found;
+    }
+
+    // from the catalog as it is now, so a rebuild counts every segment another node committed
+    public List<MerchantStatusTotal> totals() {
+        refresh(true);
+        return segments.stream().flatMap(segment -> segment.totals().stream()).toList();
+    }
+
+    ArchiveSegmentFile write(List<ArchivedPayment> payments, int blockSize) {
+        String name = PaymentIds.next();
+        try {
+            Files.createDirectories(dir);
+            return ArchiveSegmentFile.write(segmentPath(name), name, payments, blockSize, writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write archive segment " + name, ex);
+        }
+    }
+
+    // only once the catalog row has committed, so totals never count the segment and the payments it still holds in
+    // the hot table at once. A lookup in between finds the segment through the catalog refresh; one that already has
+    // it leaves nothing to publish
+    synchronized void publish(ArchiveSegmentFile segment) {
+        if (segments.stream().anyMatch(published -> published.name().equals(segment.name()))) {
+            return;
+        }
+        List<ArchiveSegmentFile> updated = new ArrayList<>(segments.size() + 1);
+        updated.add(segment);
+        updated.addAll(segments);
+        segments = updated;
+    }
+
+    void discard(ArchiveSegmentFile segment) {
+        try {
+            Files.deleteIfExists(segment.path());
+        } catch (IOException ex) {
+            log.warn("Could not delete uncommitted archive segment {}: {}", segment.path(), ex.getMessage());
+        }
+    }
+
+    private Optional<ArchivedPayment> lookup(String paymentId) {
+        long hash = ArchiveSegmentFile.hash(paymentId);
+        for (ArchiveSegmentFile segment : segments) {
+            try {
+                byte[] json = segment.find(paymentId, hash);
+                if (json != null) {
+                    return Optional.of(reader.readValue(json));
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not read archive segment " + segment.path(), ex);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // true when segments were added since the caller last looked, by this refresh or one it waited for
+    private boolean refresh(boolean force) {
+        if (!force && System.nanoTime() - lastRefresh < refreshInterval.toNanos()) {
+            return false;
+        }
+        List<ArchiveSegmentFile> seen = segments;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (force || now - lastRefresh >= refreshInterval.toNanos()) {
+                lastRefresh = now;
+                load(newNames());
+            }
+        }
+        return segments != seen;
+    }
+
+    // segment names are UUIDv7 taken when the file is written, so a run on another node can commit a name older than
+    // the newest one here; catalog rows named within CATALOG_OVERLAP of it are read again
+    private List<String> newNames() {
+        if (segments.isEmpty()) {
+            return archiveSegmentRepository.findAllNames();
+        }
+        String newest = segments.get(0).name();
+        long millis = Long.parseLong(newest.substring(0, 8) + newest.substring(9, 13), 16)
+                - CATALOG_OVERLAP.toMillis();
+        return archiveSegmentRepository.findNamesAfter("%08x-%04x".formatted(millis >>> 16, millis & 0xFFFF));
+    }
+
+    private void load(List<String> names) {
+        Set<String> known = new HashSet<>(unavailable);
+        segments.forEach(segment -> known.add(segment.name()));
+        List<ArchiveSegmentFile> added = new ArrayList<>();
+        for (String name : names) {
+            if (known.contains(name)) {
+                continue;
+            }
+            try {
+                added.add(ArchiveSegmentFile.open(segmentPath(name), name));
+            } catch (NoSuchFileException ex) {
+                // payment.archive.dir has to be shared by every node that archives or serves lookups
+                unavailable.add(name);
+                log.warn("Archive segment {} is cataloged but missing from {}", name, dir.toAbsolutePath());
+            } catch (IOException ex) {
+                unavailable.add(name);
+                log.error("Could not open archive segment {}", name, ex);
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        List<ArchiveSegmentFile> updated = new ArrayList<>(added);
+        updated.addAll(segments);
+        // segment names are UUIDv7, so name order is archive order
+        updated.sort((a, b) -> b.name().compareTo(a.name()));
+        segments = updated;
+    }
+
+    private Path segmentPath(String name) {
+        return dir.resolve(name + ArchiveSegmentFile.SUFFIX);
+    }
+}
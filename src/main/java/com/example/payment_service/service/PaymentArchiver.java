@@ -0,0 +1,139 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.ArchiveSegment;
+import com.example.payment_service.domain.ArchivedPayment;
+import com.example.payment_service.domain.Notification;
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.repository.ArchiveSegmentRepository;
+import com.example.payment_service.repository.NotificationRepository;
+import com.example.payment_service.repository.PaymentRepository;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// moves SUCCESS payments that have not changed for payment.archive.after, with their notifications, out of the hot
+// tables into archive segments; every update to a SUCCESS payment is ignored, so the move never races a writer.
+// FAILED payments stay: a late SUCCESS callback still settles them
+@Component
+@ConditionalOnProperty(name = "payment.archive.enabled", havingValue = "true")
+public class PaymentArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentArchiver.class);
+
+    private final PaymentRepository paymentRepository;
+    private final NotificationRepository notificationRepository;
+    private final ArchiveSegmentRepository archiveSegmentRepository;
+    private final PaymentArchive paymentArchive;
+    private final PaymentMetrics paymentMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration after;
+    private final int batchSize;
+    private final int blockSize;
+
+    public PaymentArchiver(PaymentRepository paymentRepository,
+                           NotificationRepository notificationRepository,
+                           ArchiveSegmentRepository archiveSegmentRepository,
+                           PaymentArchive paymentArchive,
+                           PaymentMetrics paymentMetrics,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${payment.archive.after:30d}") Duration after,
+                           @Value("${payment.archive.batch-size:5000}") int batchSize,
+                           @Value("${payment.archive.block-size:64}") int blockSize) {
+        this.paymentRepository = paymentRepository;
+        this.notificationRepository = notificationRepository;
+        this.archiveSegmentRepository = archiveSegmentRepository;
+        this.paymentArchive = paymentArchive;
+        this.paymentMetrics = paymentMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.after = after;
+        this.batchSize = batchSize;
+        this.blockSize = blockSize;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.archive.interval:1h}", initialDelayString = "${payment.archive.interval:1h}")
+    public void run() {
+        archive(OffsetDateTime.now().minus(after));
+    }
+
+    public int archive(OffsetDateTime before) {
+        Timer.Sample sample = paymentMetrics.start();
+        int archived = 0;
+        try {
+            int chunk;
+            do {
+                chunk = archiveChunk(before);
+                archived += chunk;
+            } while (chunk == batchSize);
+        } catch (RuntimeException ex) {
+            log.error("Payment archive run failed after {} payments", archived, ex);
+        } finally {
+            paymentMetrics.recordArchiveRun(sample, archived);
+        }
+        if (archived > 0) {
+            log.info("Archived {} settled payments last updated before {}", archived, before);
+        }
+        return archived;
+    }
+
+    // one chunk is one segment: the file is on disk before the delete and its catalog row commit together, so a crash
+    // leaves either the rows or a cataloged segment, never neither
+    private int archiveChunk(OffsetDateTime before) {
+        return transactionTemplate.execute(transaction -> {
+            List<Payment> payments = paymentRepository.findArchivableForUpdate(PaymentStatus.SUCCESS, before, Limit.of(batchSize));
+            if (payments.isEmpty()) {
+                return 0;
+            }
+            List<String> paymentIds = payments.stream().map(Payment::getPaymentId).toList();
+            Map<String, List<Notification>> notifications = notificationRepository.findByPaymentIdIn(paymentIds)
+                    .stream()
+                    .collect(Collectors.groupingBy(Notification::getPaymentId));
+            List<ArchivedPayment> records = payments.stream()
+                    .map(payment -> ArchivedPayment.of(payment,
+                            notifications.getOrDefault(payment.getPaymentId(), List.of())))
+                    .sorted(Comparator.comparing(ArchivedPayment::paymentId))
+                    .toList();
+
+            ArchiveSegmentFile written = paymentArchive.write(records, blockSize);
+            TransactionSynchronizationManager.registerSynchronization(new Publish(written));
+            notificationRepository.deleteArchived(paymentIds);
+            paymentRepository.deleteArchived(paymentIds);
+            archiveSegmentRepository.save(new ArchiveSegment(written.name(), records.size()));
+            return records.size();
+        });
+    }
+
+    private final class Publish implements TransactionSynchronization {
+
+        private final ArchiveSegmentFile segment;
+
+        Publish(ArchiveSegmentFile segment) {
+            this.segment = segment;
+        }
+
+        // an unknown outcome keeps the file: if the catalog row did commit, the next refresh opens it
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED) {
+                paymentArchive.publish(segment);
+            } else if (status == STATUS_ROLLED_BACK) {
+                paymentArchive.discard(segment);
+            }
+        }
+    }
+}
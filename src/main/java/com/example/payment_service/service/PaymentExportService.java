@@ -0,0 +1,166 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.dto.PaymentResponse;
+import com.example.payment_service.exception.PaymentExportBusyException;
+import com.example.payment_service.repository.PaymentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class PaymentExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentExportService.class);
+
+    private static final OffsetDateTime EARLIEST = OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime LATEST = OffsetDateTime.of(9999, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final String CSV_HEADER = "paymentId,merchantId,customerId,amount,currency,description,status,createdAt,updatedAt\n";
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private final PaymentRepository paymentRepository;
+    private final ObjectWriter rowWriter;
+    private final int maxConcurrent;
+    private final Semaphore slots;
+    private final ExecutorService exportPool;
+    private final AsyncTaskExecutor exportExecutor;
+
+    public PaymentExportService(PaymentRepository paymentRepository,
+                                ObjectMapper objectMapper,
+                                @Value("${payment.export.max-concurrent:2}") int maxConcurrent) {
+        this.paymentRepository = paymentRepository;
+        this.rowWriter = objectMapper.writerFor(PaymentResponse.class);
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.slots = new Semaphore(this.maxConcurrent);
+        // one thread per slot, so a reserved export always starts at once
+        this.exportPool = Executors.newFixedThreadPool(this.maxConcurrent,
+                new CustomizableThreadFactory("payment-export-"));
+        this.exportExecutor = new TaskExecutorAdapter(exportPool);
+    }
+
+    // an export keeps a read-only transaction open for as long as the client takes to read it, so exports run on
+    // threads of their own instead of the executor the charge and notification drains use
+    public AsyncTaskExecutor executor() {
+        return exportExecutor;
+    }
+
+    // every reserve() is paired with one release() once the export body has finished
+    public void reserve() {
+        if (!slots.tryAcquire()) {
+            throw new PaymentExportBusyException("%d exports are already running; try again later"
+                    .formatted(maxConcurrent));
+        }
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        exportPool.shutdownNow();
+    }
+
+    @Transactional(readOnly = true)
+    public long export(String merchantId, OffsetDateTime from, OffsetDateTime to, Format format, OutputStream out)
+            throws IOException {
+        long started = System.nanoTime();
+        long rows;
+        // rows are DTO projections, so nothing accumulates in the persistence context while streaming
+        try (Stream<PaymentResponse> payments = paymentRepository.streamForExport(merchantId,
+                from == null ? EARLIEST : from, to == null ? LATEST : to)) {
+            rows = format == Format.CSV ? writeCsv(payments.iterator(), out) : writeNdjson(payments.iterator(), out);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        log.info("Exported {} payments for merchant {} as {} in {} ms", rows, merchantId, format,
+                (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+
+    private long writeNdjson(Iterator<PaymentResponse> payments, OutputStream out) throws IOException {
+        long rows = 0;
+        try (JsonGenerator generator = rowWriter.createGenerator(out)) {
+            while (payments.hasNext()) {
+                rowWriter.writeValue(generator, payments.next());
+                generator.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private long writeCsv(Iterator<PaymentResponse> payments, OutputStream out) throws IOException {
+        long rows = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+            writer.write(CSV_HEADER);
+            while (payments.hasNext()) {
+                PaymentResponse payment = payments.next();
+                writeCsvField(writer, payment.paymentId());
+                writer.write(',');
+                writeCsvField(writer, payment.merchantId());
+                writer.write(',');
+                writeCsvField(writer, payment.customerId());
+                writer.write(',');
+                writer.write(payment.amount().toPlainString());
+                writer.write(',');
+                writeCsvField(writer, payment.currency());
+                writer.write(',');
+                writeCsvField(writer, payment.description());
+                writer.write(',');
+                writer.write(payment.status().name());
+                writer.write(',');
+                writer.write(String.valueOf(payment.createdAt()));
+                writer.write(',');
+                writer.write(String.valueOf(payment.updatedAt()));
+                writer.write('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -1,14 +1,35 @@
 package com.example.payment_service.service;
 
 import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentStatus;
 import com.example.payment_service.exception.PaymentGatewayException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -18,36 +39,223 @@ public class PaymentGatewayClient {
     private static final Logger log = LoggerFactory.getLogger(PaymentGatewayClient.class);
 
     private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final PaymentMetrics paymentMetrics;
     private final String baseUrl;
+    private final GatewayChargeBatcher batcher;
 
     public PaymentGatewayClient(RestTemplate restTemplate,
-                                @Value("${payment.gateway.base-url:http://localhost:8083}") String baseUrl) {
+                                CircuitBreaker gatewayCircuitBreaker,
+                                Bulkhead gatewayBulkhead,
+                                PaymentMetrics paymentMetrics,
+                                @Value("${payment.gateway.base-url}") String baseUrl,
+                                @Value("${payment.gateway.batch.enabled:false}") boolean batchEnabled,
+                                @Value("${payment.gateway.batch.max-size:100}") int batchMaxSize,
+                                @Value("${payment.gateway.batch.window:5ms}") Duration batchWindow,
+                                @Value("${payment.gateway.batch.max-in-flight:8}") int batchMaxInFlight,
+                                @Value("${payment.gateway.batch.max-queued:16}") int batchMaxQueued) {
         this.restTemplate = restTemplate;
+        this.circuitBreaker = gatewayCircuitBreaker;
+        this.bulkhead = gatewayBulkhead;
+        this.paymentMetrics = paymentMetrics;
         this.baseUrl = baseUrl;
+        this.batcher = batchEnabled
+                ? new GatewayChargeBatcher(this::sendBatch, batchMaxSize, batchWindow, batchMaxInFlight, batchMaxQueued)
+                : null;
     }
 
-    @Retryable(value = RestClientException.class,
-               maxAttempts = 3,
-               backoff = @Backoff(delay = 500, multiplier = 2.0))
+    @Retryable(retryFor = RestClientException.class,
+               noRetryFor = HttpClientErrorException.class,
+               maxAttemptsExpression = "${payment.gateway.retry.max-attempts:3}",
+               backoff = @Backoff(delayExpression = "${payment.gateway.retry.delay:500}",
+                                  multiplierExpression = "${payment.gateway.retry.multiplier:2.0}"))
     public void initiateCharge(Payment payment) {
+        var request = new PaymentInitiationRequest(payment.getPaymentId(),
+                payment.getMerchantId(), payment.getCustomerId(), payment.getAmount(), payment.getCurrency());
+        Timer.Sample sample = paymentMetrics.start();
         try {
-            var request = new PaymentInitiationRequest(payment.getPaymentId(),
-                    payment.getMerchantId(), payment.getCustomerId(), payment.getAmount(), payment.getCurrency());
-            restTemplate.postForEntity(baseUrl + "/payments", request, Void.class);
+            if (batcher != null) {
+                awaitBatched(request);
+            } else {
+                Bulkhead.decorateRunnable(bulkhead, CircuitBreaker.decorateRunnable(circuitBreaker,
+                        () -> restTemplate.postForEntity(baseUrl + "/payments", request, Void.class))).run();
+            }
+            paymentMetrics.recordGatewayAttempt(sample, "success");
             log.info("Payment initiation sent for payment {}", payment.getPaymentId());
         } catch (RestClientException ex) {
-            log.error("Error calling payment gateway for payment {}", payment.getPaymentId(), ex);
-            throw new PaymentGatewayException("Failed to initiate payment due to gateway error", ex);
+            paymentMetrics.recordGatewayAttempt(sample, attemptOutcome(ex));
+            log.warn("Error calling payment gateway for payment {}: {}", payment.getPaymentId(), ex.getMessage());
+            throw ex;
+        } catch (CallNotPermittedException ex) {
+            paymentMetrics.recordGatewayAttempt(sample, "circuit_open");
+            throw ex;
+        } catch (BulkheadFullException ex) {
+            paymentMetrics.recordGatewayAttempt(sample, "bulkhead_full");
+            throw ex;
         }
     }
 
+    // no retry here: the stale sweeper asks again once its lease on the payment expires
+    public Optional<GatewayPaymentStatus> queryStatus(String paymentId) {
+        Timer.Sample sample = paymentMetrics.start();
+        try {
+            GatewayPaymentStatus status = Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker,
+                    () -> restTemplate.getForObject(baseUrl + "/payments/{paymentId}", GatewayPaymentStatus.class,
+                            paymentId))).get();
+            paymentMetrics.recordGatewayQuery(sample, "success");
+            return Optional.ofNullable(status);
+        } catch (HttpClientErrorException.NotFound ex) {
+            paymentMetrics.recordGatewayQuery(sample, "not_found");
+            return Optional.empty();
+        } catch (RestClientException ex) {
+            paymentMetrics.recordGatewayQuery(sample, attemptOutcome(ex));
+            throw new PaymentGatewayException("Payment gateway status query failed for payment " + paymentId, ex);
+        } catch (CallNotPermittedException ex) {
+            paymentMetrics.recordGatewayQuery(sample, "circuit_open");
+            throw new PaymentGatewayException("Payment gateway circuit breaker is open", ex);
+        } catch (BulkheadFullException ex) {
+            paymentMetrics.recordGatewayQuery(sample, "bulkhead_full");
+            throw new PaymentGatewayException("Too many concurrent payment gateway calls", ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    // every retry of a charge joins whichever batch is forming, so retries and recovery stay per payment
+    private void awaitBatched(PaymentInitiationRequest request) {
+        try {
+            batcher.submit(request).join();
+        } catch (CompletionException ex) {
+            // the batch backlog is full: shed the charge the way a full bulkhead would
+            if (ex.getCause() instanceof RejectedExecutionException) {
+                throw BulkheadFullException.createBulkheadFullException(bulkhead);
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    // the bulkhead guards the batch request; a rejected or failed item only fails its own caller
+    private Map<String, RuntimeException> sendBatch(List<PaymentInitiationRequest> requests) {
+        Timer.Sample sample = paymentMetrics.start();
+        try {
+            Map<String, RuntimeException> failures = Bulkhead.decorateSupplier(bulkhead, () -> postBatch(requests)).get();
+            paymentMetrics.recordGatewayBatch(sample, "success", requests.size());
+            return failures;
+        } catch (HttpClientErrorException ex) {
+            paymentMetrics.recordGatewayBatch(sample, "client_error", requests.size());
+            // the gateway refused the request as a whole, which says nothing about the individual charges
+            throw new RestClientException("Gateway rejected charge batch: " + ex.getMessage(), ex);
+        } catch (RestClientException ex) {
+            paymentMetrics.recordGatewayBatch(sample, attemptOutcome(ex), requests.size());
+            throw ex;
+        } catch (CallNotPermittedException ex) {
+            paymentMetrics.recordGatewayBatch(sample, "circuit_open", requests.size());
+            throw ex;
+        } catch (BulkheadFullException ex) {
+            paymentMetrics.recordGatewayBatch(sample, "bulkhead_full", requests.size());
+            throw ex;
+        }
+    }
+
+    // a batch is one call to the breaker: one permission and one outcome. It fails if any charge in it failed on the
+    // gateway's side; 4xx items are ignored, like HttpClientErrorException on a single call
+    private Map<String, RuntimeException> postBatch(List<PaymentInitiationRequest> requests) {
+        circuitBreaker.acquirePermission();
+        long started = System.nanoTime();
+        ChargeResult[] results;
+        try {
+            results = restTemplate.postForObject(baseUrl + "/payments:batch", requests, ChargeResult[].class);
+        } catch (HttpClientErrorException ex) {
+            circuitBreaker.releasePermission();
+            throw ex;
+        } catch (RuntimeException ex) {
+            circuitBreaker.onError(System.nanoTime() - started, TimeUnit.NANOSECONDS, ex);
+            throw ex;
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Map<String, RuntimeException> failures = new HashMap<>();
+        for (PaymentInitiationRequest request : requests) {
+            failures.put(request.paymentId(),
+                    new RestClientException("Gateway batch response has no result for payment " + request.paymentId()));
+        }
+        for (ChargeResult result : results != null ? results : new ChargeResult[0]) {
+            HttpStatusCode status = HttpStatusCode.valueOf(result.status());
+            if (status.is2xxSuccessful()) {
+                failures.remove(result.paymentId());
+            } else if (status.is4xxClientError()) {
+                failures.put(result.paymentId(), HttpClientErrorException.create(status, String.valueOf(result.error()),
+                        HttpHeaders.EMPTY, null, null));
+            } else {
+                failures.put(result.paymentId(), HttpServerErrorException.create(status, String.valueOf(result.error()),
+                        HttpHeaders.EMPTY, null, null));
+            }
+        }
+
+        RuntimeException serverFailure = failures.values().stream()
+                .filter(failure -> !(failure instanceof HttpClientErrorException))
+                .findFirst()
+                .orElse(null);
+        if (serverFailure != null) {
+            circuitBreaker.onError(elapsed, TimeUnit.NANOSECONDS, serverFailure);
+        } else if (failures.size() < requests.size()) {
+            circuitBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+        } else {
+            circuitBreaker.releasePermission();
+        }
+        return failures;
+    }
+
     @Recover
     public void recover(RestClientException ex, Payment payment) {
+        paymentMetrics.recordGatewayRecovery(ex instanceof HttpClientErrorException ? "rejected" : "retries_exhausted");
         log.error("Payment gateway permanently failed after retries for payment {}", payment.getPaymentId(), ex);
         throw new PaymentGatewayException("Payment gateway unreachable after retries", ex);
     }
 
-    private record PaymentInitiationRequest(String paymentId, String merchantId, String customerId, 
-                                        java.math.BigDecimal amount, String currency) {
+    @Recover
+    public void recover(CallNotPermittedException ex, Payment payment) {
+        paymentMetrics.recordGatewayRecovery("circuit_open");
+        log.warn("Payment gateway circuit is open, failing fast for payment {}", payment.getPaymentId());
+        throw new PaymentGatewayException("Payment gateway circuit breaker is open", ex);
+    }
+
+    @Recover
+    public void recover(BulkheadFullException ex, Payment payment) {
+        paymentMetrics.recordGatewayRecovery("bulkhead_full");
+        log.warn("Payment gateway bulkhead is full, rejecting charge for payment {}", payment.getPaymentId());
+        throw new PaymentGatewayException("Too many concurrent payment gateway calls", ex);
+    }
+
+    private static String attemptOutcome(RestClientException ex) {
+        if (ex instanceof HttpClientErrorException) {
+            return "client_error";
+        }
+        if (ex instanceof HttpServerErrorException) {
+            return "server_error";
+        }
+        if (ex instanceof ResourceAccessException) {
+            return "io_error";
+        }
+        return "error";
+    }
+
+    public record GatewayPaymentStatus(String paymentId, PaymentStatus status, BigDecimal amount) {
+    }
+
+    record PaymentInitiationRequest(String paymentId, String merchantId, String customerId,
+                                    java.math.BigDecimal amount, String currency) {
+    }
+
+    private record ChargeResult(String paymentId, int status, String error) {
     }
 }
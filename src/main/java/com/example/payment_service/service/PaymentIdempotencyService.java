@@ -0,0 +1,95 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.CreatePaymentResponse;
+import com.example.payment_service.exception.IdempotencyKeyConflictException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+@Service
+public class PaymentIdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentIdempotencyService.class);
+
+    private final PaymentService paymentService;
+    private final AsyncCache<IdempotencyKey, CreatePaymentResponse> responses;
+
+    public PaymentIdempotencyService(PaymentService paymentService,
+                                     @Value("${payment.idempotency.cache.max-size:100000}") long maxSize,
+                                     @Value("${payment.idempotency.cache.ttl:24h}") Duration ttl) {
+        this.paymentService = paymentService;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .buildAsync();
+    }
+
+    public CreatePaymentResponse createPayment(CreatePaymentRequest request, String idempotencyKey) {
+        var key = new IdempotencyKey(request.merchantId(), idempotencyKey);
+        var created = new CompletableFuture<CreatePaymentResponse>();
+        var existing = responses.asMap().putIfAbsent(key, created);
+
+        CreatePaymentResponse response;
+        if (existing == null) {
+            try {
+                response = findOrCreate(request, idempotencyKey);
+                created.complete(response);
+            } catch (RuntimeException ex) {
+                created.completeExceptionally(ex);
+                throw ex;
+            }
+        } else {
+            response = await(existing);
+            log.info("Replaying payment {} for merchant {} and idempotency key {}",
+                    response.paymentId(), request.merchantId(), idempotencyKey);
+        }
+
+        verifySameRequest(response, request, idempotencyKey);
+        return response;
+    }
+
+    private CreatePaymentResponse findOrCreate(CreatePaymentRequest request, String idempotencyKey) {
+        try {
+            return paymentService.createPayment(request, idempotencyKey);
+        } catch (DataIntegrityViolationException ex) {
+            log.info("Idempotency key {} for merchant {} already stored, loading existing payment",
+                    idempotencyKey, request.merchantId());
+            return paymentService.findByIdempotencyKey(request.merchantId(), idempotencyKey)
+                    .orElseThrow(() -> ex);
+        }
+    }
+
+    private CreatePaymentResponse await(CompletableFuture<CreatePaymentResponse> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void verifySameRequest(CreatePaymentResponse response, CreatePaymentRequest request, String idempotencyKey) {
+        boolean same = Objects.equals(response.customerId(), request.customerId())
+                && response.amount().compareTo(request.amount()) == 0
+                && Objects.equals(response.currency(), request.currency())
+                && Objects.equals(response.description(), request.description());
+        if (!same) {
+            throw new IdempotencyKeyConflictException(
+                    "Idempotency key %s was already used with a different request".formatted(idempotencyKey));
+        }
+    }
+
+    private record IdempotencyKey(String merchantId, String key) {
+    }
+}
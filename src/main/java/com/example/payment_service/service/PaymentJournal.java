@@ -0,0 +1,302 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentCreatedEvent;
+import com.example.payment_service.domain.PaymentEvent;
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.domain.PaymentJournalHead;
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import com.example.payment_service.dto.PaymentEventResponse;
+import com.example.payment_service.dto.PaymentStateResponse;
+import com.example.payment_service.exception.ResourceNotFoundException;
+import com.example.payment_service.repository.PaymentEventRepository;
+import com.example.payment_service.repository.PaymentJournalHeadRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// append-only history of payment state changes. The events a payment transaction publishes are buffered and written
+// with one batched insert just before it commits, so the journal holds exactly the committed changes and a batch of
+// callbacks pays one round trip per hundred events instead of one per event
+@Service
+public class PaymentJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentJournal.class);
+
+    private final PaymentEventRepository paymentEventRepository;
+    private final PaymentJournalHeadRepository paymentJournalHeadRepository;
+    private final PaymentMetrics paymentMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter eventWriter;
+    private final ObjectWriter stateWriter;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final int sequencerBatchSize;
+    private final long sequencerInterval;
+    private final long sequencerMaxIdleInterval;
+
+    // set when a local transaction commits events; the scheduled pass runs as soon as it sees it
+    private volatile boolean appended;
+    private long idleInterval;
+    private long nextPassAt;
+
+    public PaymentJournal(PaymentEventRepository paymentEventRepository,
+                          PaymentJournalHeadRepository paymentJournalHeadRepository,
+                          PaymentMetrics paymentMetrics,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          @Value("${payment.journal.feed.default-limit:10000}") int defaultLimit,
+                          @Value("${payment.journal.feed.max-limit:100000}") int maxLimit,
+                          @Value("${payment.journal.sequencer.batch-size:10000}") int sequencerBatchSize,
+                          @Value("${payment.journal.sequencer.interval:100ms}") Duration sequencerInterval,
+                          @Value("${payment.journal.sequencer.max-idle-interval:5s}") Duration sequencerMaxIdleInterval) {
+        this.paymentEventRepository = paymentEventRepository;
+        this.paymentJournalHeadRepository = paymentJournalHeadRepository;
+        this.paymentMetrics = paymentMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventWriter = objectMapper.writerFor(PaymentEventResponse.class);
+        this.stateWriter = objectMapper.writerFor(PaymentStateResponse.class);
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.sequencerBatchSize = sequencerBatchSize;
+        this.sequencerInterval = sequencerInterval.toNanos();
+        this.sequencerMaxIdleInterval = sequencerMaxIdleInterval.toNanos();
+    }
+
+    // synchronous listeners, so the events join the transaction that published them
+    @EventListener
+    public void onPaymentCreated(PaymentCreatedEvent event) {
+        append(new PaymentEvent(event.paymentId(), event.merchantId(), null, event.status(), event.amount(),
+                event.currency(), event.createdAt()));
+    }
+
+    @EventListener
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        append(new PaymentEvent(event.paymentId(), event.merchantId(), event.previousStatus(), event.status(),
+                event.amount(), event.currency(), event.occurredAt()));
+    }
+
+    // events with a feed position above after, in position order, as NDJSON. Positions are stamped in the order
+    // they become visible (see sequence), so a consumer resuming from the last position it read never skips one
+    @Transactional(readOnly = true)
+    public long feed(long after, Integer limit, OutputStream out) throws IOException {
+        Timer.Sample sample = paymentMetrics.start();
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        long events;
+        try (Stream<PaymentEventResponse> stream = paymentEventRepository.streamAfter(after, Limit.of(pageSize))) {
+            events = writeNdjson(stream.iterator(), eventWriter, out);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        paymentMetrics.recordJournalRead(sample, "feed", events);
+        return events;
+    }
+
+    // folds the journal into the state of every payment as of at, one NDJSON line per payment; events are read in
+    // (paymentId, seq) order, so memory stays flat however long the journal is
+    @Transactional(readOnly = true)
+    public long replayState(OffsetDateTime at, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Timer.Sample sample = paymentMetrics.start();
+        long payments;
+        try (Stream<PaymentEventResponse> stream = paymentEventRepository.streamByPaymentUntil(
+                at == null ? OffsetDateTime.now() : at)) {
+            payments = writeNdjson(new StateIterator(stream.iterator()), stateWriter, out);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        paymentMetrics.recordJournalRead(sample, "replay", payments);
+        log.info("Replayed the payment journal into {} payment states in {} ms", payments,
+                (System.nanoTime() - started) / 1_000_000);
+        return payments;
+    }
+
+    // seq is taken at insert, just before commit, so a lower seq can become visible after a higher one and cannot
+    // be a cursor. Committed events get feed positions here instead: each pass holds the head row lock until it
+    // commits, so passes never overlap across instances and every position a pass hands out lies above those of the
+    // passes already visible
+    public long sequence() {
+        Timer.Sample sample = paymentMetrics.start();
+        long sequenced = 0;
+        try {
+            int stamped;
+            do {
+                stamped = transactionTemplate.execute(status -> sequenceBatch());
+                sequenced += stamped;
+            } while (stamped == sequencerBatchSize);
+        } catch (RuntimeException ex) {
+            log.error("Payment journal sequencing failed", ex);
+        } finally {
+            paymentMetrics.recordJournalSequencing(sample, sequenced);
+        }
+        return sequenced;
+    }
+
+    // events committed here reach the feed one interval later. Passes that find nothing double the wait up to
+    // max-idle-interval, so an idle instance stops locking the head ten times a second; events committed on another
+    // instance while this one is idle wait at most that long
+    @Scheduled(fixedDelayString = "${payment.journal.sequencer.interval:100ms}")
+    public void poll() {
+        long now = System.nanoTime();
+        if (!appended && now - nextPassAt < 0) {
+            return;
+        }
+        appended = false;
+        if (sequence() > 0) {
+            idleInterval = 0;
+            nextPassAt = now;
+        } else {
+            idleInterval = Math.min(sequencerMaxIdleInterval, Math.max(sequencerInterval, idleInterval * 2));
+            nextPassAt = now + idleInterval;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<PaymentEventResponse> history(String paymentId) {
+        List<PaymentEventResponse> events = PaymentIds.isValid(paymentId)
+                ? paymentEventRepository.findHistory(PaymentIds.canonical(paymentId))
+                : List.of();
+        if (events.isEmpty()) {
+            throw new ResourceNotFoundException("No events for payment %s".formatted(paymentId));
+        }
+        return events;
+    }
+
+    // positions follow seq within a pass and all lie above the head. A row in the range that commits during the pass
+    // is stamped too; one below the range that commits late is picked up by the next pass, above this one
+    private int sequenceBatch() {
+        // H2 builds the schema from the entities, without the row the Flyway migration seeds
+        PaymentJournalHead head = paymentJournalHeadRepository.findForUpdate()
+                .orElseGet(() -> paymentJournalHeadRepository.save(new PaymentJournalHead()));
+        Long first = paymentEventRepository.findFirstUnsequenced();
+        if (first == null) {
+            return 0;
+        }
+        long last = paymentEventRepository.findLastUnsequenced(first + sequencerBatchSize);
+        long offset = head.getLastPosition() + 1 - first;
+        int stamped = paymentEventRepository.sequence(first, last, offset);
+        head.advance(last + offset);
+        return stamped;
+    }
+
+    private void append(PaymentEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Payment events must be published inside a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        List<PaymentEvent> pending = (List<PaymentEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new Flush(pending));
+        }
+        pending.add(event);
+    }
+
+    private static <T> long writeNdjson(Iterator<T> rows, ObjectWriter writer, OutputStream out) throws IOException {
+        long written = 0;
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            while (rows.hasNext()) {
+                writer.writeValue(generator, rows.next());
+                generator.writeRaw('\n');
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private final class Flush implements TransactionSynchronization {
+
+        private final List<PaymentEvent> events;
+
+        Flush(List<PaymentEvent> events) {
+            this.events = events;
+        }
+
+        // through the repository, so a version conflict surfacing in the flush this insert triggers is translated
+        // like one at commit and the callback retry still sees it
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Timer.Sample sample = paymentMetrics.start();
+            paymentEventRepository.append(events);
+            paymentMetrics.recordJournalWrite(sample, events.size());
+        }
+
+        // a REQUIRES_NEW transaction inside this one keeps its events in a buffer of its own
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(PaymentJournal.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(PaymentJournal.this, events);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PaymentJournal.this);
+            if (status == STATUS_COMMITTED) {
+                appended = true;
+            }
+        }
+    }
+
+    private static final class StateIterator implements Iterator<PaymentStateResponse> {
+
+        private final Iterator<PaymentEventResponse> events;
+        private PaymentEventResponse next;
+
+        StateIterator(Iterator<PaymentEventResponse> events) {
+            this.events = events;
+            this.next = events.hasNext() ? events.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public PaymentStateResponse next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            PaymentEventResponse first = next;
+            PaymentEventResponse last = first;
+            next = null;
+            while (events.hasNext()) {
+                PaymentEventResponse event = events.next();
+                if (!event.paymentId().equals(first.paymentId())) {
+                    next = event;
+                    break;
+                }
+                last = event;
+            }
+            return new PaymentStateResponse(last.paymentId(), last.merchantId(), last.amount(), last.currency(),
+                    last.status(), first.occurredAt(), last.occurredAt(), last.seq());
+        }
+    }
+}
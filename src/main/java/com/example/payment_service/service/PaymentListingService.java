@@ -0,0 +1,81 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.PaymentPageResponse;
+import com.example.payment_service.dto.PaymentResponse;
+import com.example.payment_service.exception.InvalidCursorException;
+import com.example.payment_service.repository.PaymentListing;
+import com.example.payment_service.repository.PaymentListing.Owner;
+import com.example.payment_service.repository.PaymentRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class PaymentListingService {
+
+    private static final char CURSOR_SEPARATOR = '|';
+
+    private final PaymentRepository paymentRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public PaymentListingService(PaymentRepository paymentRepository,
+                                 @Value("${payment.listing.default-page-size:50}") int defaultPageSize,
+                                 @Value("${payment.listing.max-page-size:200}") int maxPageSize) {
+        this.paymentRepository = paymentRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentPageResponse listPayments(Owner owner, String ownerId, PaymentStatus status, OffsetDateTime from,
+                                            OffsetDateTime to, Integer limit, String cursor) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        OffsetDateTime afterCreatedAt = null;
+        String afterPaymentId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String decoded = decode(cursor);
+            int separator = decoded.indexOf(CURSOR_SEPARATOR);
+            try {
+                afterCreatedAt = OffsetDateTime.parse(decoded.substring(0, separator));
+                afterPaymentId = PaymentIds.canonical(decoded.substring(separator + 1));
+            } catch (DateTimeParseException | IndexOutOfBoundsException ex) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            if (!PaymentIds.isValid(afterPaymentId)) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+        }
+
+        // one extra row tells us whether another page exists without a count query
+        List<PaymentResponse> rows = paymentRepository.findPage(new PaymentListing(owner, ownerId, status, from, to,
+                afterCreatedAt, afterPaymentId, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new PaymentPageResponse(rows, null);
+        }
+
+        List<PaymentResponse> page = rows.subList(0, pageSize);
+        PaymentResponse last = page.get(pageSize - 1);
+        return new PaymentPageResponse(List.copyOf(page), encode(last.createdAt(), last.paymentId()));
+    }
+
+    private static String encode(OffsetDateTime createdAt, String paymentId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + String.valueOf(CURSOR_SEPARATOR) + paymentId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentIds;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PaymentLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public PaymentLocks(@Value("${payment.callback.lock-stripes:1024}") int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public <T> T withLock(String paymentId, Supplier<T> action) {
+        ReentrantLock lock = stripes[indexOf(paymentId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void runWithLock(String paymentId, Runnable action) {
+        withLock(paymentId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T withLocks(Collection<String> paymentIds, Supplier<T> action) {
+        // stripes are always taken in ascending order so two batches sharing payments cannot deadlock
+        var indexes = new TreeSet<Integer>();
+        for (String paymentId : paymentIds) {
+            indexes.add(indexOf(paymentId));
+        }
+
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int index : indexes) {
+                if (locked-- == 0) {
+                    break;
+                }
+                stripes[index].unlock();
+            }
+        }
+    }
+
+    private int indexOf(String paymentId) {
+        int hash = PaymentIds.canonical(paymentId).hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
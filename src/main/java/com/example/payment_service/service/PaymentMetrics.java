@@ -0,0 +1,179 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class PaymentMetrics {
+
+    // client-side percentiles cannot be aggregated across instances and cost a sliding window per tag combination, so
+    // only the request-path SLO timers publish them; every timer publishes the histogram for server-side quantiles
+    private static final Set<String> SLO_TIMERS = Set.of("payment.create", "payment.callback");
+
+    private final MeterRegistry registry;
+    private final Counter[][] transitions;
+    private final Map<PaymentStatus, Timer> timeToTerminal = new EnumMap<>(PaymentStatus.class);
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public PaymentMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        PaymentStatus[] statuses = PaymentStatus.values();
+        this.transitions = new Counter[statuses.length][statuses.length];
+        for (PaymentStatus from : statuses) {
+            for (PaymentStatus to : statuses) {
+                if (from == to) {
+                    continue;
+                }
+                transitions[from.ordinal()][to.ordinal()] = Counter.builder("payment.status.transitions")
+                        .description("Payment status changes")
+                        .tag("from", from.name())
+                        .tag("to", to.name())
+                        .register(registry);
+            }
+            if (from.isTerminal()) {
+                timeToTerminal.put(from, Timer.builder("payment.time.to.terminal")
+                        .description("Time from payment creation until it first reaches a terminal status")
+                        .tag("status", from.name())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(10))
+                        .maximumExpectedValue(Duration.ofHours(24))
+                        .register(registry));
+            }
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void recordCreate(Timer.Sample sample, String outcome) {
+        sample.stop(timer("payment.create", "Payment creation including commit", "outcome", outcome));
+    }
+
+    public void recordCallback(Timer.Sample sample, String mode, String outcome) {
+        sample.stop(timer("payment.callback", "Callback processing including lock wait and commit",
+                "mode", mode, "outcome", outcome));
+    }
+
+    public void recordGatewayAttempt(Timer.Sample sample, String outcome) {
+        sample.stop(timer("payment.gateway.attempts", "Single payment gateway charge attempt", "outcome", outcome));
+    }
+
+    public void recordGatewayQuery(Timer.Sample sample, String outcome) {
+        sample.stop(timer("payment.gateway.queries", "Payment gateway status query", "outcome", outcome));
+    }
+
+    public void recordGatewayBatch(Timer.Sample sample, String outcome, int size) {
+        sample.stop(timer("payment.gateway.batches", "Batched payment gateway charge request", "outcome", outcome));
+        counter("payment.gateway.batched.charges", "Charges sent inside gateway batch requests").increment(size);
+    }
+
+    public void recordGatewayRecovery(String reason) {
+        counter("payment.gateway.recoveries", "Charges handed to @Recover after retries, open circuit or full bulkhead",
+                "reason", reason).increment();
+    }
+
+    public void recordSweepRun(Timer.Sample sample, int claimed) {
+        sample.stop(timer("payment.sweeper.runs", "Stale payment sweep over all claimable chunks"));
+        counter("payment.sweeper.claimed", "Stale payments claimed by the sweeper").increment(claimed);
+    }
+
+    public void recordSweepOutcome(String outcome) {
+        counter("payment.sweeper.outcomes", "Stale payment sweeper results per payment", "outcome", outcome).increment();
+    }
+
+    public void recordNotificationWrite(Timer.Sample sample, String mode) {
+        sample.stop(timer("payment.notification.writes", "Notification outbox writes", "mode", mode));
+    }
+
+    public void recordNotificationDedup(String outcome, int count) {
+        if (count > 0) {
+            counter("payment.notification.dedup", "Success notifications by how duplicates were resolved",
+                    "outcome", outcome).increment(count);
+        }
+    }
+
+    public void recordNotificationDelivery(Timer.Sample sample, String channel, String outcome) {
+        sample.stop(timer("payment.notification.deliveries", "Notification channel sends",
+                "channel", channel, "outcome", outcome));
+    }
+
+    public void recordAdmissionRejection(String limit, String endpoint) {
+        counter("payment.admission.rejections", "Requests shed with 429 before reaching the database",
+                "limit", limit, "endpoint", endpoint).increment();
+    }
+
+    public void recordStatusWait(String outcome, int count) {
+        counter("payment.status.waits", "Long-poll status requests by how they were answered",
+                "outcome", outcome).increment(count);
+    }
+
+    public void recordArchiveRun(Timer.Sample sample, int archived) {
+        sample.stop(timer("payment.archive.runs", "Archiver run over all claimable chunks"));
+        counter("payment.archive.payments", "Terminal payments moved from the hot table to archive segments")
+                .increment(archived);
+    }
+
+    public void recordArchiveLookup(Timer.Sample sample, String outcome) {
+        sample.stop(timer("payment.archive.lookups", "Archive segment lookups after a miss in the hot table",
+                "outcome", outcome));
+    }
+
+    public void recordJournalWrite(Timer.Sample sample, int events) {
+        sample.stop(timer("payment.journal.writes", "Batched payment event journal insert, once per transaction"));
+        counter("payment.journal.events", "Payment events appended to the journal").increment(events);
+    }
+
+    public void recordJournalSequencing(Timer.Sample sample, long events) {
+        sample.stop(timer("payment.journal.sequencing", "Journal sequencer pass stamping feed positions"));
+        counter("payment.journal.events.sequenced", "Payment events given a feed position").increment(events);
+    }
+
+    public void recordJournalRead(Timer.Sample sample, String mode, long events) {
+        sample.stop(timer("payment.journal.reads", "Payment event journal feed or replay", "mode", mode));
+        counter("payment.journal.events.read", "Payment events streamed from the journal", "mode", mode)
+                .increment(events);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        transitions[event.previousStatus().ordinal()][event.status().ordinal()].increment();
+        if (!event.previousStatus().isTerminal() && event.status().isTerminal() && event.createdAt() != null) {
+            timeToTerminal.get(event.status()).record(Duration.between(event.createdAt(), event.occurredAt()));
+        }
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return timers.computeIfAbsent(name + String.join(",", tags), key -> {
+            Timer.Builder builder = Timer.builder(name)
+                    .description(description)
+                    .tags(tags)
+                    .publishPercentileHistogram();
+            if (SLO_TIMERS.contains(name)) {
+                builder.publishPercentiles(0.5, 0.99);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    private Counter counter(String name, String description, String... tags) {
+        return counters.computeIfAbsent(name + String.join(",", tags), key -> Counter.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(registry));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import com.example.payment_service.dto.PaymentResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class PaymentResponseCache {
+
+    private final AsyncCache<String, PaymentResponse> responses;
+
+    public PaymentResponseCache(MeterRegistry meterRegistry,
+                                @Value("${payment.cache.responses.max-size:100000}") long maxSize,
+                                @Value("${payment.cache.responses.ttl:5s}") Duration ttl,
+                                @Value("${payment.cache.responses.terminal-ttl:10m}") Duration terminalTtl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, PaymentResponse>writing((paymentId, response) ->
+                        response.status().isTerminal() ? terminalTtl : ttl))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "payment.responses");
+    }
+
+    public PaymentResponse get(String paymentId, Function<String, PaymentResponse> loader) {
+        // the loader runs on the caller, outside the cache's map lock, so a slow query never pins a carrier thread
+        var loading = new CompletableFuture<PaymentResponse>();
+        var cached = responses.get(paymentId, (id, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(loader.apply(paymentId));
+            } catch (RuntimeException ex) {
+                loading.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+
+        try {
+            return cached.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public void evict(String paymentId) {
+        responses.synchronous().invalidate(paymentId);
+    }
+
+    // ahead of other after-commit listeners, which may reload the payment through this cache
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        evict(event.paymentId());
+    }
+}
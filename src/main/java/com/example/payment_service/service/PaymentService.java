@@ -1,18 +1,45 @@
 package com.example.payment_service.service;
 
+import com.example.payment_service.domain.ArchivedPayment;
 import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentCreatedEvent;
+import com.example.payment_service.domain.PaymentIds;
 import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import com.example.payment_service.domain.PendingCharge;
 import com.example.payment_service.dto.CreatePaymentRequest;
 import com.example.payment_service.dto.CreatePaymentResponse;
 import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
+import com.example.payment_service.dto.PaymentCallbackResult.Outcome;
 import com.example.payment_service.dto.PaymentResponse;
+import com.example.payment_service.exception.InvalidCallbackSignatureException;
 import com.example.payment_service.exception.ResourceNotFoundException;
 import com.example.payment_service.repository.PaymentRepository;
-import java.util.UUID;
+import com.example.payment_service.repository.PendingChargeRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class PaymentService {
@@ -20,39 +47,217 @@ public class PaymentService {
     private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
 
     private final PaymentRepository paymentRepository;
+    private final PendingChargeRepository pendingChargeRepository;
     private final NotificationService notificationService;
+    private final PaymentResponseCache paymentResponseCache;
+    private final PaymentArchive paymentArchive;
+    private final CallbackSignatureVerifier callbackSignatureVerifier;
+    private final PaymentLocks paymentLocks;
+    private final PaymentMetrics paymentMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final RetryTemplate conflictRetry;
+    private final int chunkSize;
 
     public PaymentService(PaymentRepository paymentRepository,
-                         NotificationService notificationService) {
+                         PendingChargeRepository pendingChargeRepository,
+                         NotificationService notificationService,
+                         PaymentResponseCache paymentResponseCache,
+                         PaymentArchive paymentArchive,
+                         CallbackSignatureVerifier callbackSignatureVerifier,
+                         PaymentLocks paymentLocks,
+                         PaymentMetrics paymentMetrics,
+                         ApplicationEventPublisher eventPublisher,
+                         Validator validator,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${payment.callback.conflict-retry.max-attempts:5}") int conflictMaxAttempts,
+                         @Value("${payment.callback.conflict-retry.min-backoff:10}") long conflictMinBackoff,
+                         @Value("${payment.callback.conflict-retry.max-backoff:100}") long conflictMaxBackoff,
+                         @Value("${payment.callback.batch.chunk-size:50}") int chunkSize) {
         this.paymentRepository = paymentRepository;
+        this.pendingChargeRepository = pendingChargeRepository;
         this.notificationService = notificationService;
+        this.paymentResponseCache = paymentResponseCache;
+        this.paymentArchive = paymentArchive;
+        this.callbackSignatureVerifier = callbackSignatureVerifier;
+        this.paymentLocks = paymentLocks;
+        this.paymentMetrics = paymentMetrics;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.conflictRetry = RetryTemplate.builder()
+                .maxAttempts(conflictMaxAttempts)
+                .retryOn(OptimisticLockingFailureException.class)
+                .uniformRandomBackoff(conflictMinBackoff, conflictMaxBackoff)
+                .build();
+        this.chunkSize = chunkSize;
     }
 
-    @Transactional
     public CreatePaymentResponse createPayment(CreatePaymentRequest request) {
-        String paymentId = UUID.randomUUID().toString();
-        Payment payment = new Payment(paymentId, request.getMerchantId(), request.getCustomerId(),
-                request.getAmount(), request.getCurrency(), request.getDescription());
-        payment = paymentRepository.save(payment);
-
-        log.info("Payment {} created for merchant {} and customer {}. Waiting for payment callback.", 
-                paymentId, request.getMerchantId(), request.getCustomerId());
+        return createPayment(request, null);
+    }
 
-        return new CreatePaymentResponse(payment.getPaymentId(), payment.getMerchantId(), 
-                payment.getCustomerId(), payment.getAmount(), payment.getCurrency(), 
-                payment.getDescription(), payment.getStatus());
+    public CreatePaymentResponse createPayment(CreatePaymentRequest request, String idempotencyKey) {
+        Timer.Sample sample = paymentMetrics.start();
+        try {
+            CreatePaymentResponse response = transactionTemplate.execute(status -> insertPayment(request, idempotencyKey));
+            paymentMetrics.recordCreate(sample, "created");
+            return response;
+        } catch (RuntimeException ex) {
+            paymentMetrics.recordCreate(sample, "error");
+            throw ex;
+        }
     }
 
     @Transactional(readOnly = true)
+    public Optional<CreatePaymentResponse> findByIdempotencyKey(String merchantId, String idempotencyKey) {
+        return paymentRepository.findByMerchantIdAndIdempotencyKey(merchantId, idempotencyKey)
+                .map(this::mapToCreatePaymentResponse);
+    }
+
     public PaymentResponse getPayment(String paymentId) {
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Payment %s not found".formatted(paymentId)));
-        return mapToPaymentResponse(payment);
+        if (!PaymentIds.isValid(paymentId)) {
+            throw new ResourceNotFoundException("Payment %s not found".formatted(paymentId));
+        }
+        // archived payments are terminal, so the cache keeps them for the terminal TTL like any other
+        PaymentResponse response = paymentResponseCache.get(PaymentIds.canonical(paymentId), id -> paymentRepository.findById(id)
+                .map(this::mapToPaymentResponse)
+                .or(() -> paymentArchive.find(id).map(this::mapToPaymentResponse))
+                .orElse(null));
+        if (response == null) {
+            throw new ResourceNotFoundException("Payment %s not found".formatted(paymentId));
+        }
+        return response;
     }
 
-    @Transactional
     public void handlePaymentCallback(PaymentCallbackRequest request) {
-        processPaymentUpdate(request.getPaymentId(), request.getAmount(), request.getStatus());
+        Timer.Sample sample = paymentMetrics.start();
+        try {
+            // the stripe lock orders callbacks for one payment inside this JVM; the retry covers writers on other nodes
+            // and backs off with the stripe released
+            conflictRetry.execute(context -> {
+                if (context.getRetryCount() > 0) {
+                    log.info("Retrying callback for payment {} after version conflict (attempt {})",
+                            request.paymentId(), context.getRetryCount() + 1);
+                }
+                paymentLocks.runWithLock(request.paymentId(),
+                        () -> transactionTemplate.executeWithoutResult(status -> processPaymentUpdate(request)));
+                return null;
+            });
+            paymentMetrics.recordCallback(sample, "single", "processed");
+        } catch (RuntimeException ex) {
+            paymentMetrics.recordCallback(sample, "single", callbackOutcome(ex));
+            throw ex;
+        }
+    }
+
+    public List<PaymentCallbackResult> handlePaymentCallbacks(List<PaymentCallbackRequest> requests) {
+        return applyCallbacks(requests, "batch", true);
+    }
+
+    // statuses pulled from the gateway (settlement files, status queries) arrive over a trusted channel and carry no
+    // per-update signatures
+    public List<PaymentCallbackResult> applyGatewayStatuses(List<PaymentCallbackRequest> updates, String mode) {
+        return applyCallbacks(updates, mode, false);
+    }
+
+    @Transactional
+    public void resolveUndeliveredCharge(String paymentId, PaymentStatus status) {
+        paymentRepository.findById(paymentId)
+                .filter(payment -> payment.getStatus() == PaymentStatus.INITIATED)
+                .ifPresent(payment -> applyStatusUpdate(payment, payment.getAmount(), status));
+    }
+
+    private List<PaymentCallbackResult> applyCallbacks(List<PaymentCallbackRequest> requests, String mode,
+                                                       boolean verifySignatures) {
+        Timer.Sample sample = paymentMetrics.start();
+        try {
+            // each chunk commits on its own and holds only its own stripes, so a large batch never keeps unrelated
+            // callbacks waiting for longer than one chunk
+            List<PaymentCallbackResult> results = new ArrayList<>(requests.size());
+            for (int start = 0; start < requests.size(); start += chunkSize) {
+                results.addAll(applyChunk(requests.subList(start, Math.min(requests.size(), start + chunkSize)),
+                        verifySignatures));
+            }
+            paymentMetrics.recordCallback(sample, mode, "processed");
+            return results;
+        } catch (RuntimeException ex) {
+            paymentMetrics.recordCallback(sample, mode, callbackOutcome(ex));
+            throw ex;
+        }
+    }
+
+    private List<PaymentCallbackResult> applyChunk(List<PaymentCallbackRequest> requests, boolean verifySignatures) {
+        Set<String> paymentIds = new HashSet<>();
+        for (PaymentCallbackRequest request : requests) {
+            // ids that cannot be a payment key are left out of the lookup and come back NOT_FOUND
+            if (request != null && PaymentIds.isValid(request.paymentId())) {
+                paymentIds.add(PaymentIds.canonical(request.paymentId()));
+            }
+        }
+
+        // the stripes are released before a retry backs off
+        return conflictRetry.execute(context -> {
+            if (context.getRetryCount() > 0) {
+                log.info("Retrying chunk of {} callbacks after version conflict (attempt {})",
+                        requests.size(), context.getRetryCount() + 1);
+            }
+            return paymentLocks.withLocks(paymentIds, () -> transactionTemplate.execute(
+                    status -> processPaymentUpdates(requests, paymentIds, verifySignatures)));
+        });
+    }
+
+    private List<PaymentCallbackResult> processPaymentUpdates(List<PaymentCallbackRequest> requests, Set<String> paymentIds,
+                                                              boolean verifySignatures) {
+        Map<String, Payment> payments = paymentRepository.findAllById(paymentIds).stream()
+                .collect(Collectors.toMap(Payment::getPaymentId, Function.identity()));
+        Map<String, Payment> succeeded = new LinkedHashMap<>();
+        List<PaymentCallbackResult> results = new ArrayList<>(requests.size());
+
+        for (PaymentCallbackRequest request : requests) {
+            results.add(applyCallback(request, payments, succeeded, verifySignatures));
+        }
+
+        notificationService.notifyPaymentsSuccess(succeeded.values());
+        log.info("Processed batch of {} payment callbacks covering {} payments", requests.size(), payments.size());
+        return results;
+    }
+
+    private CreatePaymentResponse insertPayment(CreatePaymentRequest request, String idempotencyKey) {
+        String paymentId = PaymentIds.next();
+        Payment payment = new Payment(paymentId, request.merchantId(), request.customerId(),
+                request.amount(), request.currency(), request.description(), idempotencyKey);
+        payment = paymentRepository.save(payment);
+        pendingChargeRepository.save(new PendingCharge(paymentId));
+        eventPublisher.publishEvent(PaymentCreatedEvent.of(payment));
+
+        log.info("Payment {} created for merchant {} and customer {}. Charge queued, waiting for payment callback.", 
+                paymentId, request.merchantId(), request.customerId());
+
+        return mapToCreatePaymentResponse(payment);
+    }
+
+    private String callbackOutcome(RuntimeException ex) {
+        if (ex instanceof ResourceNotFoundException) {
+            return "not_found";
+        }
+        if (ex instanceof InvalidCallbackSignatureException) {
+            return "invalid_signature";
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return "rejected";
+        }
+        if (ex instanceof OptimisticLockingFailureException) {
+            return "conflict";
+        }
+        return "error";
+    }
+
+    private CreatePaymentResponse mapToCreatePaymentResponse(Payment payment) {
+        return new CreatePaymentResponse(payment.getPaymentId(), payment.getMerchantId(), 
+                payment.getCustomerId(), payment.getAmount(), payment.getCurrency(), 
+                payment.getDescription(), payment.getStatus());
     }
 
     private PaymentResponse mapToPaymentResponse(Payment payment) {
@@ -61,35 +266,99 @@ public class PaymentService {
                 payment.getDescription(), payment.getStatus(), payment.getCreatedAt(), payment.getUpdatedAt());
     }
 
-    private void processPaymentUpdate(String paymentId, java.math.BigDecimal amount, PaymentStatus status) {
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Payment %s not found".formatted(paymentId)));
+    private PaymentResponse mapToPaymentResponse(ArchivedPayment payment) {
+        return new PaymentResponse(payment.paymentId(), payment.merchantId(), payment.customerId(), payment.amount(),
+                payment.currency(), payment.description(), payment.status(), payment.createdAt(), payment.updatedAt());
+    }
+
+    private PaymentCallbackResult applyCallback(PaymentCallbackRequest request, Map<String, Payment> payments,
+                                                Map<String, Payment> succeeded, boolean verifySignatures) {
+        // a JSON null in the batch array is one bad item, not a bad batch
+        if (request == null) {
+            return new PaymentCallbackResult(null, Outcome.REJECTED, null, "callback must not be null");
+        }
+        Set<ConstraintViolation<PaymentCallbackRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            return new PaymentCallbackResult(request.paymentId(), Outcome.REJECTED, null, message);
+        }
+
+        Payment payment = payments.get(PaymentIds.canonical(request.paymentId()));
+        if (payment == null) {
+            return new PaymentCallbackResult(request.paymentId(), Outcome.NOT_FOUND, null,
+                    "Payment %s not found".formatted(request.paymentId()));
+        }
+        if (verifySignatures && !callbackSignatureVerifier.accepts(payment.getMerchantId(), request)) {
+            log.warn("Rejected callback for payment {} with invalid signature", payment.getPaymentId());
+            return new PaymentCallbackResult(payment.getPaymentId(), Outcome.REJECTED, payment.getStatus(),
+                    "Invalid callback signature");
+        }
+
+        try {
+            if (!applyStatusUpdate(payment, request.amount(), request.status())) {
+                return new PaymentCallbackResult(payment.getPaymentId(), Outcome.IGNORED, payment.getStatus(), null);
+            }
+        } catch (IllegalArgumentException ex) {
+            return new PaymentCallbackResult(payment.getPaymentId(), Outcome.REJECTED, payment.getStatus(), ex.getMessage());
+        }
+
+        if (payment.getStatus() == PaymentStatus.SUCCESS) {
+            succeeded.put(payment.getPaymentId(), payment);
+        }
+        return new PaymentCallbackResult(payment.getPaymentId(), Outcome.APPLIED, payment.getStatus(), null);
+    }
+
+    private void processPaymentUpdate(PaymentCallbackRequest request) {
+        Payment payment = Optional.of(request.paymentId())
+                .filter(PaymentIds::isValid)
+                .flatMap(paymentRepository::findById)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment %s not found".formatted(request.paymentId())));
+
+        if (!callbackSignatureVerifier.accepts(payment.getMerchantId(), request)) {
+            log.warn("Rejected callback for payment {} with invalid signature", payment.getPaymentId());
+            throw new InvalidCallbackSignatureException(
+                    "Invalid callback signature for payment %s".formatted(payment.getPaymentId()));
+        }
 
+        if (applyStatusUpdate(payment, request.amount(), request.status())
+                && payment.getStatus() == PaymentStatus.SUCCESS) {
+            notificationService.notifyPaymentSuccess(payment);
+        }
+    }
+
+    private boolean applyStatusUpdate(Payment payment, BigDecimal amount, PaymentStatus status) {
         if (payment.getAmount().compareTo(amount) != 0) {
             throw new IllegalArgumentException("Payment amount mismatch");
         }
 
         PaymentStatus currentStatus = payment.getStatus();
+        // anything but a settled status leaves the payment UNKNOWN
+        PaymentStatus target = switch (status) {
+            case SUCCESS, FAILED -> status;
+            default -> PaymentStatus.UNKNOWN;
+        };
 
-        if (status == currentStatus) {
+        if (target == currentStatus) {
             log.info("Idempotent update ignored for payment {} with status {}", payment.getPaymentId(), status);
-            return;
+            return false;
         }
 
         if (currentStatus == PaymentStatus.SUCCESS) {
             log.warn("Ignoring conflicting update for already successful payment {} with status {}", payment.getPaymentId(), status);
-            return;
+            return false;
         }
 
-        switch (status) {
-            case SUCCESS -> {
-                payment.markSuccess();
-                notificationService.notifyPaymentSuccess(payment);
-            }
+        switch (target) {
+            case SUCCESS -> payment.markSuccess();
             case FAILED -> payment.markFailed();
             default -> payment.markUnknown();
         }
 
-        log.info("Payment {} transitioned from {} to {}", payment.getPaymentId(), currentStatus, status);
+        eventPublisher.publishEvent(PaymentStatusChangedEvent.of(payment, currentStatus));
+        log.info("Payment {} transitioned from {} to {}", payment.getPaymentId(), currentStatus, target);
+        return true;
     }
 }
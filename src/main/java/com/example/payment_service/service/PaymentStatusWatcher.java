@@ -0,0 +1,129 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import com.example.payment_service.dto.PaymentResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+// parked long-poll requests per payment; a parked request holds no servlet thread, only its DeferredResult
+@Component
+public class PaymentStatusWatcher {
+
+    // DeferredResult treats a zero timeout as none at all
+    private static final Duration MIN_TIMEOUT = Duration.ofSeconds(1);
+
+    private final PaymentService paymentService;
+    private final PaymentMetrics paymentMetrics;
+    private final ConcurrentMap<String, List<DeferredResult<ResponseEntity<PaymentResponse>>>> waiters =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger parked = new AtomicInteger();
+    private final int maxWaiters;
+    private final Duration maxTimeout;
+
+    public PaymentStatusWatcher(PaymentService paymentService,
+                                PaymentMetrics paymentMetrics,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.status-watch.max-waiters:100000}") int maxWaiters,
+                                @Value("${payment.status-watch.max-timeout:30s}") Duration maxTimeout) {
+        this.paymentService = paymentService;
+        this.paymentMetrics = paymentMetrics;
+        this.maxWaiters = maxWaiters;
+        this.maxTimeout = maxTimeout;
+        Gauge.builder("payment.status.waiters", parked, AtomicInteger::get)
+                .description("Long-poll requests parked until a payment changes status")
+                .register(meterRegistry);
+    }
+
+    public DeferredResult<ResponseEntity<PaymentResponse>> await(String requestedId, PaymentStatus knownStatus,
+                                                                 Duration timeout) {
+        // events carry the id as stored, so waiters are parked under the same form
+        String paymentId = PaymentIds.canonical(requestedId);
+        Duration wait = timeout == null ? maxTimeout : clamp(timeout);
+        DeferredResult<ResponseEntity<PaymentResponse>> result = new DeferredResult<>(wait.toMillis(),
+                () -> {
+                    paymentMetrics.recordStatusWait("timeout", 1);
+                    return ResponseEntity.noContent().build();
+                });
+        if (parked.get() >= maxWaiters) {
+            paymentMetrics.recordStatusWait("rejected", 1);
+            result.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build());
+            return result;
+        }
+
+        // park before reading the current status, so a transition committing in between is not missed
+        park(paymentId, result);
+        result.onCompletion(() -> unpark(paymentId, result));
+        PaymentResponse current;
+        try {
+            current = paymentService.getPayment(paymentId);
+        } catch (RuntimeException ex) {
+            unpark(paymentId, result);
+            throw ex;
+        }
+        if (current.status() != knownStatus) {
+            unpark(paymentId, result);
+            paymentMetrics.recordStatusWait("immediate", 1);
+            result.setResult(ResponseEntity.ok(current));
+        }
+        return result;
+    }
+
+    // runs on the thread that committed, so the answer is built from the event instead of reading the payment back
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        List<DeferredResult<ResponseEntity<PaymentResponse>>> notified = waiters.remove(event.paymentId());
+        if (notified == null) {
+            return;
+        }
+        parked.addAndGet(-notified.size());
+        ResponseEntity<PaymentResponse> response = ResponseEntity.ok(new PaymentResponse(event.paymentId(),
+                event.merchantId(), event.customerId(), event.amount(), event.currency(), event.description(),
+                event.status(), event.createdAt(), event.occurredAt()));
+        paymentMetrics.recordStatusWait("notified", notified.size());
+        notified.forEach(waiter -> waiter.setResult(response));
+    }
+
+    private Duration clamp(Duration timeout) {
+        if (timeout.compareTo(MIN_TIMEOUT) < 0) {
+            return MIN_TIMEOUT;
+        }
+        return timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout;
+    }
+
+    private void park(String paymentId, DeferredResult<ResponseEntity<PaymentResponse>> waiter) {
+        waiters.compute(paymentId, (id, parkedForPayment) -> {
+            List<DeferredResult<ResponseEntity<PaymentResponse>>> list =
+                    parkedForPayment != null ? parkedForPayment : new ArrayList<>(1);
+            list.add(waiter);
+            parked.incrementAndGet();
+            return list;
+        });
+    }
+
+    private void unpark(String paymentId, DeferredResult<ResponseEntity<PaymentResponse>> waiter) {
+        waiters.computeIfPresent(paymentId, (id, parkedForPayment) -> {
+            if (parkedForPayment.remove(waiter)) {
+                parked.decrementAndGet();
+            }
+            return parkedForPayment.isEmpty() ? null : parkedForPayment;
+        });
+    }
+}
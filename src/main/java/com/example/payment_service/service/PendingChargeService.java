@@ -0,0 +1,52 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PendingCharge;
+import com.example.payment_service.repository.PendingChargeRepository;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class PendingChargeService {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingChargeService.class);
+
+    private final PendingChargeRepository pendingChargeRepository;
+    private final PaymentService paymentService;
+
+    public PendingChargeService(PendingChargeRepository pendingChargeRepository, PaymentService paymentService) {
+        this.pendingChargeRepository = pendingChargeRepository;
+        this.paymentService = paymentService;
+    }
+
+    @Transactional
+    public List<PendingCharge> claimDue(int limit, Duration lease) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<PendingCharge> due = pendingChargeRepository.findDueForUpdate(now, Limit.of(limit));
+        due.forEach(charge -> charge.claim(now.plus(lease)));
+        return due;
+    }
+
+    @Transactional
+    public void markSubmitted(String paymentId) {
+        pendingChargeRepository.deleteById(paymentId);
+    }
+
+    @Transactional
+    public void markRetry(String paymentId, OffsetDateTime retryAt, String error) {
+        pendingChargeRepository.findById(paymentId).ifPresent(charge -> charge.scheduleRetry(retryAt, error));
+    }
+
+    @Transactional
+    public void giveUp(String paymentId, PaymentStatus status, String error) {
+        pendingChargeRepository.deleteById(paymentId);
+        paymentService.resolveUndeliveredCharge(paymentId, status);
+        log.error("Charge for payment {} abandoned, payment resolved to {}: {}", paymentId, status, error);
+    }
+}
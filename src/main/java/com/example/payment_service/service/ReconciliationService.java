@@ -0,0 +1,497 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
+import com.example.payment_service.dto.ReconciliationDiscrepancy;
+import com.example.payment_service.dto.ReconciliationDiscrepancy.Type;
+import com.example.payment_service.dto.ReconciliationJobResponse;
+import com.example.payment_service.dto.ReconciliationJobResponse.State;
+import com.example.payment_service.dto.ReconciliationReport;
+import com.example.payment_service.exception.InvalidSettlementFileException;
+import com.example.payment_service.exception.ReconciliationBusyException;
+import com.example.payment_service.exception.ReconciliationCorrectionsDisabledException;
+import com.example.payment_service.exception.ResourceNotFoundException;
+import com.example.payment_service.repository.PaymentRepository;
+import com.example.payment_service.repository.PaymentSettlementView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+@Service
+public class ReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+    private static final byte[][] STATUS_NAMES = new byte[STATUSES.length][];
+    private static final byte[] HEADER = "paymentid".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_PAYMENT_ID_LENGTH = 255;
+    private static final int MAX_AMOUNT_DIGITS = 18;
+
+    static {
+        for (PaymentStatus status : STATUSES) {
+            STATUS_NAMES[status.ordinal()] = status.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final Path inbox;
+    private final int parallelism;
+    private final long segmentSize;
+    private final int batchSize;
+    private final int maxSamples;
+    private final boolean correctionsEnabled;
+    // shared by every reconciliation, so concurrent runs together hold at most parallelism connections
+    private final ExecutorService segmentPool;
+    // one run at a time off the request thread; a full queue turns further submissions away
+    private final ThreadPoolExecutor jobPool;
+    private final Cache<String, Job> jobs;
+
+    public ReconciliationService(PaymentRepository paymentRepository,
+                                 PaymentService paymentService,
+                                 @Value("${payment.reconciliation.inbox-dir:settlements}") Path inbox,
+                                 @Value("${payment.reconciliation.parallelism:0}") int parallelism,
+                                 @Value("${payment.reconciliation.segment-size:64MB}") DataSize segmentSize,
+                                 @Value("${payment.reconciliation.batch-size:1000}") int batchSize,
+                                 @Value("${payment.reconciliation.max-samples:100}") int maxSamples,
+                                 @Value("${payment.reconciliation.corrections-enabled:false}") boolean correctionsEnabled,
+                                 @Value("${payment.reconciliation.max-queued-jobs:4}") int maxQueuedJobs,
+                                 @Value("${payment.reconciliation.job-retention:24h}") Duration jobRetention) {
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.inbox = inbox.toAbsolutePath().normalize();
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // a segment is mapped as one buffer, which is int-indexed
+        this.segmentSize = Math.min(segmentSize.toBytes(), Integer.MAX_VALUE / 2);
+        this.batchSize = batchSize;
+        this.maxSamples = maxSamples;
+        this.correctionsEnabled = correctionsEnabled;
+        this.segmentPool = Executors.newFixedThreadPool(this.parallelism, new CustomizableThreadFactory("reconciliation-"));
+        this.jobPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxQueuedJobs),
+                new CustomizableThreadFactory("reconciliation-job-"));
+        this.jobs = Caffeine.newBuilder().expireAfterWrite(jobRetention).build();
+    }
+
+    // validates the request up front, so a bad file or a refused apply fails the POST rather than the job
+    public ReconciliationJobResponse submit(String fileName, boolean applyCorrections) {
+        checkCorrections(applyCorrections);
+        resolve(fileName);
+        Job job = new Job(PaymentIds.nextUuid().toString(), fileName, applyCorrections);
+        jobs.put(job.id, job);
+        try {
+            jobPool.execute(() -> run(job));
+        } catch (RejectedExecutionException ex) {
+            jobs.invalidate(job.id);
+            throw new ReconciliationBusyException("%d reconciliations are already waiting; try again later"
+                    .formatted(jobPool.getQueue().size()));
+        }
+        return job.response();
+    }
+
+    public ReconciliationJobResponse job(String jobId) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Reconciliation job %s not found".formatted(jobId));
+        }
+        return job.response();
+    }
+
+    public ReconciliationReport reconcile(String fileName, boolean applyCorrections) {
+        checkCorrections(applyCorrections);
+        Path file = resolve(fileName);
+        long started = System.nanoTime();
+        Tally tally = new Tally(maxSamples);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> segments = split(channel);
+            List<Future<?>> results = new ArrayList<>(segments.size());
+            try {
+                for (long[] segment : segments) {
+                    results.add(segmentPool.submit(() -> {
+                        reconcileSegment(channel, segment[0], segment[1], applyCorrections, tally);
+                        return null;
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException("Reconciliation of %s failed".formatted(fileName), ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Reconciliation of %s interrupted".formatted(fileName), ex);
+            } finally {
+                // queued segments of a failed run never start on the channel this method is about to close
+                results.forEach(result -> result.cancel(false));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read settlement file " + fileName, ex);
+        }
+
+        long durationMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        ReconciliationReport report = tally.report(fileName, durationMillis);
+        log.info("Reconciled {} settlement lines from {} in {} ms: {} matched, {} amount mismatches, {} status drift, "
+                        + "{} missing, {} malformed, {} corrected", report.getLines(), fileName, durationMillis,
+                report.getMatched(), report.getAmountMismatches(), report.getStatusDrift(), report.getMissing(),
+                report.getMalformed(), report.getCorrected());
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobPool.shutdownNow();
+        segmentPool.shutdownNow();
+    }
+
+    private void run(Job job) {
+        job.state = State.RUNNING;
+        try {
+            job.finish(reconcile(job.file, job.apply), null);
+        } catch (RuntimeException ex) {
+            log.error("Reconciliation job {} of {} failed", job.id, job.file, ex);
+            job.finish(null, ex.getMessage());
+        }
+        // written again, so a finished job is kept for the full retention
+        jobs.put(job.id, job);
+    }
+
+    private void checkCorrections(boolean applyCorrections) {
+        if (applyCorrections && !correctionsEnabled) {
+            throw new ReconciliationCorrectionsDisabledException(
+                    "Applying reconciliation corrections is disabled (payment.reconciliation.corrections-enabled)");
+        }
+    }
+
+    private Path resolve(String fileName) {
+        Path file = inbox.resolve(fileName).normalize();
+        if (!file.startsWith(inbox) || file.equals(inbox)) {
+            throw new InvalidSettlementFileException("Settlement file %s is outside the inbox".formatted(fileName));
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("Settlement file %s not found".formatted(fileName));
+        }
+        try {
+            if (!file.toRealPath().startsWith(inbox.toRealPath())) {
+                throw new InvalidSettlementFileException("Settlement file %s is outside the inbox".formatted(fileName));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to resolve settlement file " + fileName, ex);
+        }
+        return file;
+    }
+
+    // cuts the file into segments of roughly segmentSize that each end on a line boundary
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> segments = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8 * 1024);
+        for (long start = 0; start < size; ) {
+            long end = nextLineStart(channel, Math.min(size, start + segmentSize), size, probe);
+            segments.add(new long[] {start, end});
+            start = end;
+        }
+        return segments;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private void reconcileSegment(FileChannel channel, long start, long end, boolean applyCorrections, Tally tally)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] scratch = new byte[MAX_PAYMENT_ID_LENGTH];
+        List<SettlementLine> batch = new ArrayList<>(batchSize);
+        int limit = buffer.limit();
+
+        for (int from = 0; from < limit; ) {
+            int to = from;
+            while (to < limit && buffer.get(to) != '\n') {
+                to++;
+            }
+            int lineEnd = to > from && buffer.get(to - 1) == '\r' ? to - 1 : to;
+            boolean header = start == 0 && from == 0 && startsWithIgnoreCase(buffer, from, lineEnd, HEADER);
+            if (lineEnd > from && !header) {
+                tally.lines.increment();
+                SettlementLine line = parse(buffer, from, lineEnd, scratch);
+                if (line == null) {
+                    tally.malformed.increment();
+                } else {
+                    batch.add(line);
+                    if (batch.size() == batchSize) {
+                        compare(batch, applyCorrections, tally);
+                    }
+                }
+            }
+            from = to + 1;
+        }
+        if (!batch.isEmpty()) {
+            compare(batch, applyCorrections, tally);
+        }
+    }
+
+    private void compare(List<SettlementLine> batch, boolean applyCorrections, Tally tally) {
+        // both sides sorted by id: the IN list walks the primary key in order and the match is a merge join
+        batch.sort(Comparator.comparing(SettlementLine::paymentId));
+        List<String> paymentIds = new ArrayList<>(batch.size());
+        for (SettlementLine line : batch) {
+            // an id that is not a uuid cannot match a payment; it falls through the join below as missing
+            if (PaymentIds.isValid(line.paymentId())) {
+                paymentIds.add(line.paymentId());
+            }
+        }
+        List<PaymentSettlementView> payments = paymentIds.isEmpty()
+                ? new ArrayList<>() : new ArrayList<>(paymentRepository.findSettlementViews(paymentIds));
+        payments.sort(Comparator.comparing(PaymentSettlementView::paymentId));
+
+        List<PaymentCallbackRequest> corrections = new ArrayList<>();
+        int next = 0;
+        for (SettlementLine line : batch) {
+            while (next < payments.size() && payments.get(next).paymentId().compareTo(line.paymentId()) < 0) {
+                next++;
+            }
+            PaymentSettlementView payment = next < payments.size() && payments.get(next).paymentId().equals(line.paymentId())
+                    ? payments.get(next) : null;
+
+            if (payment == null) {
+                tally.missing.increment();
+                tally.sample(line, Type.MISSING, null);
+            } else if (payment.amount().compareTo(line.amount()) != 0) {
+                tally.amountMismatches.increment();
+                tally.sample(line, Type.AMOUNT_MISMATCH, payment);
+            } else if (payment.status() != line.status()) {
+                tally.statusDrift.increment();
+                tally.sample(line, Type.STATUS_DRIFT, payment);
+                if (applyCorrections) {
+                    corrections.add(new PaymentCallbackRequest(line.paymentId(), line.status(), line.amount()));
+                }
+            } else {
+                tally.matched.increment();
+            }
+        }
+
+        if (!corrections.isEmpty()) {
+            for (PaymentCallbackResult result : paymentService.applyGatewayStatuses(corrections, "reconciliation")) {
+                if (result.getOutcome() == PaymentCallbackResult.Outcome.APPLIED) {
+                    tally.corrected.increment();
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    // paymentId,amount,status with optional spaces around fields; extra trailing fields are ignored
+    private static SettlementLine parse(ByteBuffer buffer, int from, int to, byte[] scratch) {
+        int firstComma = indexOf(buffer, from, to, (byte) ',');
+        int secondComma = indexOf(buffer, firstComma + 1, to, (byte) ',');
+        if (firstComma < 0 || secondComma < 0) {
+            return null;
+        }
+        int statusEnd = indexOf(buffer, secondComma + 1, to, (byte) ',');
+
+        String paymentId = paymentId(buffer, from, firstComma, scratch);
+        BigDecimal amount = amount(buffer, firstComma + 1, secondComma);
+        PaymentStatus status = status(buffer, secondComma + 1, statusEnd < 0 ? to : statusEnd);
+        if (paymentId == null || amount == null || status == null) {
+            return null;
+        }
+        return new SettlementLine(paymentId, amount, status);
+    }
+
+    private static String paymentId(ByteBuffer buffer, int from, int to, byte[] scratch) {
+        from = skipSpaces(buffer, from, to);
+        to = trimSpaces(buffer, from, to);
+        int length = to - from;
+        if (length == 0 || length > scratch.length) {
+            return null;
+        }
+        buffer.get(from, scratch, 0, length);
+        return PaymentIds.canonical(new String(scratch, 0, length, StandardCharsets.ISO_8859_1));
+    }
+
+    private static BigDecimal amount(ByteBuffer buffer, int from, int to) {
+        from = skipSpaces(buffer, from, to);
+        to = trimSpaces(buffer, from, to);
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            if (b < '0' || b > '9' || ++digits > MAX_AMOUNT_DIGITS) {
+                return null;
+            }
+            unscaled = unscaled * 10 + (b - '0');
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        return digits == 0 ? null : BigDecimal.valueOf(unscaled, Math.max(scale, 0));
+    }
+
+    private static PaymentStatus status(ByteBuffer buffer, int from, int to) {
+        from = skipSpaces(buffer, from, to);
+        to = trimSpaces(buffer, from, to);
+        for (PaymentStatus status : STATUSES) {
+            byte[] name = STATUS_NAMES[status.ordinal()];
+            if (name.length == to - from && startsWithIgnoreCase(buffer, from, to, name)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWithIgnoreCase(ByteBuffer buffer, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((buffer.get(from + i) | 0x20) != (prefix[i] | 0x20)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(ByteBuffer buffer, int from, int to) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimSpaces(ByteBuffer buffer, int from, int to) {
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static final class Job {
+
+        private final String id;
+        private final String file;
+        private final boolean apply;
+        private final OffsetDateTime submittedAt = OffsetDateTime.now();
+        private volatile State state = State.QUEUED;
+        private volatile OffsetDateTime finishedAt;
+        private volatile ReconciliationReport report;
+        private volatile String error;
+
+        private Job(String id, String file, boolean apply) {
+            this.id = id;
+            this.file = file;
+            this.apply = apply;
+        }
+
+        // state is written last, so a terminal state is always read with its report or error
+        private void finish(ReconciliationReport report, String error) {
+            this.report = report;
+            this.error = error;
+            this.finishedAt = OffsetDateTime.now();
+            this.state = report != null ? State.COMPLETED : State.FAILED;
+        }
+
+        private ReconciliationJobResponse response() {
+            State current = state;
+            return new ReconciliationJobResponse(id, file, apply, current, submittedAt, finishedAt, report, error);
+        }
+    }
+
+    private record SettlementLine(String paymentId, BigDecimal amount, PaymentStatus status) {
+    }
+
+    private static final class Tally {
+
+        private final LongAdder lines = new LongAdder();
+        private final LongAdder matched = new LongAdder();
+        private final LongAdder amountMismatches = new LongAdder();
+        private final LongAdder statusDrift = new LongAdder();
+        private final LongAdder missing = new LongAdder();
+        private final LongAdder malformed = new LongAdder();
+        private final LongAdder corrected = new LongAdder();
+        private final Queue<ReconciliationDiscrepancy> samples = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger sampled = new AtomicInteger();
+        private final int maxSamples;
+
+        private Tally(int maxSamples) {
+            this.maxSamples = maxSamples;
+        }
+
+        private void sample(SettlementLine line, Type type, PaymentSettlementView payment) {
+            if (sampled.get() < maxSamples && sampled.getAndIncrement() < maxSamples) {
+                samples.add(new ReconciliationDiscrepancy(line.paymentId(), type, line.amount(), line.status(),
+                        payment == null ? null : payment.amount(), payment == null ? null : payment.status()));
+            }
+        }
+
+        private ReconciliationReport report(String file, long durationMillis) {
+            return new ReconciliationReport(file, lines.sum(), matched.sum(), amountMismatches.sum(), statusDrift.sum(),
+                    missing.sum(), malformed.sum(), corrected.sum(), durationMillis, List.copyOf(samples));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.payment_service.service;
+
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
+import com.example.payment_service.repository.PaymentRepository;
+import com.example.payment_service.service.PaymentGatewayClient.GatewayPaymentStatus;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@ConditionalOnProperty(name = "payment.sweeper.enabled", havingValue = "true")
+public class StalePaymentSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(StalePaymentSweeper.class);
+
+    private static final List<PaymentStatus> UNRESOLVED = List.of(PaymentStatus.INITIATED, PaymentStatus.UNKNOWN);
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final PaymentService paymentService;
+    private final PaymentMetrics paymentMetrics;
+    private final RateLimiter rateLimiter;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final Duration staleAfter;
+    private final Duration lease;
+
+    public StalePaymentSweeper(PaymentRepository paymentRepository,
+                               PaymentGatewayClient paymentGatewayClient,
+                               PaymentService paymentService,
+                               PaymentMetrics paymentMetrics,
+                               RateLimiter sweeperRateLimiter,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${payment.sweeper.parallelism:4}") int parallelism,
+                               @Value("${payment.sweeper.batch-size:100}") int batchSize,
+                               @Value("${payment.sweeper.stale-after:15m}") Duration staleAfter,
+                               @Value("${payment.sweeper.lease:5m}") Duration lease) {
+        this.paymentRepository = paymentRepository;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.paymentService = paymentService;
+        this.paymentMetrics = paymentMetrics;
+        this.rateLimiter = sweeperRateLimiter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("payment-sweeper-"));
+        this.batchSize = batchSize;
+        this.staleAfter = staleAfter;
+        this.lease = lease;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.sweeper.interval:1m}", initialDelayString = "${payment.sweeper.interval:1m}")
+    public void sweep() {
+        Timer.Sample sample = paymentMetrics.start();
+        int claimed = 0;
+        try {
+            List<Payment> chunk;
+            do {
+                chunk = claim();
+                claimed += chunk.size();
+                resolve(chunk);
+            } while (chunk.size() == batchSize);
+        } catch (RuntimeException ex) {
+            log.error("Stale payment sweep failed", ex);
+        } finally {
+            paymentMetrics.recordSweepRun(sample, claimed);
+        }
+        if (claimed > 0) {
+            log.info("Stale payment sweep checked {} payments with the gateway", claimed);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    // the lease keeps other nodes (and the next run) off these payments while the gateway is asked, and spaces out
+    // repeat queries for payments the gateway still reports as pending
+    private List<Payment> claim() {
+        return transactionTemplate.execute(status -> {
+            OffsetDateTime now = OffsetDateTime.now();
+            List<Payment> stale = paymentRepository.findStaleForUpdate(UNRESOLVED, now.minus(staleAfter), now,
+                    Limit.of(batchSize));
+            if (!stale.isEmpty()) {
+                paymentRepository.leaseForSweep(stale.stream().map(Payment::getPaymentId).toList(), now.plus(lease));
+            }
+            return stale;
+        });
+    }
+
+    private void resolve(List<Payment> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<PaymentCallbackRequest>> queries = chunk.stream()
+                .map(payment -> CompletableFuture.supplyAsync(() -> query(payment), workers))
+                .toList();
+        List<PaymentCallbackRequest> updates = queries.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        List<PaymentCallbackResult> results = paymentService.applyGatewayStatuses(updates, "sweep");
+        for (int i = 0; i < results.size(); i++) {
+            PaymentCallbackResult result = results.get(i);
+            if (!updates.get(i).status().isTerminal()) {
+                // parked as UNKNOWN after a 404, already counted as not_found
+                continue;
+            }
+            paymentMetrics.recordSweepOutcome(switch (result.getOutcome()) {
+                case APPLIED -> "resolved";
+                case IGNORED -> "unchanged";
+                case REJECTED -> "rejected";
+                case NOT_FOUND -> "not_found";
+            });
+            if (result.getOutcome() == PaymentCallbackResult.Outcome.REJECTED) {
+                log.warn("Gateway status for stale payment {} was rejected: {}", result.getPaymentId(), result.getMessage());
+            }
+        }
+    }
+
+    private PaymentCallbackRequest query(Payment payment) {
+        try {
+            Optional<GatewayPaymentStatus> status = RateLimiter.decorateSupplier(rateLimiter,
+                    () -> paymentGatewayClient.queryStatus(payment.getPaymentId())).get();
+            if (status.isEmpty()) {
+                // a 404 does not prove the charge never happened (the gateway may not have indexed it yet), so the
+                // payment is parked as UNKNOWN and asked about again once its lease runs out
+                paymentMetrics.recordSweepOutcome("not_found");
+                log.warn("Gateway has no record of stale payment {}, leaving it UNKNOWN", payment.getPaymentId());
+                return payment.getStatus() == PaymentStatus.INITIATED
+                        ? new PaymentCallbackRequest(payment.getPaymentId(), PaymentStatus.UNKNOWN, payment.getAmount())
+                        : null;
+            }
+            if (status.get().status() == null || !status.get().status().isTerminal()) {
+                paymentMetrics.recordSweepOutcome("pending");
+                return null;
+            }
+            return new PaymentCallbackRequest(payment.getPaymentId(), status.get().status(),
+                    status.get().amount() != null ? status.get().amount() : payment.getAmount());
+        } catch (RequestNotPermitted ex) {
+            paymentMetrics.recordSweepOutcome("rate_limited");
+            return null;
+        } catch (RuntimeException ex) {
+            log.warn("Gateway status query for stale payment {} failed: {}", payment.getPaymentId(), ex.getMessage());
+            paymentMetrics.recordSweepOutcome("error");
+            return null;
+        }
+    }
+}
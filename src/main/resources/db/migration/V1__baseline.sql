@@ -0,0 +1,56 @@
+create table payments (
+    payment_id varchar(255) not null,
+    merchant_id varchar(255) not null,
+    customer_id varchar(255) not null,
+    amount numeric(38,2) not null,
+    currency varchar(255) not null,
+    description varchar(255) not null,
+    idempotency_key varchar(255),
+    status varchar(255) not null check (status in ('INITIATED','SUCCESS','FAILED','UNKNOWN')),
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    sweep_lease_until timestamp(6) with time zone,
+    version bigint,
+    primary key (payment_id),
+    constraint uk_payments_merchant_idempotency_key unique (merchant_id, idempotency_key)
+);
+
+create index idx_payments_merchant_created on payments (merchant_id, created_at desc, payment_id desc);
+create index idx_payments_customer_created on payments (customer_id, created_at desc, payment_id desc);
+create index idx_payments_status_updated on payments (status, updated_at);
+
+create table pending_charges (
+    payment_id varchar(255) not null,
+    attempts integer not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    last_error varchar(500),
+    created_at timestamp(6) with time zone not null,
+    version bigint,
+    primary key (payment_id)
+);
+
+create index idx_pending_charges_next_attempt on pending_charges (next_attempt_at);
+
+create table notifications (
+    id varchar(255) not null,
+    payment_id varchar(255) not null,
+    customer_id varchar(255) not null,
+    channel varchar(255) not null,
+    message varchar(500) not null,
+    status varchar(255) not null check (status in ('PENDING','SENT','FAILED')),
+    attempts integer not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    last_error varchar(500),
+    created_at timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create index idx_notifications_payment_status on notifications (payment_id, status);
+create index idx_notifications_status_next_attempt on notifications (status, next_attempt_at);
+
+create table merchant_keys (
+    merchant_id varchar(255) not null,
+    secret varchar(200) not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (merchant_id)
+);
@@ -0,0 +1,6 @@
+-- payment and notification ids move from 36-character strings to the native 16-byte uuid type; every id issued so
+-- far is a canonical uuid string, so the cast is lossless and the API keeps returning the same text
+alter table payments alter column payment_id set data type uuid using payment_id::uuid;
+alter table pending_charges alter column payment_id set data type uuid using payment_id::uuid;
+alter table notifications alter column id set data type uuid using id::uuid;
+alter table notifications alter column payment_id set data type uuid using payment_id::uuid;
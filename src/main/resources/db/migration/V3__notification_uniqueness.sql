@@ -0,0 +1,24 @@
+-- one notification per (payment, channel, type); the unique key replaces the check-then-insert lookup and its
+-- (payment_id, status) index
+alter table notifications add column type varchar(255) default 'PAYMENT_SUCCESS' not null;
+alter table notifications add constraint ck_notifications_type check (type in ('PAYMENT_SUCCESS'));
+alter table notifications alter column type drop default;
+
+-- duplicates written by racing nodes before the constraint existed: keep the row furthest along (SENT, then
+-- PENDING, then FAILED), oldest first on ties
+delete from notifications n
+where exists (
+    select 1
+    from notifications d
+    where d.payment_id = n.payment_id
+      and d.channel = n.channel
+      and d.type = n.type
+      and d.id <> n.id
+      and (case d.status when 'SENT' then 0 when 'PENDING' then 1 else 2 end,
+           d.created_at, d.id)
+        < (case n.status when 'SENT' then 0 when 'PENDING' then 1 else 2 end,
+           n.created_at, n.id)
+);
+
+alter table notifications add constraint uk_notifications_payment_channel_type unique (payment_id, channel, type);
+drop index idx_notifications_payment_status;
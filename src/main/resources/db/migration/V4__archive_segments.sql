@@ -0,0 +1,8 @@
+-- catalog of archive segment files (payment.archive.dir); a row commits in the same transaction that deletes the
+-- archived payments and notifications, so only cataloged files are read
+create table archive_segments (
+    name varchar(255) not null,
+    payments integer not null,
+    created_at timestamp(6) with time zone not null,
+    primary key (name)
+);
@@ -0,0 +1,30 @@
+-- append-only journal of payment state changes (PaymentJournal); no foreign key, so the history outlives archiving
+create table payment_events (
+    seq bigint generated by default as identity,
+    payment_id uuid not null,
+    merchant_id varchar(255) not null,
+    previous_status varchar(255) check (previous_status in ('INITIATED','SUCCESS','FAILED','UNKNOWN')),
+    status varchar(255) not null check (status in ('INITIATED','SUCCESS','FAILED','UNKNOWN')),
+    amount numeric(38,2) not null,
+    currency varchar(255) not null,
+    occurred_at timestamp(6) with time zone not null,
+    recorded_at timestamp(6) with time zone not null,
+    primary key (seq)
+);
+
+create index idx_payment_events_payment on payment_events (payment_id, seq);
+
+-- payments that predate the journal get their creation and, when they have moved on, one change to the current
+-- status; the steps in between were never recorded
+insert into payment_events (payment_id, merchant_id, previous_status, status, amount, currency, occurred_at, recorded_at)
+select payment_id, merchant_id, previous_status, status, amount, currency, occurred_at, current_timestamp
+from (
+    select payment_id, merchant_id, null as previous_status, 'INITIATED' as status, amount, currency,
+           created_at as occurred_at, 0 as step
+    from payments
+    union all
+    select payment_id, merchant_id, 'INITIATED', status, amount, currency, updated_at, 1
+    from payments
+    where status <> 'INITIATED'
+) history
+order by occurred_at, step;
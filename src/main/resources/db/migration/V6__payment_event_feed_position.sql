@@ -0,0 +1,14 @@
+-- feed positions are stamped after commit by one sequencer at a time (PaymentJournal.sequence), so they become visible
+-- in increasing order; seq is taken at insert and a lower seq can commit after a higher one. Existing rows are stamped
+-- by the sequencer in seq order once it starts
+alter table payment_events add column feed_position bigint;
+
+create index idx_payment_events_feed on payment_events (feed_position, seq);
+
+create table payment_journal_head (
+    id integer not null,
+    last_position bigint not null,
+    primary key (id)
+);
+
+insert into payment_journal_head (id, last_position) values (1, 0);
@@ -0,0 +1,115 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+// the flows post unsigned callbacks, so the run must not depend on the signature default
+@TestPropertySource(properties = "payment.callback.signature.enabled=false")
+abstract class AbstractPaymentLoadTest extends AbstractStubGatewayTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractPaymentLoadTest.class);
+
+    private static final Pattern PAYMENT_ID = Pattern.compile("\"paymentId\":\"([^\"]+)\"");
+
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 200);
+    private final int iterations = Integer.getInteger("loadtest.iterations", 10_000);
+
+    @LocalServerPort
+    int port;
+
+    abstract String mode();
+
+    @Test
+    void createPollAndCallbackUnderLoad() throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[iterations];
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<?>[] flows = new CompletableFuture<?>[iterations];
+
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            inFlight.acquire();
+            int index = i;
+            long flowStarted = System.nanoTime();
+            flows[i] = runFlow(client, i)
+                    .whenComplete((ignored, ex) -> {
+                        latencies[index] = System.nanoTime() - flowStarted;
+                        if (ex != null) {
+                            failures.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(flows).exceptionally(ex -> null).join();
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        log.info("[{} threads] {} flows, concurrency {}: {} flows/s, p50 {} ms, p99 {} ms, failures {}", mode(),
+                iterations, concurrency, Math.round(iterations / (elapsed / 1e9)),
+                "%.2f".formatted(percentile(latencies, 0.50) / 1e6), "%.2f".formatted(percentile(latencies, 0.99) / 1e6),
+                failures.get());
+        assertThat(failures.get()).isZero();
+    }
+
+    private CompletableFuture<Void> runFlow(HttpClient client, int i) {
+        String body = """
+                {"merchantId":"merchant-%d","customerId":"cust-%d","amount":150000,"currency":"IDR","description":"load test"}
+                """.formatted(i % 50, i);
+        return send(client, post("/api/payments", body))
+                .thenCompose(created -> {
+                    Matcher matcher = PAYMENT_ID.matcher(created);
+                    if (!matcher.find()) {
+                        throw new IllegalStateException("No paymentId in " + created);
+                    }
+                    String paymentId = matcher.group(1);
+                    return send(client, get("/api/payments/" + paymentId))
+                            .thenCompose(ignored -> send(client, post("/api/payments/callback", """
+                                    {"paymentId":"%s","status":"SUCCESS","amount":150000}
+                                    """.formatted(paymentId))))
+                            .thenCompose(ignored -> send(client, get("/api/payments/" + paymentId)));
+                })
+                .thenApply(ignored -> null);
+    }
+
+    private CompletableFuture<String> send(HttpClient client, HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+                    }
+                    return response.body();
+                });
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
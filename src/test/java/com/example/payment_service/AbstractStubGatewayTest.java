@@ -0,0 +1,32 @@
+package com.example.payment_service;
+
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistrar;
+
+// Spring tests whose context charges a StubGateway of its own. The stub is a bean, so it starts and stops with the
+// context rather than the test class; a cached context is shared between classes, so tests that program the stub
+// reset it first
+@Import(AbstractStubGatewayTest.StubGatewayConfiguration.class)
+abstract class AbstractStubGatewayTest {
+
+    @Autowired
+    StubGateway gateway;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class StubGatewayConfiguration {
+
+        @Bean(destroyMethod = "close")
+        StubGateway stubGateway() throws IOException {
+            return new StubGateway();
+        }
+
+        @Bean
+        DynamicPropertyRegistrar stubGatewayProperties(StubGateway stubGateway) {
+            return registry -> registry.add("payment.gateway.base-url", stubGateway::baseUrl);
+        }
+    }
+}
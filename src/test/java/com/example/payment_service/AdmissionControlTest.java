@@ -0,0 +1,143 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.service.AdmissionControl;
+import com.example.payment_service.service.AdmissionControl.Limits;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ObjectUtils;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        // slow enough that a burst cannot refill while the test sends it
+        "payment.admission.merchant.permits-per-second=0.5",
+        "payment.admission.merchant.burst=3",
+        "payment.admission.max-concurrent=2",
+        // test contexts leave JMX off unless asked
+        "spring.jmx.enabled=true"
+})
+class AdmissionControlTest extends AbstractStubGatewayWebTest {
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private Limits configured;
+
+    @BeforeEach
+    void rememberLimits() {
+        configured = admissionControl.limits();
+    }
+
+    @AfterEach
+    void restoreLimits() {
+        admissionControl.update(configured);
+    }
+
+    @Test
+    void rateLimitsEachMerchantOnItsOwnBucket() throws Exception {
+        String noisy = "merchant-" + UUID.randomUUID();
+        double rejections = rejections("merchant", "create");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(createPayment(noisy).statusCode()).isEqualTo(200);
+        }
+        HttpResponse<String> limited = createPayment(noisy);
+
+        assertThat(limited.statusCode()).isEqualTo(429);
+        assertThat(limited.headers().firstValue("Retry-After")).hasValueSatisfying(seconds ->
+                assertThat(Integer.parseInt(seconds)).isBetween(1, 2));
+        assertThat(createPayment("merchant-" + UUID.randomUUID()).statusCode()).isEqualTo(200);
+        assertThat(rejections("merchant", "create") - rejections).isEqualTo(1);
+    }
+
+    @Test
+    void shedsRequestsBeyondTheConcurrencyLimit() throws Exception {
+        double rejections = rejections("concurrency", "callback");
+        // two requests already in flight fill the limit
+        assertThat(admissionControl.tryEnter("test")).isTrue();
+        assertThat(admissionControl.tryEnter("test")).isTrue();
+        try {
+            HttpResponse<String> shed = post("/api/payments/callback", """
+                    {"paymentId":"%s","status":"SUCCESS","amount":150000}
+                    """.formatted(UUID.randomUUID()));
+
+            assertThat(shed.statusCode()).isEqualTo(429);
+            assertThat(shed.headers().firstValue("Retry-After")).hasValue("1");
+            assertThat(rejections("concurrency", "callback") - rejections).isEqualTo(1);
+        } finally {
+            admissionControl.exit();
+            admissionControl.exit();
+        }
+        // the shed request gave back nothing it did not take
+        assertThat(admissionControl.inFlight()).isZero();
+    }
+
+    @Test
+    void reloadsLimitsOverJmxButNotOverHttp() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            createPayment(merchantId);
+        }
+        assertThat(createPayment(merchantId).statusCode()).isEqualTo(429);
+
+        assertThat(post("/actuator/admission", "{\"permitsPerSecond\":0}").statusCode()).isEqualTo(404);
+        assertThat(admissionControl.limits()).isEqualTo(configured);
+
+        ManagementFactory.getPlatformMBeanServer().invoke(admissionMBean(), "update",
+                new Object[] {0.0, null, null},
+                new String[] {Double.class.getName(), Integer.class.getName(), Integer.class.getName()});
+
+        assertThat(admissionControl.limits()).isEqualTo(new Limits(0, 3, 2));
+        for (int i = 0; i < 5; i++) {
+            assertThat(createPayment(merchantId).statusCode()).isEqualTo(200);
+        }
+    }
+
+    // other cached contexts in this JVM register the same endpoint under a name qualified with their context
+    private ObjectName admissionMBean() throws MalformedObjectNameException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName ours = new ObjectName("org.springframework.boot:type=Endpoint,name=Admission,context="
+                + ObjectUtils.getIdentityHexString(applicationContext));
+        return server.isRegistered(ours) ? ours : new ObjectName("org.springframework.boot:type=Endpoint,name=Admission");
+    }
+
+    private HttpResponse<String> createPayment(String merchantId) throws IOException, InterruptedException {
+        return post("/api/payments", """
+                {"merchantId":"%s","customerId":"cust-001","amount":150000,"currency":"IDR","description":"admission test"}
+                """.formatted(merchantId));
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private double rejections(String limit, String endpoint) {
+        var counter = meterRegistry.find("payment.admission.rejections").tags("limit", limit, "endpoint", endpoint)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.payment_service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    // properties win over the defaults below; repeating a command-line arg would join the values instead. The
+    // dispatchers stay off, so a create measures the request path and not the charge it queues
+    static ConfigurableApplicationContext start(StubGateway gateway, String... properties) {
+        Map<String, String> args = new LinkedHashMap<>();
+        Stream.concat(Stream.of(
+                                "spring.jpa.show-sql=false",
+                                "logging.level.root=WARN",
+                                "payment.gateway.base-url=" + gateway.baseUrl(),
+                                "payment.charge.dispatcher.enabled=false",
+                                "payment.notification.dispatcher.enabled=false"),
+                        Stream.of(properties))
+                .forEach(property -> args.put(property.substring(0, property.indexOf('=')), property));
+        return new SpringApplicationBuilder(PaymentServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.values().stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+}
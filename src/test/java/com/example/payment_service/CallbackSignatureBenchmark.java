@@ -0,0 +1,70 @@
+package com.example.payment_service;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.service.CallbackSignatureVerifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CallbackSignatureBenchmark {
+
+    private SecretKey key;
+    private PaymentCallbackRequest valid;
+    private PaymentCallbackRequest forged;
+
+    @Setup
+    public void setUp() {
+        key = new SecretKeySpec("merchant-secret-0123456789abcdef".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        PaymentCallbackRequest unsigned = new PaymentCallbackRequest(UUID.randomUUID().toString(), PaymentStatus.SUCCESS,
+                new BigDecimal("150000.00"));
+        valid = new PaymentCallbackRequest(unsigned.paymentId(), unsigned.status(), unsigned.amount(),
+                CallbackSignatureVerifier.sign(key, unsigned));
+        forged = new PaymentCallbackRequest(unsigned.paymentId(), unsigned.status(), unsigned.amount(), "00".repeat(32));
+    }
+
+    @Benchmark
+    public boolean verifyValid() {
+        return CallbackSignatureVerifier.verify(key, valid);
+    }
+
+    @Benchmark
+    public boolean verifyForged() {
+        return CallbackSignatureVerifier.verify(key, forged);
+    }
+
+    @Benchmark
+    public boolean verifyNaive() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(key);
+        String payload = valid.paymentId() + "|" + valid.status().name() + "|"
+                + valid.amount().stripTrailingZeros().toPlainString();
+        String expected = HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                valid.signature().getBytes(StandardCharsets.UTF_8));
+    }
+}
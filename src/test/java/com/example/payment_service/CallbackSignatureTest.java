@@ -0,0 +1,173 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.payment_service.domain.MerchantKey;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
+import com.example.payment_service.dto.PaymentCallbackResult.Outcome;
+import com.example.payment_service.exception.InvalidCallbackSignatureException;
+import com.example.payment_service.repository.MerchantKeyRepository;
+import com.example.payment_service.service.CallbackSignatureVerifier;
+import com.example.payment_service.service.PaymentService;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "payment.callback.signature.enabled=true",
+        "payment.callback.signature.key-refresh=200ms"
+})
+class CallbackSignatureTest extends AbstractStubGatewayTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("150000");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CallbackSignatureVerifier callbackSignatureVerifier;
+
+    @Autowired
+    private MerchantKeyRepository merchantKeyRepository;
+
+    @Test
+    void appliesACallbackSignedWithTheMerchantKey() {
+        String merchantId = merchant("secret-valid");
+        String paymentId = createPayment(merchantId);
+
+        paymentService.handlePaymentCallback(signed("secret-valid", paymentId, PaymentStatus.SUCCESS, AMOUNT));
+
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.SUCCESS);
+    }
+
+    @Test
+    void rejectsATamperedAmountOrStatus() {
+        String merchantId = merchant("secret-tamper");
+        String paymentId = createPayment(merchantId);
+        String signature = signed("secret-tamper", paymentId, PaymentStatus.SUCCESS, AMOUNT).signature();
+
+        assertThatThrownBy(() -> paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId,
+                PaymentStatus.SUCCESS, new BigDecimal("150001"), signature)))
+                .isInstanceOf(InvalidCallbackSignatureException.class);
+        assertThatThrownBy(() -> paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId,
+                PaymentStatus.FAILED, AMOUNT, signature)))
+                .isInstanceOf(InvalidCallbackSignatureException.class);
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.INITIATED);
+    }
+
+    @Test
+    void rejectsAnUnknownMerchantOrAMissingSignature() {
+        String keyless = createPayment("merchant-" + UUID.randomUUID());
+        String paymentId = createPayment(merchant("secret-missing"));
+
+        assertThatThrownBy(() -> paymentService.handlePaymentCallback(
+                signed("secret-missing", keyless, PaymentStatus.SUCCESS, AMOUNT)))
+                .isInstanceOf(InvalidCallbackSignatureException.class);
+        assertThatThrownBy(() -> paymentService.handlePaymentCallback(
+                new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS, AMOUNT)))
+                .isInstanceOf(InvalidCallbackSignatureException.class);
+        assertThatThrownBy(() -> paymentService.handlePaymentCallback(
+                new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS, AMOUNT, "zz".repeat(32))))
+                .isInstanceOf(InvalidCallbackSignatureException.class);
+    }
+
+    @Test
+    void rejectsUnsignedItemsOfABatchOneByOne() {
+        String merchantId = merchant("secret-batch");
+        String valid = createPayment(merchantId);
+        String tampered = createPayment(merchantId);
+        String unsigned = createPayment(merchantId);
+        String signature = signed("secret-batch", tampered, PaymentStatus.SUCCESS, AMOUNT).signature();
+
+        List<PaymentCallbackResult> results = paymentService.handlePaymentCallbacks(List.of(
+                signed("secret-batch", valid, PaymentStatus.SUCCESS, AMOUNT),
+                new PaymentCallbackRequest(tampered, PaymentStatus.FAILED, AMOUNT, signature),
+                new PaymentCallbackRequest(unsigned, PaymentStatus.SUCCESS, AMOUNT)));
+
+        assertThat(results).extracting(PaymentCallbackResult::getOutcome)
+                .containsExactly(Outcome.APPLIED, Outcome.REJECTED, Outcome.REJECTED);
+        assertThat(results).extracting(PaymentCallbackResult::getPaymentId).containsExactly(valid, tampered, unsigned);
+        assertThat(paymentService.getPayment(valid).status()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(paymentService.getPayment(tampered).status()).isEqualTo(PaymentStatus.INITIATED);
+    }
+
+    @Test
+    void aRotatedKeyTakesEffectAfterTheKeyRefresh() throws InterruptedException {
+        String merchantId = merchant("secret-old");
+        String paymentId = createPayment(merchantId);
+        PaymentCallbackRequest oldSigned = signed("secret-old", paymentId, PaymentStatus.SUCCESS, AMOUNT);
+        PaymentCallbackRequest newSigned = signed("secret-new", paymentId, PaymentStatus.SUCCESS, AMOUNT);
+        assertThat(callbackSignatureVerifier.accepts(merchantId, oldSigned)).isTrue();
+
+        merchantKeyRepository.save(new MerchantKey(merchantId, "secret-new"));
+
+        // the first read after key-refresh serves the old key and reloads it in the background
+        for (int i = 0; i < 100 && !callbackSignatureVerifier.accepts(merchantId, newSigned); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(callbackSignatureVerifier.accepts(merchantId, newSigned)).isTrue();
+        assertThat(callbackSignatureVerifier.accepts(merchantId, oldSigned)).isFalse();
+    }
+
+    @Test
+    void verifiesConcurrentlyWithDifferentKeys() throws Exception {
+        List<SecretKey> keys = List.of(key("secret-a"), key("secret-b"), key("secret-c"));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4_000; i++) {
+                SecretKey key = keys.get(i % keys.size());
+                SecretKey other = keys.get((i + 1) % keys.size());
+                PaymentCallbackRequest request = new PaymentCallbackRequest(UUID.randomUUID().toString(),
+                        PaymentStatus.SUCCESS, AMOUNT);
+                results.add(pool.submit(() -> {
+                    PaymentCallbackRequest signed = new PaymentCallbackRequest(request.paymentId(), request.status(),
+                            request.amount(), CallbackSignatureVerifier.sign(key, request));
+                    return CallbackSignatureVerifier.verify(key, signed) && !CallbackSignatureVerifier.verify(other, signed);
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private String merchant(String secret) {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        merchantKeyRepository.save(new MerchantKey(merchantId, secret));
+        return merchantId;
+    }
+
+    private String createPayment(String merchantId) {
+        return paymentService.createPayment(new CreatePaymentRequest(merchantId, "cust-signed", AMOUNT, "IDR",
+                "signature test")).paymentId();
+    }
+
+    private static PaymentCallbackRequest signed(String secret, String paymentId, PaymentStatus status,
+                                                 BigDecimal amount) {
+        PaymentCallbackRequest request = new PaymentCallbackRequest(paymentId, status, amount);
+        return new PaymentCallbackRequest(paymentId, status, amount,
+                CallbackSignatureVerifier.sign(key(secret), request));
+    }
+
+    private static SecretKey key(String secret) {
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PendingCharge;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.repository.PendingChargeRepository;
+import com.example.payment_service.service.ChargeDispatcher;
+import com.example.payment_service.service.PaymentService;
+import com.example.payment_service.service.PendingChargeService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// a database of its own, so the dispatchers of other cached contexts never claim these charges
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=" + ChargeDispatcherTest.DATABASE,
+        "payment.charge.dispatcher.poll-interval=1h",
+        "payment.charge.dispatcher.max-attempts=3",
+        "payment.charge.dispatcher.initial-backoff=10s",
+        "payment.charge.dispatcher.max-backoff=15s",
+        // one gateway call per dispatch attempt
+        "payment.gateway.retry.max-attempts=1"
+})
+class ChargeDispatcherTest extends AbstractStubGatewayTest {
+
+    static final String DATABASE = "jdbc:h2:mem:charge-queue;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ChargeDispatcher chargeDispatcher;
+
+    @Autowired
+    private PendingChargeService pendingChargeService;
+
+    @Autowired
+    private PendingChargeRepository pendingChargeRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetGateway() {
+        gateway.reset();
+    }
+
+    @Test
+    void claimsEachDueChargeOnceUntilItsLeaseExpires() {
+        jdbcTemplate.update("delete from pending_charges");
+        List<String> paymentIds = List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                UUID.randomUUID().toString());
+        paymentIds.forEach(paymentId -> pendingChargeRepository.save(new PendingCharge(paymentId)));
+
+        List<PendingCharge> first = pendingChargeService.claimDue(2, Duration.ofMinutes(1));
+        List<PendingCharge> second = pendingChargeService.claimDue(2, Duration.ofMinutes(1));
+
+        assertThat(first).hasSize(2);
+        assertThat(second).hasSize(1);
+        assertThat(ids(first, second)).containsExactlyInAnyOrderElementsOf(paymentIds);
+        assertThat(pendingChargeService.claimDue(2, Duration.ofMinutes(1))).isEmpty();
+        assertThat(pending(paymentIds.get(0)).orElseThrow().getAttempts()).isEqualTo(1);
+
+        // a worker that died holding the claim: once the lease runs out the charge is claimed again
+        makeDue(second.get(0).getPaymentId());
+        List<PendingCharge> reclaimed = pendingChargeService.claimDue(2, Duration.ofMinutes(1));
+
+        assertThat(reclaimed).extracting(PendingCharge::getPaymentId).containsExactly(second.get(0).getPaymentId());
+        assertThat(reclaimed.get(0).getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void backsOffAfterAFailedChargeAndRetriesUntilAccepted() throws InterruptedException {
+        gateway.respond(503, 0);
+        OffsetDateTime before = OffsetDateTime.now();
+        String paymentId = createPayment();
+        await(() -> pending(paymentId).map(charge -> charge.getLastError() != null).orElse(false));
+
+        PendingCharge retry = pending(paymentId).orElseThrow();
+        assertThat(retry.getAttempts()).isEqualTo(1);
+        assertThat(retry.getNextAttemptAt()).isBetween(before.plusSeconds(10), OffsetDateTime.now().plusSeconds(10));
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.INITIATED);
+
+        // not yet due: polling leaves it alone
+        int hits = gateway.hits();
+        chargeDispatcher.poll();
+        assertThat(gateway.hits()).isEqualTo(hits);
+
+        // the second failure doubles the delay, capped at max-backoff
+        makeDue(paymentId);
+        before = OffsetDateTime.now();
+        chargeDispatcher.poll();
+        awaitAttempts(paymentId, 2);
+        retry = pending(paymentId).orElseThrow();
+        assertThat(retry.getNextAttemptAt()).isBetween(before.plusSeconds(15), OffsetDateTime.now().plusSeconds(15));
+
+        gateway.respond(202, 0);
+        makeDue(paymentId);
+        chargeDispatcher.poll();
+
+        await(() -> pending(paymentId).isEmpty());
+        assertThat(gateway.hits()).isEqualTo(hits + 2);
+        // accepted, not settled: the gateway reports the outcome through the callback
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.INITIATED);
+    }
+
+    @Test
+    void givesUpAsUnknownAfterMaxAttempts() throws InterruptedException {
+        gateway.respond(503, 0);
+        String paymentId = createPayment();
+        await(() -> pending(paymentId).map(charge -> charge.getLastError() != null).orElse(false));
+
+        makeDue(paymentId);
+        chargeDispatcher.poll();
+        awaitAttempts(paymentId, 2);
+        makeDue(paymentId);
+        chargeDispatcher.poll();
+
+        await(() -> pending(paymentId).isEmpty());
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.UNKNOWN);
+    }
+
+    @Test
+    void failsThePaymentWhenTheGatewayRejectsTheCharge() throws InterruptedException {
+        gateway.respond(400, 0);
+        String paymentId = createPayment();
+        await(() -> pending(paymentId).isEmpty());
+
+        assertThat(gateway.hits()).isEqualTo(1);
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.FAILED);
+    }
+
+    @Test
+    void pendingChargesSurviveARestart() throws InterruptedException {
+        gateway.respond(503, 0);
+        String paymentId;
+        try (ConfigurableApplicationContext previous = BenchmarkContext.start(gateway,
+                "spring.datasource.url=" + DATABASE,
+                "payment.charge.dispatcher.enabled=true",
+                "payment.charge.dispatcher.poll-interval=1h",
+                "payment.gateway.retry.max-attempts=1")) {
+            paymentId = previous.getBean(PaymentService.class).createPayment(new CreatePaymentRequest("merchant-001",
+                    "cust-restart", new BigDecimal("150000"), "IDR", "restart test")).paymentId();
+            await(() -> pending(paymentId).map(charge -> charge.getLastError() != null).orElse(false));
+        }
+
+        // the queue lives in the database, so the next process picks the charge up where the last one left it
+        gateway.respond(202, 0);
+        makeDue(paymentId);
+        chargeDispatcher.poll();
+
+        await(() -> pending(paymentId).isEmpty());
+        assertThat(gateway.hits()).isEqualTo(2);
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.INITIATED);
+    }
+
+    private String createPayment() {
+        return paymentService.createPayment(new CreatePaymentRequest("merchant-001", "cust-dispatch",
+                new BigDecimal("150000"), "IDR", "dispatcher test")).paymentId();
+    }
+
+    private Optional<PendingCharge> pending(String paymentId) {
+        return pendingChargeRepository.findById(paymentId);
+    }
+
+    private void makeDue(String paymentId) {
+        jdbcTemplate.update("update pending_charges set next_attempt_at = ? where payment_id = ?",
+                OffsetDateTime.now().minusSeconds(1), UUID.fromString(paymentId));
+    }
+
+    private static List<String> ids(List<PendingCharge> first, List<PendingCharge> second) {
+        return Stream.concat(first.stream(), second.stream()).map(PendingCharge::getPaymentId).toList();
+    }
+
+    // poll only runs the dispatch itself when no other drain is running; one still finishing takes the work over and
+    // does it on its own thread, so the outcome is awaited rather than read right after poll returns. A claimed
+    // charge's next attempt is its two-minute lease; a failed one's is the backoff, at most max-backoff away
+    private void awaitAttempts(String paymentId, int attempts) throws InterruptedException {
+        await(() -> pending(paymentId).map(charge -> charge.getAttempts() == attempts
+                && charge.getNextAttemptAt().isBefore(OffsetDateTime.now().plusSeconds(30))).orElse(false));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.exception.PaymentGatewayException;
+import com.example.payment_service.service.PaymentGatewayClient;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.client.HttpClientErrorException;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "payment.charge.dispatcher.poll-interval=1h",
+        "payment.gateway.batch.enabled=true",
+        "payment.gateway.batch.max-size=8",
+        // wide enough that concurrently submitted charges reliably share a batch
+        "payment.gateway.batch.window=100ms",
+        "payment.gateway.batch.max-in-flight=2",
+        "payment.gateway.batch.max-queued=4",
+        "payment.gateway.retry.max-attempts=3",
+        "payment.gateway.retry.delay=10"
+})
+class GatewayChargeBatchingTest extends AbstractStubGatewayTest {
+
+    @Autowired
+    private PaymentGatewayClient client;
+
+    @Autowired
+    private CircuitBreaker gatewayCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void resetGateway() {
+        gateway.reset();
+        gatewayCircuitBreaker.reset();
+    }
+
+    @Test
+    void coalescesConcurrentChargesIntoBatchRequests() throws InterruptedException {
+        List<Payment> payments = payments("ok", 20);
+
+        Map<Payment, Throwable> failures = chargeConcurrently(payments);
+
+        assertThat(failures).isEmpty();
+        assertThat(gateway.hits()).isLessThan(payments.size());
+        assertThat(gateway.batchSizes()).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(8));
+        assertThat(gateway.batchSizes().stream().mapToInt(Integer::intValue).sum()).isEqualTo(payments.size());
+    }
+
+    @Test
+    void rejectsAndRetriesEachChargeOnItsOwn() throws InterruptedException {
+        ConcurrentMap<String, AtomicInteger> sent = new ConcurrentHashMap<>();
+        gateway.respondPerItem(paymentId -> {
+            int attempt = sent.computeIfAbsent(paymentId, id -> new AtomicInteger()).incrementAndGet();
+            if (paymentId.startsWith("reject")) {
+                return 422;
+            }
+            return paymentId.startsWith("flaky") && attempt == 1 ? 503 : 202;
+        });
+        List<Payment> payments = new ArrayList<>(payments("ok", 4));
+        payments.addAll(payments("flaky", 2));
+        payments.addAll(payments("reject", 1));
+        double rejected = recoveries("rejected");
+
+        Map<Payment, Throwable> failures = chargeConcurrently(payments);
+
+        assertThat(failures).hasSize(1);
+        assertThat(failures.keySet()).singleElement()
+                .satisfies(payment -> assertThat(payment.getPaymentId()).startsWith("reject"));
+        assertThat(failures.values()).singleElement()
+                .isInstanceOf(PaymentGatewayException.class)
+                .satisfies(ex -> assertThat(ex.getCause()).isInstanceOf(HttpClientErrorException.class));
+        assertThat(recoveries("rejected") - rejected).isEqualTo(1);
+        // only the flaky charges went out again; the rejected one is not retried
+        assertThat(sent).allSatisfy((paymentId, attempts) ->
+                assertThat(attempts.get()).isEqualTo(paymentId.startsWith("flaky") ? 2 : 1));
+    }
+
+    @Test
+    void failsEveryChargeOfAFailedBatchThroughItsOwnRetries() throws InterruptedException {
+        gateway.respond(503, 0);
+        List<Payment> payments = payments("down", 3);
+        long attempts = attempts("server_error");
+        double exhausted = recoveries("retries_exhausted");
+
+        Map<Payment, Throwable> failures = chargeConcurrently(payments);
+
+        assertThat(failures).hasSize(3).allSatisfy((payment, ex) ->
+                assertThat(ex).isInstanceOf(PaymentGatewayException.class).hasMessageContaining("after retries"));
+        assertThat(attempts("server_error") - attempts).isEqualTo(9);
+        assertThat(recoveries("retries_exhausted") - exhausted).isEqualTo(3);
+    }
+
+    @Test
+    void countsEachBatchAsOneCallTowardsTheCircuitBreaker() throws InterruptedException {
+        // every request is a 200, but most of the charges in it failed
+        gateway.respondPerItem(paymentId -> paymentId.startsWith("down") ? 503 : 202);
+        List<Payment> payments = new ArrayList<>(payments("ok", 4));
+        payments.addAll(payments("down", 20));
+
+        Map<Payment, Throwable> failures = chargeConcurrently(payments);
+
+        assertThat(failures).hasSize(20);
+        // a batch holding any failed charge is a failed call, however many charges it carried
+        CircuitBreaker.Metrics metrics = gatewayCircuitBreaker.getMetrics();
+        assertThat(metrics.getNumberOfBufferedCalls()).isEqualTo(gateway.hits());
+        assertThat(metrics.getNumberOfFailedCalls()).isPositive().isLessThanOrEqualTo(gateway.hits());
+    }
+
+    @Test
+    void shedsBatchesBeyondTheBacklog() throws InterruptedException {
+        gateway.respond(200, 500);
+        List<Payment> payments = payments("slow", 96);
+
+        Map<Payment, Throwable> failures = chargeConcurrently(payments);
+
+        // two batches in flight and four queued; the rest fail fast as if the bulkhead were full
+        assertThat(gateway.batchSizes()).hasSize(6);
+        int sent = gateway.batchSizes().stream().mapToInt(Integer::intValue).sum();
+        assertThat(failures).hasSize(payments.size() - sent).allSatisfy((payment, ex) ->
+                assertThat(ex).isInstanceOf(PaymentGatewayException.class)
+                        .hasMessage("Too many concurrent payment gateway calls"));
+    }
+
+    private Map<Payment, Throwable> chargeConcurrently(List<Payment> payments) throws InterruptedException {
+        ExecutorService callers = Executors.newFixedThreadPool(payments.size());
+        CountDownLatch start = new CountDownLatch(1);
+        Map<Payment, Future<?>> calls = new HashMap<>();
+        for (Payment payment : payments) {
+            calls.put(payment, callers.submit(() -> {
+                start.await();
+                client.initiateCharge(payment);
+                return null;
+            }));
+        }
+        start.countDown();
+
+        Map<Payment, Throwable> failures = new HashMap<>();
+        for (Map.Entry<Payment, Future<?>> call : calls.entrySet()) {
+            try {
+                call.getValue().get();
+            } catch (ExecutionException ex) {
+                failures.put(call.getKey(), ex.getCause());
+            }
+        }
+        callers.shutdown();
+        return failures;
+    }
+
+    private long attempts(String outcome) {
+        var timer = meterRegistry.find("payment.gateway.attempts").tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double recoveries(String reason) {
+        var counter = meterRegistry.find("payment.gateway.recoveries").tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static List<Payment> payments(String prefix, int count) {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            payments.add(new Payment(prefix + "-" + UUID.randomUUID(), "merchant-001", "cust-001",
+                    new BigDecimal("150000"), "IDR", "batching test"));
+        }
+        return payments;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.MerchantStatsResponse;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.service.MerchantStats;
+import com.example.payment_service.service.PaymentService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "payment.merchant-stats.resync-interval=1h"
+})
+class MerchantStatsTest extends AbstractStubGatewayWebTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private MerchantStats merchantStats;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void tracksCreatesAndTransitionsPerMerchant() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        String succeeded = createPayment(merchantId, "150000", "IDR");
+        String failed = createPayment(merchantId, "250000", "IDR");
+        createPayment(merchantId, "10.50", "USD");
+        createPayment("merchant-" + UUID.randomUUID(), "999", "IDR");
+
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(succeeded, PaymentStatus.SUCCESS,
+                new BigDecimal("150000")));
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(failed, PaymentStatus.FAILED,
+                new BigDecimal("250000")));
+
+        HttpResponse<String> response = get("/api/merchants/%s/stats".formatted(merchantId));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode stats = objectMapper.readTree(response.body());
+        assertThat(stats.get("counts").get("INITIATED").asLong()).isEqualTo(1);
+        assertThat(stats.get("counts").get("SUCCESS").asLong()).isEqualTo(1);
+        assertThat(stats.get("counts").get("FAILED").asLong()).isEqualTo(1);
+        assertThat(stats.get("amounts").get("IDR").get("SUCCESS").decimalValue()).isEqualByComparingTo("150000");
+        assertThat(stats.get("amounts").get("IDR").get("INITIATED").decimalValue()).isEqualByComparingTo("0");
+        assertThat(stats.get("amounts").get("USD").get("INITIATED").decimalValue()).isEqualByComparingTo("10.50");
+        for (String window : new String[] {"1m", "5m", "1h"}) {
+            assertThat(stats.get("windows").get(window).get("INITIATED").asLong()).isEqualTo(3);
+            assertThat(stats.get("windows").get(window).get("SUCCESS").asLong()).isEqualTo(1);
+            assertThat(stats.get("windows").get(window).get("FAILED").asLong()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void rebuildFromTheDatabaseMatchesTheIncrementalAggregates() {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            String paymentId = createPayment(merchantId, "150000", "IDR");
+            if (i % 2 == 0) {
+                paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS,
+                        new BigDecimal("150000")));
+            }
+        }
+        MerchantStatsResponse incremental = merchantStats.find(merchantId);
+
+        merchantStats.rebuild();
+        MerchantStatsResponse rebuilt = merchantStats.find(merchantId);
+
+        assertThat(rebuilt.counts()).isEqualTo(incremental.counts());
+        assertThat(rebuilt.amounts()).isEqualTo(incremental.amounts());
+        assertThat(rebuilt.windows()).isEqualTo(incremental.windows());
+        assertThat(rebuilt.counts().get(PaymentStatus.SUCCESS)).isEqualTo(3);
+    }
+
+    @Test
+    void keepsPaymentsCreatedWhileARebuildRuns() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        AtomicBoolean creating = new AtomicBoolean(true);
+        CompletableFuture<Void> rebuilds = CompletableFuture.runAsync(() -> {
+            while (creating.get()) {
+                merchantStats.rebuild();
+            }
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> created = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                created.add(pool.submit(() -> createPayment(merchantId, "1000", "IDR")));
+            }
+            for (Future<String> payment : created) {
+                payment.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            creating.set(false);
+            pool.shutdown();
+        }
+        rebuilds.get(30, TimeUnit.SECONDS);
+
+        // none is lost to a rebuild; one committing just as a snapshot starts may count twice until the next
+        assertThat(merchantStats.find(merchantId).counts().get(PaymentStatus.INITIATED)).isGreaterThanOrEqualTo(200);
+        merchantStats.rebuild();
+        assertThat(merchantStats.find(merchantId).counts().get(PaymentStatus.INITIATED)).isEqualTo(200);
+    }
+
+    @Test
+    void answersNotFoundForMerchantsWithoutPayments() throws Exception {
+        assertThat(get("/api/merchants/%s/stats".formatted(UUID.randomUUID())).statusCode()).isEqualTo(404);
+    }
+
+    private String createPayment(String merchantId, String amount, String currency) {
+        return paymentService.createPayment(new CreatePaymentRequest(merchantId, "cust-stats", new BigDecimal(amount),
+                currency, "merchant stats test")).paymentId();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.service.NotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class NotificationDeduplicationTest extends AbstractStubGatewayTest {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void writesOneNotificationPerPaymentAcrossSingleAndBatchCalls() {
+        Payment first = payment();
+        Payment second = payment();
+
+        notificationService.notifyPaymentSuccess(first);
+        notificationService.notifyPaymentsSuccess(List.of(first, second, second));
+        notificationService.notifyPaymentsSuccess(List.of(second));
+
+        assertThat(notificationsFor(first)).isEqualTo(1);
+        assertThat(notificationsFor(second)).isEqualTo(1);
+    }
+
+    @Test
+    void answersRepeatSuccessesFromTheRecentFilter() {
+        Payment payment = payment();
+        notificationService.notifyPaymentSuccess(payment);
+        double filtered = dedup("filtered");
+
+        notificationService.notifyPaymentSuccess(payment);
+
+        assertThat(dedup("filtered") - filtered).isEqualTo(1);
+        assertThat(notificationsFor(payment)).isEqualTo(1);
+    }
+
+    @Test
+    void skipsRowsWrittenByAnotherNode() {
+        Payment payment = payment();
+        // another node's row: present in the table but never seen by this node's filter
+        jdbcTemplate.update("""
+                insert into notifications (id, payment_id, customer_id, channel, type, message, status, attempts,
+                    next_attempt_at, created_at)
+                values (?, ?, 'cust-001', 'EMAIL', 'PAYMENT_SUCCESS', 'other node', 'SENT', 1, now(), now())
+                """, PaymentIds.nextUuid(), payment.getPaymentId());
+        double existing = dedup("existing");
+
+        notificationService.notifyPaymentSuccess(payment);
+
+        assertThat(dedup("existing") - existing).isEqualTo(1);
+        assertThat(notificationsFor(payment)).isEqualTo(1);
+    }
+
+    @Test
+    void forgetsNotificationsWhoseTransactionRolledBack() {
+        Payment payment = payment();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            notificationService.notifyPaymentSuccess(payment);
+            status.setRollbackOnly();
+        });
+        notificationService.notifyPaymentSuccess(payment);
+
+        assertThat(notificationsFor(payment)).isEqualTo(1);
+    }
+
+    private static Payment payment() {
+        return new Payment(PaymentIds.next(), "merchant-001", "cust-001", new BigDecimal("150000"), "IDR",
+                "notification test");
+    }
+
+    private int notificationsFor(Payment payment) {
+        return jdbcTemplate.queryForObject("select count(*) from notifications where payment_id = ?", Integer.class,
+                payment.getPaymentId());
+    }
+
+    private double dedup(String outcome) {
+        var counter = meterRegistry.find("payment.notification.dedup").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.Notification;
+import com.example.payment_service.domain.NotificationStatus;
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.service.NotificationChannel;
+import com.example.payment_service.service.NotificationDispatcher;
+import com.example.payment_service.service.NotificationService;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// a database of its own, so the dispatchers of other cached contexts never claim these notifications
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:notification-outbox;DB_CLOSE_DELAY=-1",
+        "payment.notification.dispatcher.poll-interval=1h",
+        "payment.notification.dispatcher.max-attempts=3",
+        "payment.notification.dispatcher.initial-backoff=10s",
+        "payment.notification.dispatcher.max-backoff=15s"
+})
+@Import(NotificationDispatcherTest.TestChannelConfiguration.class)
+class NotificationDispatcherTest extends AbstractStubGatewayTest {
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestChannel channel;
+
+    @BeforeEach
+    void clearOutbox() {
+        jdbcTemplate.update("delete from notifications");
+        channel.reset();
+    }
+
+    @Test
+    void twoDispatchersClaimDisjointRows() throws Exception {
+        List<UUID> queued = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            queued.add(queue());
+        }
+
+        // two nodes polling the same outbox: each claim leases its rows, so the other never takes them
+        CompletableFuture<List<UUID>> first = CompletableFuture.supplyAsync(this::claimAll);
+        CompletableFuture<List<UUID>> second = CompletableFuture.supplyAsync(this::claimAll);
+
+        List<UUID> claimed = new ArrayList<>(first.get(30, TimeUnit.SECONDS));
+        claimed.addAll(second.get(30, TimeUnit.SECONDS));
+        assertThat(claimed).containsExactlyInAnyOrderElementsOf(queued);
+        assertThat(notificationService.claimDue(10, Duration.ofMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void backsOffAfterAFailedSendAndRetriesUntilSent() {
+        UUID notificationId = queue();
+        channel.failNext(2);
+
+        OffsetDateTime before = OffsetDateTime.now();
+        notificationDispatcher.poll();
+        Map<String, Object> retry = row(notificationId);
+        assertThat(retry.get("status")).isEqualTo(NotificationStatus.PENDING.name());
+        assertThat(retry.get("attempts")).isEqualTo(1);
+        assertThat(retry.get("last_error")).isEqualTo("channel unavailable");
+        assertThat(nextAttemptAt(notificationId)).isBetween(before.plusSeconds(10), OffsetDateTime.now().plusSeconds(10));
+
+        // not yet due: polling leaves it alone
+        notificationDispatcher.poll();
+        assertThat(channel.calls()).isEqualTo(1);
+
+        // the second failure doubles the delay, capped at max-backoff
+        makeDue(notificationId);
+        before = OffsetDateTime.now();
+        notificationDispatcher.poll();
+        assertThat(row(notificationId).get("attempts")).isEqualTo(2);
+        assertThat(nextAttemptAt(notificationId)).isBetween(before.plusSeconds(15), OffsetDateTime.now().plusSeconds(15));
+
+        makeDue(notificationId);
+        notificationDispatcher.poll();
+
+        Map<String, Object> sent = row(notificationId);
+        assertThat(sent.get("status")).isEqualTo(NotificationStatus.SENT.name());
+        assertThat(sent.get("attempts")).isEqualTo(3);
+        assertThat(sent.get("last_error")).isNull();
+        assertThat(channel.calls()).isEqualTo(3);
+    }
+
+    @Test
+    void givesUpAsFailedAfterMaxAttempts() {
+        UUID notificationId = queue();
+        channel.failNext(Integer.MAX_VALUE);
+
+        notificationDispatcher.poll();
+        makeDue(notificationId);
+        notificationDispatcher.poll();
+        assertThat(row(notificationId).get("status")).isEqualTo(NotificationStatus.PENDING.name());
+        makeDue(notificationId);
+        notificationDispatcher.poll();
+
+        Map<String, Object> failed = row(notificationId);
+        assertThat(failed.get("status")).isEqualTo(NotificationStatus.FAILED.name());
+        assertThat(failed.get("attempts")).isEqualTo(3);
+
+        // a failed notification is never claimed again
+        makeDue(notificationId);
+        notificationDispatcher.poll();
+        assertThat(channel.calls()).isEqualTo(3);
+    }
+
+    @Test
+    void reclaimsARowWhoseLeaseExpired() {
+        UUID notificationId = queue();
+        List<Notification> claimed = notificationService.claimDue(10, Duration.ofMinutes(1));
+        assertThat(claimed).extracting(Notification::getId).containsExactly(notificationId);
+        assertThat(notificationService.claimDue(10, Duration.ofMinutes(1))).isEmpty();
+
+        // a dispatcher that died holding the claim: once the lease runs out the next poll delivers it
+        makeDue(notificationId);
+        notificationDispatcher.poll();
+
+        Map<String, Object> sent = row(notificationId);
+        assertThat(sent.get("status")).isEqualTo(NotificationStatus.SENT.name());
+        assertThat(sent.get("attempts")).isEqualTo(2);
+        assertThat(channel.calls()).isEqualTo(1);
+    }
+
+    @Test
+    void aClaimWhoseLeaseExpiredCannotOverwriteTheRow() {
+        UUID notificationId = queue();
+        Notification stale = notificationService.claimDue(10, Duration.ofMinutes(1)).get(0);
+
+        makeDue(notificationId);
+        notificationDispatcher.poll();
+        assertThat(row(notificationId).get("status")).isEqualTo(NotificationStatus.SENT.name());
+
+        // the first dispatcher finally hears back from its send, long after the row was claimed again and delivered
+        notificationService.markFailed(stale, "late failure");
+        notificationService.markRetry(stale, OffsetDateTime.now(), "late failure");
+        notificationService.markSent(List.of(stale));
+
+        Map<String, Object> sent = row(notificationId);
+        assertThat(sent.get("status")).isEqualTo(NotificationStatus.SENT.name());
+        assertThat(sent.get("attempts")).isEqualTo(2);
+        assertThat(sent.get("last_error")).isNull();
+    }
+
+    private UUID queue() {
+        UUID notificationId = PaymentIds.nextUuid();
+        jdbcTemplate.update("""
+                insert into notifications (id, payment_id, customer_id, channel, type, message, status, attempts,
+                    next_attempt_at, created_at)
+                values (?, ?, 'cust-001', ?, 'PAYMENT_SUCCESS', 'dispatcher test', 'PENDING', 0, ?, now())
+                """, notificationId, PaymentIds.next(), TestChannel.NAME, OffsetDateTime.now().minusSeconds(1));
+        return notificationId;
+    }
+
+    private Map<String, Object> row(UUID notificationId) {
+        return jdbcTemplate.queryForMap("select status, attempts, last_error from notifications where id = ?",
+                notificationId);
+    }
+
+    private OffsetDateTime nextAttemptAt(UUID notificationId) {
+        return jdbcTemplate.queryForObject("select next_attempt_at from notifications where id = ?",
+                OffsetDateTime.class, notificationId);
+    }
+
+    private void makeDue(UUID notificationId) {
+        jdbcTemplate.update("update notifications set next_attempt_at = ? where id = ?",
+                OffsetDateTime.now().minusSeconds(1), notificationId);
+    }
+
+    private List<UUID> claimAll() {
+        List<UUID> claimed = new ArrayList<>();
+        List<Notification> batch;
+        do {
+            batch = notificationService.claimDue(7, Duration.ofMinutes(1));
+            batch.forEach(notification -> claimed.add(notification.getId()));
+        } while (!batch.isEmpty());
+        return claimed;
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class TestChannelConfiguration {
+
+        @Bean
+        TestChannel testChannel() {
+            return new TestChannel();
+        }
+    }
+
+    // a channel of its own, so the test decides which sends fail
+    static class TestChannel implements NotificationChannel {
+
+        static final String NAME = "TEST";
+
+        private final AtomicInteger failures = new AtomicInteger();
+        private final List<UUID> calls = new ArrayList<>();
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public synchronized void send(Notification notification) {
+            calls.add(notification.getId());
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                throw new IllegalStateException("channel unavailable");
+            }
+        }
+
+        void failNext(int sends) {
+            failures.set(sends);
+        }
+
+        synchronized int calls() {
+            return calls.size();
+        }
+
+        synchronized void reset() {
+            failures.set(0);
+            calls.clear();
+        }
+    }
+}
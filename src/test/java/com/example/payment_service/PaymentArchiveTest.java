@@ -0,0 +1,239 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.ArchivedPayment;
+import com.example.payment_service.domain.NotificationStatus;
+import com.example.payment_service.domain.PaymentIds;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.MerchantStatsResponse;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.repository.MerchantStatusTotal;
+import com.example.payment_service.service.MerchantStats;
+import com.example.payment_service.service.PaymentArchive;
+import com.example.payment_service.service.PaymentArchiver;
+import com.example.payment_service.service.PaymentService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// a database of its own, since an archive run moves every settled payment it can claim
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:payment-archive;DB_CLOSE_DELAY=-1",
+        "payment.archive.enabled=true",
+        "payment.archive.interval=1h",
+        "payment.archive.batch-size=1000",
+        "payment.archive.block-size=16",
+        // segments another node catalogs are only picked up by the forced refresh of a rebuild
+        "payment.archive.refresh-interval=1h"
+})
+class PaymentArchiveTest extends AbstractStubGatewayWebTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentArchiveTest.class);
+
+    private static final Path archiveDir = createArchiveDir();
+
+    @Autowired
+    private PaymentArchiver paymentArchiver;
+
+    @Autowired
+    private PaymentArchive paymentArchive;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private MerchantStats merchantStats;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("payment.archive.dir", archiveDir::toString);
+    }
+
+    @Test
+    void movesSettledPaymentsWithTheirNotificationsAndServesThemFromTheArchive() throws Exception {
+        String merchantId = "merchant-archive";
+        PaymentSeeder.seed(jdbcTemplate, merchantId, 1, 120);
+        String settled = createPayment(merchantId);
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(settled, PaymentStatus.SUCCESS,
+                new BigDecimal("150000")));
+        awaitArchivable(settled);
+        String pending = createPayment(merchantId);
+        List<String> seeded = jdbcTemplate.queryForList(
+                "select payment_id from payments where merchant_id = ? and status = 'SUCCESS' and payment_id <> ?",
+                String.class, merchantId, settled);
+        List<String> failed = jdbcTemplate.queryForList(
+                "select payment_id from payments where merchant_id = ? and status = 'FAILED'", String.class, merchantId);
+        // seeded rows bypass the payment events
+        merchantStats.rebuild();
+        MerchantStatsResponse before = merchantStats.find(merchantId);
+
+        double segments = meterRegistry.get("payment.archive.segments").gauge().value();
+
+        int archived = paymentArchiver.archive(OffsetDateTime.now().plusSeconds(1));
+
+        assertThat(archived).isEqualTo(61);
+        // a late SUCCESS callback can still settle a FAILED payment, so those stay in the table
+        assertThat(jdbcTemplate.queryForList("select payment_id from payments where merchant_id = ?", String.class,
+                merchantId))
+                .containsExactlyInAnyOrderElementsOf(Stream.concat(failed.stream(), Stream.of(pending)).toList());
+        assertThat(jdbcTemplate.queryForObject("select count(*) from notifications", Long.class)).isZero();
+        assertThat(meterRegistry.get("payment.archive.segments").gauge().value()).isEqualTo(segments + 1);
+
+        HttpResponse<String> response = get("/api/payments/" + settled);
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode payment = objectMapper.readTree(response.body());
+        assertThat(payment.get("status").asText()).isEqualTo("SUCCESS");
+        assertThat(payment.get("merchantId").asText()).isEqualTo(merchantId);
+        for (String paymentId : seeded) {
+            assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.SUCCESS);
+        }
+        assertThat(paymentArchive.find(settled.toUpperCase())).hasValueSatisfying(record ->
+                assertThat(record.notifications()).singleElement().satisfies(notification ->
+                        assertThat(notification.status()).isEqualTo(NotificationStatus.SENT)));
+        assertThat(get("/api/payments/" + UUID.randomUUID()).statusCode()).isEqualTo(404);
+
+        String late = failed.get(0);
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(late, PaymentStatus.SUCCESS,
+                new BigDecimal("150000")));
+        assertThat(paymentService.getPayment(late).status()).isEqualTo(PaymentStatus.SUCCESS);
+        before = merchantStats.find(merchantId);
+
+        // archived payments keep counting after the aggregates are rebuilt from the table and the archive
+        merchantStats.rebuild();
+        assertThat(merchantStats.find(merchantId).counts()).isEqualTo(before.counts());
+        assertThat(merchantStats.find(merchantId).amounts()).isEqualTo(before.amounts());
+    }
+
+    @Test
+    void countsSegmentsAnotherNodeCommittedOutOfNameOrder() throws Exception {
+        String merchantId = "merchant-archive-remote";
+        // named before this node's segment but committed after it, as a slower run elsewhere would
+        String remote = PaymentIds.next();
+        PaymentSeeder.seed(jdbcTemplate, merchantId, 1, 40);
+        // only the seeded rows, not a payment another test settled just now
+        assertThat(paymentArchiver.archive(PaymentSeeder.EPOCH.plusSeconds(1))).isPositive();
+        String local = jdbcTemplate.queryForObject("select max(name) from archive_segments", String.class);
+        long archived = archivedCount(merchantId);
+        assertThat(archived).isEqualTo(20);
+
+        Files.copy(archiveDir.resolve(local + ".seg"), archiveDir.resolve(remote + ".seg"));
+        jdbcTemplate.update("insert into archive_segments (name, payments, created_at) "
+                + "select ?, payments, created_at from archive_segments where name = ?", remote, local);
+
+        long copied = jdbcTemplate.queryForObject("select payments from archive_segments where name = ?", Long.class,
+                remote);
+        assertThat(archivedCount(merchantId)).isEqualTo(archived + copied);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void looksUpArchivedPaymentsWithinMilliseconds() throws IOException {
+        int rows = Integer.getInteger("loadtest.archive.rows", 500_000);
+        PaymentSeeder.seed(jdbcTemplate, "merchant-archive-bulk", 20, rows);
+        List<String> paymentIds = jdbcTemplate.queryForList(
+                "select payment_id from payments where merchant_id like 'merchant-archive-bulk-%' and status = 'SUCCESS'",
+                String.class);
+
+        long started = System.nanoTime();
+        int archived = paymentArchiver.archive(OffsetDateTime.now().plusSeconds(1));
+        long archiveMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        long bytes;
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            bytes = files.mapToLong(file -> file.toFile().length()).sum();
+        }
+
+        int lookups = 20_000;
+        long[] nanos = new long[lookups];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < lookups; i++) {
+            String paymentId = paymentIds.get(random.nextInt(paymentIds.size()));
+            long lookupStarted = System.nanoTime();
+            ArchivedPayment found = paymentArchive.find(paymentId).orElseThrow();
+            nanos[i] = System.nanoTime() - lookupStarted;
+            assertThat(found.paymentId()).isEqualTo(paymentId);
+        }
+        Arrays.sort(nanos);
+
+        log.info("archived {} payments in {} ms into {} bytes ({} bytes each); lookup p50 {} us, p99 {} us, max {} us",
+                archived, archiveMillis, bytes, bytes / archived, nanos[lookups / 2] / 1000,
+                nanos[lookups * 99 / 100] / 1000, nanos[lookups - 1] / 1000);
+        assertThat(nanos[lookups * 99 / 100]).isLessThan(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    private long archivedCount(String merchantId) {
+        return paymentArchive.totals().stream()
+                .filter(total -> total.merchantId().startsWith(merchantId))
+                .mapToLong(MerchantStatusTotal::count)
+                .sum();
+    }
+
+    private String createPayment(String merchantId) {
+        return paymentService.createPayment(new CreatePaymentRequest(merchantId, "cust-archive",
+                new BigDecimal("150000"), "IDR", "archive test")).paymentId();
+    }
+
+    // the callback can land before the dispatcher has sent the queued charge, and the archiver skips a payment until
+    // both its charge and its notification are done
+    private void awaitArchivable(String paymentId) throws InterruptedException {
+        for (int i = 0; i < 100 && !archivable(paymentId); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(notificationStatus(paymentId)).isEqualTo(NotificationStatus.SENT.name());
+        assertThat(pendingCharges(paymentId)).isZero();
+    }
+
+    private boolean archivable(String paymentId) {
+        return NotificationStatus.SENT.name().equals(notificationStatus(paymentId)) && pendingCharges(paymentId) == 0;
+    }
+
+    private long pendingCharges(String paymentId) {
+        return jdbcTemplate.queryForObject("select count(*) from pending_charges where payment_id = ?", Long.class,
+                paymentId);
+    }
+
+    private String notificationStatus(String paymentId) {
+        return jdbcTemplate.queryForList("select status from notifications where payment_id = ?", String.class,
+                paymentId).stream().findFirst().orElse(null);
+    }
+
+    private static Path createArchiveDir() {
+        try {
+            return Files.createTempDirectory("payment-archive");
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
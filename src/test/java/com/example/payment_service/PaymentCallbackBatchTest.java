@@ -0,0 +1,162 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.repository.PaymentRepository;
+import com.example.payment_service.service.PaymentService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "payment.callback.batch.max-size=6",
+        // the six-item batches span two chunks
+        "payment.callback.batch.chunk-size=4"
+})
+class PaymentCallbackBatchTest extends AbstractStubGatewayWebTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("150000");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void answersEveryItemInRequestOrder() throws Exception {
+        String applied = createPayment();
+        String ignored = createPayment();
+        String rejected = createPayment();
+        String invalid = createPayment();
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(ignored, PaymentStatus.SUCCESS, AMOUNT));
+        String unknown = UUID.randomUUID().toString();
+
+        HttpResponse<String> response = postBatch("""
+                [{"paymentId":"%s","status":"SUCCESS","amount":150000},
+                 {"paymentId":"%s","status":"SUCCESS","amount":150000},
+                 {"paymentId":"%s","status":"SUCCESS","amount":150000},
+                 {"paymentId":"%s","status":"SUCCESS","amount":1},
+                 {"paymentId":"not-a-payment-id","status":"FAILED","amount":150000},
+                 {"paymentId":"%s","amount":150000}]
+                """.formatted(applied, ignored, unknown, rejected, invalid));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode results = objectMapper.readTree(response.body());
+        assertThat(texts(results, "outcome"))
+                .containsExactly("APPLIED", "IGNORED", "NOT_FOUND", "REJECTED", "NOT_FOUND", "REJECTED");
+        assertThat(texts(results, "paymentId"))
+                .containsExactly(applied, ignored, unknown, rejected, "not-a-payment-id", invalid);
+        assertThat(results.get(0).get("status").asText()).isEqualTo("SUCCESS");
+        assertThat(results.get(3).get("message").asText()).contains("amount");
+        assertThat(results.get(5).get("message").asText()).contains("status");
+    }
+
+    @Test
+    void oneBadItemDoesNotRollBackTheOthers() throws Exception {
+        String first = createPayment();
+        String mismatched = createPayment();
+        String last = createPayment();
+
+        HttpResponse<String> response = postBatch("""
+                [{"paymentId":"%s","status":"SUCCESS","amount":150000},
+                 {"paymentId":"%s","status":"FAILED","amount":99},
+                 {"paymentId":"%s","status":"FAILED","amount":150000}]
+                """.formatted(first, mismatched, last));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(texts(objectMapper.readTree(response.body()), "outcome"))
+                .containsExactly("APPLIED", "REJECTED", "APPLIED");
+        assertThat(paymentService.getPayment(first).status()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(paymentService.getPayment(mismatched).status()).isEqualTo(PaymentStatus.INITIATED);
+        assertThat(paymentService.getPayment(last).status()).isEqualTo(PaymentStatus.FAILED);
+    }
+
+    @Test
+    void rejectsANullItemOnItsOwn() throws Exception {
+        String applied = createPayment();
+
+        HttpResponse<String> response = postBatch("""
+                [null, {"paymentId":"%s","status":"SUCCESS","amount":150000}]
+                """.formatted(applied));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode results = objectMapper.readTree(response.body());
+        assertThat(texts(results, "outcome")).containsExactly("REJECTED", "APPLIED");
+        assertThat(results.get(0).get("message").asText()).contains("null");
+        assertThat(paymentService.getPayment(applied).status()).isEqualTo(PaymentStatus.SUCCESS);
+    }
+
+    @Test
+    void anInitiatedCallbackForAnUnknownPaymentChangesNothing() throws Exception {
+        String paymentId = createPayment();
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, PaymentStatus.UNKNOWN, AMOUNT));
+        OffsetDateTime updatedAt = paymentRepository.findById(paymentId).orElseThrow().getUpdatedAt();
+
+        // INITIATED maps to UNKNOWN, which the payment already is
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, PaymentStatus.INITIATED, AMOUNT));
+        HttpResponse<String> response = postBatch("""
+                [{"paymentId":"%s","status":"INITIATED","amount":150000}]
+                """.formatted(paymentId));
+
+        assertThat(texts(objectMapper.readTree(response.body()), "outcome")).containsExactly("IGNORED");
+        Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.UNKNOWN);
+        assertThat(payment.getUpdatedAt()).isEqualTo(updatedAt);
+    }
+
+    @Test
+    void refusesABatchOverTheMaximumSize() throws Exception {
+        List<String> items = new ArrayList<>();
+        List<String> paymentIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            String paymentId = createPayment();
+            paymentIds.add(paymentId);
+            items.add("{\"paymentId\":\"%s\",\"status\":\"SUCCESS\",\"amount\":150000}".formatted(paymentId));
+        }
+
+        HttpResponse<String> response = postBatch("[" + String.join(",", items) + "]");
+
+        assertThat(response.statusCode()).isEqualTo(413);
+        for (String paymentId : paymentIds) {
+            assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.INITIATED);
+        }
+    }
+
+    private HttpResponse<String> postBatch(String body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri("/api/payments/callbacks:batch"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String createPayment() {
+        return paymentService.createPayment(new CreatePaymentRequest("merchant-001", "cust-batch", AMOUNT, "IDR",
+                "batch callback test")).paymentId();
+    }
+
+    private static List<String> texts(JsonNode results, String field) {
+        List<String> texts = new ArrayList<>();
+        results.forEach(result -> texts.add(result.get(field).asText()));
+        return texts;
+    }
+}
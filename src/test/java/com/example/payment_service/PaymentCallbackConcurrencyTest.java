@@ -0,0 +1,127 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.Notification;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
+import com.example.payment_service.dto.PaymentCallbackResult.Outcome;
+import com.example.payment_service.repository.NotificationRepository;
+import com.example.payment_service.repository.PaymentRepository;
+import com.example.payment_service.service.PaymentService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+@SpringBootTest
+class PaymentCallbackConcurrencyTest extends AbstractStubGatewayTest {
+
+    private static final int PAYMENTS = 20;
+    private static final int CALLBACKS_PER_STATUS = 4;
+    private static final BigDecimal AMOUNT = new BigDecimal("150000");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Test
+    void conflictingCallbacksAreAppliedWithoutFailingTheGateway() throws Exception {
+        List<String> paymentIds = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            paymentIds.add(paymentService.createPayment(new CreatePaymentRequest("merchant-001", "cust-" + i,
+                    AMOUNT, "IDR", "concurrency test")).paymentId());
+        }
+
+        List<Callable<Void>> callbacks = new ArrayList<>();
+        List<Callable<Void>> otherNode = new ArrayList<>();
+        for (String paymentId : paymentIds) {
+            for (int i = 0; i < CALLBACKS_PER_STATUS; i++) {
+                // gateways are free to send the id in upper case; it has to take the same stripe
+                String sentId = i % 2 == 0 ? paymentId : paymentId.toUpperCase();
+                callbacks.add(callback(sentId, PaymentStatus.SUCCESS));
+                callbacks.add(callback(sentId, PaymentStatus.FAILED));
+            }
+            // a writer that bypasses this JVM's stripe lock, like a second instance would
+            otherNode.add(() -> {
+                paymentService.resolveUndeliveredCharge(paymentId, PaymentStatus.UNKNOWN);
+                return null;
+            });
+        }
+        Collections.shuffle(callbacks);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> callbackResults = submitAll(pool, start, callbacks);
+        List<Future<Void>> otherNodeResults = submitAll(pool, start, otherNode);
+        start.countDown();
+
+        for (Future<Void> result : callbackResults) {
+            result.get();
+        }
+        for (Future<Void> result : otherNodeResults) {
+            try {
+                result.get();
+            } catch (ExecutionException ex) {
+                assertThat(ex.getCause()).isInstanceOf(OptimisticLockingFailureException.class);
+            }
+        }
+        pool.shutdown();
+
+        assertThat(paymentRepository.findAllById(paymentIds))
+                .hasSize(PAYMENTS)
+                .allSatisfy(payment -> assertThat(payment.getStatus()).isEqualTo(PaymentStatus.SUCCESS));
+
+        Map<String, Long> notifications = notificationRepository.findAll().stream()
+                .filter(notification -> paymentIds.contains(notification.getPaymentId()))
+                .collect(Collectors.groupingBy(Notification::getPaymentId, Collectors.counting()));
+        assertThat(notifications).hasSize(PAYMENTS).allSatisfy((paymentId, count) -> assertThat(count).isEqualTo(1));
+    }
+
+    @Test
+    void batchCallbacksMatchPaymentIdsInAnyCase() {
+        String paymentId = paymentService.createPayment(new CreatePaymentRequest("merchant-001", "cust-case",
+                AMOUNT, "IDR", "case test")).paymentId();
+
+        List<PaymentCallbackResult> results = paymentService.handlePaymentCallbacks(List.of(
+                new PaymentCallbackRequest(paymentId.toUpperCase(), PaymentStatus.SUCCESS, AMOUNT)));
+
+        assertThat(results).extracting(PaymentCallbackResult::getOutcome).containsExactly(Outcome.APPLIED);
+        assertThat(paymentService.getPayment(paymentId.toUpperCase()).status()).isEqualTo(PaymentStatus.SUCCESS);
+    }
+
+    private Callable<Void> callback(String paymentId, PaymentStatus status) {
+        return () -> {
+            paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, status, AMOUNT));
+            return null;
+        };
+    }
+
+    private static List<Future<Void>> submitAll(ExecutorService pool, CountDownLatch start, List<Callable<Void>> tasks) {
+        return tasks.stream()
+                .map(task -> pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }))
+                .collect(Collectors.toList());
+    }
+}
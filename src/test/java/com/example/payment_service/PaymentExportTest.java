@@ -0,0 +1,166 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "payment.export.max-concurrent=1"
+})
+class PaymentExportTest extends AbstractStubGatewayWebTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentExportTest.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void streamsNdjsonWithinCreatedAtRange() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        PaymentSeeder.seed(jdbcTemplate, merchantId, 1, 5_000);
+
+        HttpResponse<InputStream> response = get("/api/merchants/%s/payments/export?from=%s&to=%s".formatted(merchantId,
+                PaymentSeeder.EPOCH.minusSeconds(1_000), PaymentSeeder.EPOCH.minusSeconds(500)), false);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("application/x-ndjson"));
+        List<String> lines = read(response.body());
+        assertThat(lines).hasSize(1_000);
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertThat(first.get("merchantId").asText()).isEqualTo(merchantId);
+        assertThat(first.get("createdAt").asText()).isNotBlank();
+    }
+
+    @Test
+    void streamsGzippedCsv() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        PaymentSeeder.seed(jdbcTemplate, merchantId, 1, 3_000);
+
+        HttpResponse<InputStream> response = get("/api/merchants/%s/payments/export?format=csv".formatted(merchantId), true);
+
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        List<String> lines = read(new GZIPInputStream(response.body()));
+        assertThat(lines).hasSize(3_001);
+        assertThat(lines.get(0)).startsWith("paymentId,merchantId");
+        assertThat(lines.get(1)).contains(",\"seeded payment, \"\"batch\"\" 0\",");
+    }
+
+    @Test
+    void honoursAZeroWeightForGzip() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        PaymentSeeder.seed(jdbcTemplate, merchantId, 1, 10);
+
+        HttpResponse<InputStream> response = get("/api/merchants/%s/payments/export".formatted(merchantId),
+                "gzip;q=0, identity");
+
+        assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(read(response.body())).hasSize(10);
+        HttpResponse<InputStream> wildcard = get("/api/merchants/%s/payments/export".formatted(merchantId),
+                "br, *;q=0.5");
+        assertThat(wildcard.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(read(new GZIPInputStream(wildcard.body()))).hasSize(10);
+    }
+
+    @Test
+    void refusesExportsBeyondTheConcurrencyLimit() throws Exception {
+        String large = "merchant-" + UUID.randomUUID();
+        String small = "merchant-" + UUID.randomUUID();
+        PaymentSeeder.seed(jdbcTemplate, large, 1, 100_000);
+        PaymentSeeder.seed(jdbcTemplate, small, 1, 10);
+
+        // left unread, so the export blocks on a full socket and keeps its slot
+        HttpResponse<InputStream> running = get("/api/merchants/%s/payments/export".formatted(large), false);
+        assertThat(running.statusCode()).isEqualTo(200);
+
+        HttpResponse<InputStream> refused = get("/api/merchants/%s/payments/export".formatted(small), false);
+        assertThat(refused.statusCode()).isEqualTo(429);
+        refused.body().close();
+
+        // the slot comes back once the abandoned export fails on its next write
+        running.body().close();
+        HttpResponse<InputStream> response = refused;
+        for (int i = 0; i < 100 && response.statusCode() == 429; i++) {
+            Thread.sleep(50);
+            response = get("/api/merchants/%s/payments/export".formatted(small), false);
+        }
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(read(response.body())).hasSize(10);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void heapStaysFlatWhileExportingMillionsOfRows() throws Exception {
+        int rows = Integer.getInteger("loadtest.export.rows", 500_000);
+        PaymentSeeder.seed(jdbcTemplate, "merchant-export", 1, rows);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+
+        long lines = 0;
+        long bytes = 0;
+        long midway = 0;
+        HttpResponse<InputStream> response = get("/api/merchants/merchant-export/payments/export", false);
+        try (InputStream body = response.body()) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = body.read(buffer)) != -1; ) {
+                bytes += read;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+                if (midway == 0 && lines >= rows / 2) {
+                    // live set while the cursor is open, not garbage waiting for the next young collection
+                    System.gc();
+                    midway = memory.getHeapMemoryUsage().getUsed();
+                }
+            }
+        }
+
+        log.info("exported {} rows ({} MB) with live heap growth of {} MB midway", lines, bytes >> 20,
+                (midway - baseline) >> 20);
+        assertThat(lines).isEqualTo(rows);
+        assertThat(midway - baseline).isLessThan(bytes / 4);
+    }
+
+    private HttpResponse<InputStream> get(String path, boolean gzip) throws Exception {
+        return get(path, gzip ? "gzip" : null);
+    }
+
+    private HttpResponse<InputStream> get(String path, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).GET();
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private static List<String> read(InputStream body) throws Exception {
+        try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}
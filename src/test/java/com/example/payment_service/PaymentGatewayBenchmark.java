@@ -0,0 +1,61 @@
+package com.example.payment_service;
+
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.service.PaymentGatewayClient;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class PaymentGatewayBenchmark {
+
+    @Param({"false", "true"})
+    public boolean batch;
+
+    private StubGateway gateway;
+    private ConfigurableApplicationContext context;
+    private PaymentGatewayClient client;
+    private Payment payment;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        gateway = new StubGateway();
+        context = BenchmarkContext.start(gateway, "payment.gateway.batch.enabled=" + batch);
+        client = context.getBean(PaymentGatewayClient.class);
+        payment = new Payment(UUID.randomUUID().toString(), "merchant-001", "cust-001",
+                new BigDecimal("150000"), "IDR", "benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        gateway.close();
+    }
+
+    @Benchmark
+    public void initiateCharge() {
+        client.initiateCharge(payment);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.payment_service.domain.Payment;
+import com.example.payment_service.exception.PaymentGatewayException;
+import com.example.payment_service.service.PaymentGatewayClient;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "payment.gateway.http.read-timeout=200ms",
+        "payment.gateway.retry.max-attempts=3",
+        "payment.gateway.retry.delay=10",
+        "payment.gateway.bulkhead.max-concurrent-calls=2",
+        "payment.gateway.bulkhead.max-wait=0",
+        "payment.gateway.circuit-breaker.sliding-window-size=4",
+        "payment.gateway.circuit-breaker.minimum-calls=4",
+        "payment.gateway.circuit-breaker.open-duration=1m"
+})
+class PaymentGatewayClientTest extends AbstractStubGatewayTest {
+
+    @Autowired
+    private PaymentGatewayClient client;
+
+    @Autowired
+    private CircuitBreaker gatewayCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void resetGateway() {
+        gateway.reset();
+        gatewayCircuitBreaker.reset();
+    }
+
+    @Test
+    void sendsChargeThroughPooledClient() {
+        client.initiateCharge(payment());
+
+        assertThat(gateway.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesReadTimeoutsThenRecovers() {
+        gateway.respond(200, 500);
+
+        assertThatThrownBy(() -> client.initiateCharge(payment()))
+                .isInstanceOf(PaymentGatewayException.class)
+                .hasMessageContaining("after retries");
+        assertThat(gateway.hits()).isEqualTo(3);
+    }
+
+    @Test
+    void recordsEveryAttemptAndTheRecovery() {
+        gateway.respond(503, 0);
+        long attempts = attempts("server_error");
+        double recoveries = recoveries("retries_exhausted");
+
+        assertThatThrownBy(() -> client.initiateCharge(payment())).isInstanceOf(PaymentGatewayException.class);
+
+        assertThat(attempts("server_error") - attempts).isEqualTo(3);
+        assertThat(recoveries("retries_exhausted") - recoveries).isEqualTo(1);
+    }
+
+    @Test
+    void failsFastOnceCircuitIsOpen() {
+        gateway.respond(503, 0);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.initiateCharge(payment())).isInstanceOf(PaymentGatewayException.class);
+        }
+        assertThat(gatewayCircuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        int hitsBeforeOpen = gateway.hits();
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> client.initiateCharge(payment()))
+                .isInstanceOf(PaymentGatewayException.class)
+                .hasCauseInstanceOf(CallNotPermittedException.class);
+
+        assertThat(gateway.hits()).isEqualTo(hitsBeforeOpen);
+        assertThat(System.nanoTime() - started).isLessThan(200_000_000L);
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondConcurrencyLimit() throws InterruptedException {
+        gateway.respond(200, 100);
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(callers.submit(() -> {
+                start.await();
+                client.initiateCharge(payment());
+                return null;
+            }));
+        }
+        start.countDown();
+
+        int rejected = 0;
+        for (Future<?> call : calls) {
+            try {
+                call.get();
+            } catch (ExecutionException ex) {
+                assertThat(ex.getCause()).isInstanceOf(PaymentGatewayException.class)
+                        .hasCauseInstanceOf(BulkheadFullException.class);
+                rejected++;
+            }
+        }
+        callers.shutdown();
+        assertThat(rejected).isEqualTo(2);
+    }
+
+    private long attempts(String outcome) {
+        var timer = meterRegistry.find("payment.gateway.attempts").tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double recoveries(String reason) {
+        var counter = meterRegistry.find("payment.gateway.recoveries").tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static Payment payment() {
+        return new Payment("pay-" + System.nanoTime(), "merchant-001", "cust-001",
+                new BigDecimal("150000"), "IDR", "gateway test");
+    }
+}
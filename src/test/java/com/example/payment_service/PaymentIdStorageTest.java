@@ -0,0 +1,96 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.PaymentIds;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// compares the old key (random v4 uuid in a varchar) with the new one (v7 in a native uuid column) on a file-backed
+// H2 database, so the index has to be paged like it would be on a real server
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class PaymentIdStorageTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentIdStorageTest.class);
+
+    private static final int BATCH = 1_000;
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @CsvSource({
+            "varchar(255), v4",
+            "varchar(255), v7",
+            "uuid, v4",
+            "uuid, v7"
+    })
+    void insertThroughputAndIndexSize(String columnType, String version) throws SQLException {
+        int rows = Integer.getInteger("loadtest.ids.rows", 10_000_000);
+        boolean native16 = columnType.equals("uuid");
+        boolean timeOrdered = version.equals("v7");
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + dir.resolve("ids") + ";MODE=PostgreSQL",
+                "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table payments (payment_id " + columnType + " primary key, "
+                        + "merchant_id varchar(255) not null, amount numeric(38,2) not null, "
+                        + "created_at timestamp(6) with time zone not null)");
+            }
+            connection.setAutoCommit(false);
+
+            long started = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into payments (payment_id, merchant_id, amount, created_at) values (?, ?, ?, ?)")) {
+                BigDecimal amount = new BigDecimal("150000");
+                Timestamp createdAt = Timestamp.from(Instant.now());
+                for (int i = 1; i <= rows; i++) {
+                    UUID id = timeOrdered ? PaymentIds.nextUuid() : UUID.randomUUID();
+                    insert.setObject(1, native16 ? id : id.toString());
+                    insert.setString(2, "merchant-" + (i % 100));
+                    insert.setBigDecimal(3, amount);
+                    insert.setTimestamp(4, createdAt);
+                    insert.addBatch();
+                    if (i % BATCH == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+
+            long tableBytes;
+            long count;
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet result = statement.executeQuery("select disk_space_used('payments')")) {
+                    result.next();
+                    tableBytes = result.getLong(1);
+                }
+                try (ResultSet result = statement.executeQuery("select count(*) from payments")) {
+                    result.next();
+                    count = result.getLong(1);
+                }
+            }
+            log.info("{} {}: {} rows in {} ms, {} rows/s, table+index {} MB", columnType, version, count, elapsedMillis,
+                    Math.round(rows * 1000.0 / elapsedMillis), tableBytes >> 20);
+            assertThat(count).isEqualTo(rows);
+        }
+    }
+}
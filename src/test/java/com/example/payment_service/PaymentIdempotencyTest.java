@@ -0,0 +1,123 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.service.PaymentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+class PaymentIdempotencyTest extends AbstractStubGatewayWebTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void concurrentRequestsWithOneKeyCreateOnePayment() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        String key = UUID.randomUUID().toString();
+        List<CompletableFuture<HttpResponse<String>>> requests = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            requests.add(client.sendAsync(create(merchantId, key, "150000"), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        Set<String> paymentIds = new HashSet<>();
+        for (CompletableFuture<HttpResponse<String>> request : requests) {
+            HttpResponse<String> response = request.get(10, TimeUnit.SECONDS);
+            assertThat(response.statusCode()).isEqualTo(200);
+            paymentIds.add(paymentId(response));
+        }
+
+        assertThat(paymentIds).hasSize(1);
+        assertThat(stored(merchantId, key)).isEqualTo(1);
+    }
+
+    @Test
+    void aReplayReturnsTheSamePayment() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        String key = UUID.randomUUID().toString();
+
+        HttpResponse<String> first = send(create(merchantId, key, "150000"));
+        HttpResponse<String> replay = send(create(merchantId, key, "150000.00"));
+
+        assertThat(first.statusCode()).isEqualTo(200);
+        assertThat(replay.statusCode()).isEqualTo(200);
+        assertThat(paymentId(replay)).isEqualTo(paymentId(first));
+        // the key is scoped to the merchant
+        HttpResponse<String> otherMerchant = send(create("merchant-" + UUID.randomUUID(), key, "150000"));
+        assertThat(paymentId(otherMerchant)).isNotEqualTo(paymentId(first));
+        assertThat(stored(merchantId, key)).isEqualTo(1);
+    }
+
+    @Test
+    void aDifferentPayloadUnderTheSameKeyIsAConflict() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        String key = UUID.randomUUID().toString();
+        assertThat(send(create(merchantId, key, "150000")).statusCode()).isEqualTo(200);
+
+        HttpResponse<String> conflict = send(create(merchantId, key, "175000"));
+
+        assertThat(conflict.statusCode()).isEqualTo(409);
+        assertThat(stored(merchantId, key)).isEqualTo(1);
+    }
+
+    @Test
+    void findsThePaymentAnotherNodeStoredWhenTheCacheMisses() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        String key = UUID.randomUUID().toString();
+        // stored without going through this node's idempotency cache, as a request served elsewhere would be
+        String stored = paymentService.createPayment(new CreatePaymentRequest(merchantId, "cust-idem",
+                new BigDecimal("150000"), "IDR", "idempotency test"), key).paymentId();
+
+        HttpResponse<String> response = send(create(merchantId, key, "150000"));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(paymentId(response)).isEqualTo(stored);
+        assertThat(stored(merchantId, key)).isEqualTo(1);
+        assertThat(send(create(merchantId, key, "1")).statusCode()).isEqualTo(409);
+    }
+
+    private HttpRequest create(String merchantId, String key, String amount) {
+        return HttpRequest.newBuilder(uri("/api/payments"))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"merchantId":"%s","customerId":"cust-idem","amount":%s,"currency":"IDR","description":"idempotency test"}
+                        """.formatted(merchantId, amount)))
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String paymentId(HttpResponse<String> response) throws IOException {
+        return objectMapper.readTree(response.body()).get("paymentId").asText();
+    }
+
+    private long stored(String merchantId, String key) {
+        return jdbcTemplate.queryForObject("select count(*) from payments where merchant_id = ? and idempotency_key = ?",
+                Long.class, merchantId, key);
+    }
+}
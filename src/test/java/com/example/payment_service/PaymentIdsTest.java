@@ -0,0 +1,75 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.example.payment_service.domain.PaymentIds;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class PaymentIdsTest {
+
+    @Test
+    void staysIncreasingWithinOneMillisecond() {
+        long now = System.currentTimeMillis();
+        // more than the 4096 the counter holds, so the last ones carry into the next millisecond
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(PaymentIds.nextUuid(now).toString());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(millis(ids.get(0))).isGreaterThanOrEqualTo(now);
+    }
+
+    @Test
+    void staysIncreasingWhenTheClockStepsBack() {
+        long now = System.currentTimeMillis();
+        String before = PaymentIds.nextUuid(now).toString();
+        String after = PaymentIds.nextUuid(now - 5_000).toString();
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(millis(after)).isGreaterThanOrEqualTo(millis(before));
+    }
+
+    @Test
+    void setsTheVersionAndVariantBits() {
+        UUID id = UUID.fromString(PaymentIds.next());
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(millis(id.toString())).isCloseTo(System.currentTimeMillis(), within(5_000L));
+    }
+
+    @Test
+    void acceptsOnlyTheFullHexForm() {
+        String id = PaymentIds.next();
+
+        assertThat(PaymentIds.isValid(id)).isTrue();
+        assertThat(PaymentIds.isValid(id.toUpperCase())).isTrue();
+        assertThat(PaymentIds.isValid(null)).isFalse();
+        assertThat(PaymentIds.isValid("")).isFalse();
+        assertThat(PaymentIds.isValid("1-1-1-1-1")).isFalse();
+        assertThat(PaymentIds.isValid(id.substring(1))).isFalse();
+        assertThat(PaymentIds.isValid(id + "0")).isFalse();
+        assertThat(PaymentIds.isValid("g" + id.substring(1))).isFalse();
+        assertThat(PaymentIds.isValid(id.replace('-', '0'))).isFalse();
+        assertThat(PaymentIds.isValid(id.substring(0, 8) + "0" + id.substring(9, 13) + "-" + id.substring(14)))
+                .isFalse();
+    }
+
+    @Test
+    void canonicalFormIsLowerCase() {
+        String id = PaymentIds.next();
+
+        assertThat(PaymentIds.canonical(id.toUpperCase())).isEqualTo(id);
+        assertThat(PaymentIds.canonical(id)).isSameAs(id);
+        assertThat(PaymentIds.canonical(null)).isNull();
+    }
+
+    private static long millis(String id) {
+        return Long.parseLong(id.substring(0, 8) + id.substring(9, 13), 16);
+    }
+}
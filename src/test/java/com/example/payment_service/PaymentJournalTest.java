@@ -0,0 +1,272 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.service.PaymentJournal;
+import com.example.payment_service.service.PaymentService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+class PaymentJournalTest extends AbstractStubGatewayWebTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentJournalTest.class);
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentJournal paymentJournal;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void journalsCommittedTransitionsAndReplaysThem() throws Exception {
+        long start = lastPosition();
+        String merchantId = "merchant-" + UUID.randomUUID();
+        String retried = createPayment(merchantId);
+        String succeeded = createPayment(merchantId);
+        String failed = createPayment(merchantId);
+        OffsetDateTime created = OffsetDateTime.now();
+        Thread.sleep(5);
+
+        paymentService.handlePaymentCallback(callback(retried, PaymentStatus.UNKNOWN));
+        paymentService.handlePaymentCallback(callback(retried, PaymentStatus.SUCCESS));
+        // neither a duplicate nor a rejected callback changes the payment, so neither is journaled
+        paymentService.handlePaymentCallback(callback(retried, PaymentStatus.SUCCESS));
+        assertThatThrownBy(() -> paymentService.handlePaymentCallback(new PaymentCallbackRequest(retried,
+                PaymentStatus.FAILED, new BigDecimal("1")))).isInstanceOf(IllegalArgumentException.class);
+        long writes = meterRegistry.get("payment.journal.writes").timer().count();
+        double appended = meterRegistry.get("payment.journal.events").counter().count();
+        paymentService.handlePaymentCallbacks(List.of(callback(succeeded, PaymentStatus.SUCCESS),
+                callback(failed, PaymentStatus.FAILED)));
+        // one insert for the whole batch transaction
+        assertThat(meterRegistry.get("payment.journal.writes").timer().count()).isEqualTo(writes + 1);
+        assertThat(meterRegistry.get("payment.journal.events").counter().count()).isEqualTo(appended + 2);
+
+        HttpResponse<String> history = get("/api/payments/" + retried + "/events");
+        assertThat(history.statusCode()).isEqualTo(200);
+        JsonNode events = objectMapper.readTree(history.body());
+        assertThat(events).hasSize(3);
+        assertThat(events.get(0).get("previousStatus").isNull()).isTrue();
+        assertThat(texts(events, "status")).containsExactly("INITIATED", "UNKNOWN", "SUCCESS");
+        assertThat(texts(events, "previousStatus")).containsExactly("null", "INITIATED", "UNKNOWN");
+        assertThat(events.get(2).get("amount").decimalValue()).isEqualByComparingTo("150000");
+        assertThat(get("/api/payments/" + UUID.randomUUID() + "/events").statusCode()).isEqualTo(404);
+
+        // paging through the feed in small pages yields every event once, in position order
+        paymentJournal.sequence();
+        Set<String> ours = Set.of(retried, succeeded, failed);
+        List<JsonNode> feed = new ArrayList<>();
+        long after = start;
+        List<JsonNode> page;
+        do {
+            page = ndjson(get("/api/payment-events?after=%d&limit=2".formatted(after)).body());
+            assertThat(page.size()).isLessThanOrEqualTo(2);
+            feed.addAll(page);
+            after = page.isEmpty() ? after : page.get(page.size() - 1).get("position").asLong();
+        } while (!page.isEmpty());
+        assertThat(feed).extracting(event -> event.get("position").asLong()).isSorted().doesNotHaveDuplicates();
+        List<JsonNode> ourEvents = feed.stream().filter(event -> ours.contains(event.get("paymentId").asText())).toList();
+        assertThat(ourEvents).hasSize(7);
+        assertThat(ourEvents).allSatisfy(event -> assertThat(event.get("merchantId").asText()).isEqualTo(merchantId));
+
+        // the replayed state matches the table now, and shows every payment as just created before the callbacks
+        Map<String, JsonNode> now = states(get("/api/payment-events/state").body());
+        for (String paymentId : ours) {
+            assertThat(now.get(paymentId).get("status").asText())
+                    .isEqualTo(paymentService.getPayment(paymentId).status().name());
+        }
+        assertThat(now.get(retried).get("lastSeq").asLong()).isEqualTo(events.get(2).get("seq").asLong());
+        Map<String, JsonNode> before = states(get("/api/payment-events/state?at=" + created.toInstant()).body());
+        for (String paymentId : ours) {
+            assertThat(before.get(paymentId).get("status").asText()).isEqualTo("INITIATED");
+        }
+    }
+
+    @Test
+    void aCursorNeverSkipsAnEventWhoseTransactionCommitsLate() throws Exception {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        paymentJournal.sequence();
+        try (Connection slow = dataSource.getConnection()) {
+            // the slow transaction takes the lower seq but commits after the fast one has been fed
+            slow.setAutoCommit(false);
+            insertEvent(slow, merchantId);
+            try (Connection fast = dataSource.getConnection()) {
+                insertEvent(fast, merchantId);
+            }
+            paymentJournal.sequence();
+            List<JsonNode> fed = ours(merchantId, 0);
+            assertThat(fed).hasSize(1);
+            long cursor = fed.get(0).get("position").asLong();
+
+            slow.commit();
+            paymentJournal.sequence();
+            List<JsonNode> late = ours(merchantId, cursor);
+
+            assertThat(late).hasSize(1);
+            assertThat(late.get(0).get("seq").asLong()).isLessThan(fed.get(0).get("seq").asLong());
+            assertThat(late.get(0).get("position").asLong()).isGreaterThan(cursor);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void streamsTheJournalAtHighThroughput() throws Exception {
+        int rows = Integer.getInteger("loadtest.journal.events", 1_000_000);
+        long start = lastPosition();
+        seedEvents(rows);
+        long started = System.nanoTime();
+        long sequenced = paymentJournal.sequence();
+        long sequenceMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        started = System.nanoTime();
+        long streamed = 0;
+        long bytes = 0;
+        long after = start;
+        while (true) {
+            HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(
+                            uri("/api/payment-events?after=%d&limit=100000".formatted(after)))
+                            .header("Accept-Encoding", "gzip").build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            String page;
+            try (InputStream body = new GZIPInputStream(response.body())) {
+                page = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (page.isEmpty()) {
+                break;
+            }
+            bytes += page.length();
+            streamed += page.chars().filter(c -> c == '\n').count();
+            after = readTree(page.substring(page.lastIndexOf('\n', page.length() - 2) + 1)).get("position").asLong();
+        }
+        long feedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        started = System.nanoTime();
+        long states;
+        try (InputStream body = client.send(HttpRequest.newBuilder(uri("/api/payment-events/state")).build(),
+                HttpResponse.BodyHandlers.ofInputStream()).body()) {
+            states = body.readAllBytes().length;
+        }
+        long replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        log.info("sequenced {} events in {} ms; fed {} events ({} MB uncompressed) in {} ms, {} events/s; "
+                        + "replayed state ({} MB) in {} ms", sequenced, sequenceMillis, streamed, bytes >> 20, feedMillis,
+                streamed * 1000 / Math.max(1, feedMillis), states >> 20, replayMillis);
+        assertThat(streamed).isGreaterThanOrEqualTo(rows);
+    }
+
+    // every payment gets a creation and a transition to SUCCESS, as a journal of a busy day would
+    private void seedEvents(int rows) {
+        String sql = "insert into payment_events (payment_id, merchant_id, previous_status, status, amount, currency, "
+                + "occurred_at, recorded_at) values (?, ?, ?, ?, 150000, 'IDR', ?, ?)";
+        Timestamp at = Timestamp.from(PaymentSeeder.EPOCH.toInstant());
+        for (int from = 0; from < rows; from += 10_000) {
+            List<Object[]> batch = new ArrayList<>(10_000);
+            UUID paymentId = null;
+            for (int i = from; i < Math.min(rows, from + 10_000); i++) {
+                boolean creation = i % 2 == 0;
+                paymentId = creation ? UUID.randomUUID() : paymentId;
+                batch.add(new Object[] {paymentId, "merchant-journal-" + (i % 20), creation ? null : "INITIATED",
+                        creation ? "INITIATED" : "SUCCESS", at, at});
+            }
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    private long lastPosition() {
+        paymentJournal.sequence();
+        return jdbcTemplate.queryForObject("select coalesce(max(feed_position), 0) from payment_events", Long.class);
+    }
+
+    private List<JsonNode> ours(String merchantId, long after) throws Exception {
+        return ndjson(get("/api/payment-events?after=" + after + "&limit=100000").body()).stream()
+                .filter(event -> event.get("merchantId").asText().equals(merchantId))
+                .toList();
+    }
+
+    private static void insertEvent(Connection connection, String merchantId) throws Exception {
+        try (PreparedStatement insert = connection.prepareStatement("insert into payment_events (payment_id, "
+                + "merchant_id, status, amount, currency, occurred_at, recorded_at) "
+                + "values (?, ?, 'INITIATED', 150000, 'IDR', current_timestamp, current_timestamp)")) {
+            insert.setObject(1, UUID.randomUUID());
+            insert.setString(2, merchantId);
+            insert.executeUpdate();
+        }
+    }
+
+    private List<JsonNode> ndjson(String body) {
+        return body.lines().map(this::readTree).toList();
+    }
+
+    private Map<String, JsonNode> states(String body) {
+        return ndjson(body).stream().collect(Collectors.toMap(state -> state.get("paymentId").asText(),
+                Function.identity()));
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static List<String> texts(JsonNode events, String field) {
+        List<String> texts = new ArrayList<>();
+        events.forEach(event -> texts.add(event.get(field).asText()));
+        return texts;
+    }
+
+    private String createPayment(String merchantId) {
+        return paymentService.createPayment(new CreatePaymentRequest(merchantId, "cust-journal",
+                new BigDecimal("150000"), "IDR", "journal test")).paymentId();
+    }
+
+    private static PaymentCallbackRequest callback(String paymentId, PaymentStatus status) {
+        return new PaymentCallbackRequest(paymentId, status, new BigDecimal("150000"));
+    }
+}
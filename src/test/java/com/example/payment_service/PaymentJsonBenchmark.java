@@ -0,0 +1,110 @@
+package com.example.payment_service;
+
+import com.example.payment_service.config.JsonConfig;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.CreatePaymentResponse;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentJsonBenchmark {
+
+    // boot: the ObjectMapper Spring Boot builds on its own; tuned: plus the modules from JsonConfig
+    @Param({"boot", "tuned"})
+    private String profile;
+
+    private ObjectReader createPaymentReader;
+    private ObjectReader callbackReader;
+    private ObjectWriter responseWriter;
+    private ObjectWriter createResponseWriter;
+    private byte[] createPaymentJson;
+    private byte[] callbackJson;
+    private PaymentResponse response;
+    private CreatePaymentResponse createResponse;
+    private Validator validator;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        // same settings Spring Boot applies to the MVC ObjectMapper
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (profile.equals("tuned")) {
+            JsonConfig config = new JsonConfig();
+            builder.modulesToInstall(config.blackbirdModule(), config.timestampModule(4096));
+        }
+        ObjectMapper mapper = builder.build();
+        createPaymentReader = mapper.readerFor(CreatePaymentRequest.class);
+        callbackReader = mapper.readerFor(PaymentCallbackRequest.class);
+        responseWriter = mapper.writerFor(PaymentResponse.class);
+        createResponseWriter = mapper.writerFor(CreatePaymentResponse.class);
+
+        String paymentId = UUID.randomUUID().toString();
+        createPaymentJson = mapper.writeValueAsBytes(new CreatePaymentRequest("merchant-001", "cust-001",
+                new BigDecimal("150000"), "IDR", "Pembayaran pesanan #1001"));
+        callbackJson = mapper.writeValueAsBytes(new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS,
+                new BigDecimal("150000")));
+        OffsetDateTime now = OffsetDateTime.now();
+        response = new PaymentResponse(paymentId, "merchant-001", "cust-001", new BigDecimal("150000"), "IDR",
+                "Pembayaran pesanan #1001", PaymentStatus.SUCCESS, now, now);
+        createResponse = new CreatePaymentResponse(paymentId, "merchant-001", "cust-001", new BigDecimal("150000"),
+                "IDR", "Pembayaran pesanan #1001", PaymentStatus.INITIATED);
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+    }
+
+    @Benchmark
+    public CreatePaymentRequest readCreatePaymentRequest() throws Exception {
+        return createPaymentReader.readValue(createPaymentJson);
+    }
+
+    @Benchmark
+    public PaymentCallbackRequest readPaymentCallbackRequest() throws Exception {
+        return callbackReader.readValue(callbackJson);
+    }
+
+    // what the callback endpoint does per request before any database work
+    @Benchmark
+    public Set<ConstraintViolation<PaymentCallbackRequest>> readAndValidatePaymentCallbackRequest() throws Exception {
+        return validator.validate(callbackReader.<PaymentCallbackRequest>readValue(callbackJson));
+    }
+
+    @Benchmark
+    public byte[] writeCreatePaymentResponse() throws Exception {
+        return createResponseWriter.writeValueAsBytes(createResponse);
+    }
+
+    @Benchmark
+    public byte[] writePaymentResponse() throws Exception {
+        return responseWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.config.JsonConfig;
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+class PaymentJsonTest {
+
+    private final ObjectMapper boot = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    // two slots, so the values below also evict each other
+    private final ObjectMapper tuned = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .modulesToInstall(new JsonConfig().blackbirdModule(), new JsonConfig().timestampModule(2))
+            .build();
+
+    @Test
+    void tunedMapperWritesTheSameJsonAsTheBootDefaults() throws Exception {
+        OffsetDateTime created = OffsetDateTime.of(2026, 3, 1, 9, 30, 0, 0, ZoneOffset.UTC);
+        for (OffsetDateTime updated : new OffsetDateTime[] {
+                created.plusNanos(123_456_000), created.withOffsetSameInstant(ZoneOffset.ofHours(7)),
+                created.plusNanos(1), created, created.plusNanos(123_456_000)}) {
+            PaymentResponse response = new PaymentResponse("018f3a6e-7c1d-7b2a-9c4e-5d6f7a8b9c0d", "merchant-001",
+                    "cust-001", new BigDecimal("150000.00"), "IDR", "Pembayaran", PaymentStatus.SUCCESS, created, updated);
+
+            // twice, so the second write is served from the timestamp cache
+            assertThat(tuned.writeValueAsString(response)).isEqualTo(boot.writeValueAsString(response));
+            assertThat(tuned.writeValueAsString(response)).isEqualTo(boot.writeValueAsString(response));
+        }
+    }
+
+    @Test
+    void createPaymentRequestDefaultsTheCurrency() throws Exception {
+        CreatePaymentRequest request = tuned.readValue("""
+                {"merchantId":"merchant-001","customerId":"cust-001","amount":150000,"description":"Pembayaran"}
+                """, CreatePaymentRequest.class);
+
+        assertThat(request.currency()).isEqualTo("IDR");
+        assertThat(request.amount()).isEqualByComparingTo("150000");
+    }
+}
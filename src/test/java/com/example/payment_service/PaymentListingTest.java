@@ -0,0 +1,101 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.PaymentPageResponse;
+import com.example.payment_service.dto.PaymentResponse;
+import com.example.payment_service.repository.PaymentListing.Owner;
+import com.example.payment_service.service.PaymentListingService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class PaymentListingTest extends AbstractStubGatewayTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentListingTest.class);
+
+    @Autowired
+    private PaymentListingService paymentListingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void walksEveryMatchingPaymentExactlyOnceNewestFirst() {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        PaymentSeeder.seed(jdbcTemplate, merchantId, 1, 250);
+
+        List<PaymentResponse> seen = walk(Owner.MERCHANT, merchantId, PaymentStatus.SUCCESS, 40);
+
+        assertThat(seen).hasSize(126)
+                .allSatisfy(payment -> assertThat(payment.status()).isEqualTo(PaymentStatus.SUCCESS))
+                .isSortedAccordingTo(Comparator.comparing(PaymentResponse::createdAt)
+                        .thenComparing(PaymentResponse::paymentId).reversed());
+        assertThat(seen.stream().map(PaymentResponse::paymentId).distinct()).hasSize(126);
+    }
+
+    @Test
+    void filtersByCreatedAtRange() {
+        String merchantId = "merchant-" + UUID.randomUUID();
+        PaymentSeeder.seed(jdbcTemplate, merchantId, 1, 100);
+
+        PaymentPageResponse page = paymentListingService.listPayments(Owner.MERCHANT, merchantId, null,
+                PaymentSeeder.EPOCH.minusSeconds(30), PaymentSeeder.EPOCH.minusSeconds(10), 100, null);
+
+        assertThat(page.getItems()).hasSize(40);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void pageLatencyStaysFlatAcrossAMillionRows() {
+        PaymentSeeder.seed(jdbcTemplate, "merchant-bulk", 10, 1_000_000);
+
+        int pageSize = 100;
+        List<Long> latencies = new ArrayList<>();
+        String cursor = null;
+        do {
+            long started = System.nanoTime();
+            PaymentPageResponse page = paymentListingService.listPayments(Owner.MERCHANT, "merchant-bulk-0", null,
+                    null, null, pageSize, cursor);
+            latencies.add(System.nanoTime() - started);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(latencies).hasSize(100_000 / pageSize);
+        long first = median(latencies.subList(10, 60));
+        long last = median(latencies.subList(latencies.size() - 50, latencies.size()));
+        log.info("keyset paging over 1M rows: {} pages, median first pages {} ms, median last pages {} ms",
+                latencies.size(), "%.2f".formatted(first / 1e6), "%.2f".formatted(last / 1e6));
+        assertThat(last).isLessThan(first * 3 + 2_000_000);
+    }
+
+    private List<PaymentResponse> walk(Owner owner, String ownerId, PaymentStatus status, int pageSize) {
+        List<PaymentResponse> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaymentPageResponse page = paymentListingService.listPayments(owner, ownerId, status, null, null, pageSize, cursor);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(pageSize);
+            seen.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private static long median(List<Long> values) {
+        long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
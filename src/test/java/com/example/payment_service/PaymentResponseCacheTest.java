@@ -0,0 +1,109 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentResponse;
+import com.example.payment_service.service.PaymentResponseCache;
+import com.example.payment_service.service.PaymentService;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "payment.cache.responses.ttl=200ms",
+        "payment.cache.responses.terminal-ttl=1h"
+})
+class PaymentResponseCacheTest extends AbstractStubGatewayTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("150000");
+
+    @Autowired
+    private PaymentResponseCache paymentResponseCache;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void evictsAfterTheTransitionCommitsAndNotOnRollback() {
+        String paymentId = paymentService.createPayment(new CreatePaymentRequest("merchant-001", "cust-cache", AMOUNT,
+                "IDR", "cache test")).paymentId();
+        // cached as terminal so the short TTL cannot be what empties it
+        paymentResponseCache.get(paymentId, id -> response(id, PaymentStatus.FAILED));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS, AMOUNT));
+            // still cached until the transaction commits
+            assertThat(cached(paymentId)).isTrue();
+            status.setRollbackOnly();
+        });
+        assertThat(cached(paymentId)).isTrue();
+
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS, AMOUNT));
+
+        assertThat(cached(paymentId)).isFalse();
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.SUCCESS);
+    }
+
+    @Test
+    void keepsTerminalResponsesLongerThanOpenOnes() throws InterruptedException {
+        String open = UUID.randomUUID().toString();
+        String settled = UUID.randomUUID().toString();
+        paymentResponseCache.get(open, id -> response(id, PaymentStatus.INITIATED));
+        paymentResponseCache.get(settled, id -> response(id, PaymentStatus.SUCCESS));
+
+        Thread.sleep(400);
+
+        assertThat(cached(open)).isFalse();
+        assertThat(cached(settled)).isTrue();
+    }
+
+    @Test
+    void aFailedLoadIsNotCached() {
+        String paymentId = UUID.randomUUID().toString();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThatThrownBy(() -> paymentResponseCache.get(paymentId, id -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("database unavailable");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("database unavailable");
+
+        PaymentResponse loaded = paymentResponseCache.get(paymentId, id -> {
+            loads.incrementAndGet();
+            return response(id, PaymentStatus.SUCCESS);
+        });
+
+        assertThat(loaded.status()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(loads).hasValue(2);
+        assertThat(cached(paymentId)).isTrue();
+    }
+
+    // a cached entry answers without calling the loader
+    private boolean cached(String paymentId) {
+        AtomicInteger loads = new AtomicInteger();
+        paymentResponseCache.get(paymentId, id -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        return loads.get() == 0;
+    }
+
+    private static PaymentResponse response(String paymentId, PaymentStatus status) {
+        OffsetDateTime now = OffsetDateTime.now();
+        return new PaymentResponse(paymentId, "merchant-001", "cust-cache", AMOUNT, "IDR", "cache test", status, now,
+                now);
+    }
+}
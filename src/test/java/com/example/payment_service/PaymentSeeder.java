@@ -0,0 +1,42 @@
+package com.example.payment_service;
+
+import com.example.payment_service.domain.PaymentStatus;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+final class PaymentSeeder {
+
+    static final OffsetDateTime EPOCH = OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final String INSERT = """
+            insert into payments (payment_id, merchant_id, customer_id, amount, currency, description,
+                status, created_at, updated_at, version)
+            values (?, ?, ?, 150000, 'IDR', ?, ?, ?, ?, 0)
+            """;
+
+    private PaymentSeeder() {
+    }
+
+    // row i is created EPOCH - i/2 seconds, so rows share createdAt in pairs and the paymentId tie-breaker is exercised;
+    // pairs alternate between SUCCESS and FAILED
+    static void seed(JdbcTemplate jdbcTemplate, String merchantPrefix, int merchants, int rows) {
+        int batchSize = 10_000;
+        for (int start = 0; start < rows; start += batchSize) {
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            for (int i = start; i < Math.min(rows, start + batchSize); i++) {
+                String merchantId = merchants == 1 ? merchantPrefix : merchantPrefix + "-" + (i % merchants);
+                Timestamp createdAt = Timestamp.from(EPOCH.minus(i / 2, ChronoUnit.SECONDS).toInstant());
+                String status = ((i / 2) % 2 == 0 ? PaymentStatus.SUCCESS : PaymentStatus.FAILED).name();
+                batch.add(new Object[] {UUID.randomUUID().toString(), merchantId, "cust-" + (i % 1000),
+                        "seeded payment, \"batch\" " + start, status, createdAt, createdAt});
+            }
+            jdbcTemplate.batchUpdate(INSERT, batch);
+        }
+    }
+}
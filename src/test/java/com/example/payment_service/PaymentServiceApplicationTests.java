@@ -1,10 +1,10 @@
-package com.example.order_service;
+package com.example.payment_service;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
 @SpringBootTest
-class OrderServiceApplicationTests {
+class PaymentServiceApplicationTests extends AbstractStubGatewayTest {
 
 	@Test
 	void contextLoads() {
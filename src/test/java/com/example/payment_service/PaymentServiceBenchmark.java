@@ -0,0 +1,106 @@
+package com.example.payment_service;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.CreatePaymentResponse;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentResponse;
+import com.example.payment_service.service.PaymentResponseCache;
+import com.example.payment_service.service.PaymentService;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PaymentServiceBenchmark {
+
+    private static final int PAYMENTS = 1024;
+    private static final BigDecimal AMOUNT = new BigDecimal("150000");
+
+    private StubGateway gateway;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private PaymentResponseCache paymentResponseCache;
+    private String[] paymentIds;
+    private final AtomicLong callbacks = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        gateway = new StubGateway();
+        context = BenchmarkContext.start(gateway);
+        paymentService = context.getBean(PaymentService.class);
+        paymentResponseCache = context.getBean(PaymentResponseCache.class);
+
+        paymentIds = new String[PAYMENTS];
+        for (int i = 0; i < PAYMENTS; i++) {
+            paymentIds[i] = paymentService.createPayment(request("seed-" + i)).paymentId();
+            paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentIds[i], PaymentStatus.FAILED, AMOUNT));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        gateway.close();
+    }
+
+    @Benchmark
+    public CreatePaymentResponse createPayment() {
+        return paymentService.createPayment(request("cust-" + ThreadLocalRandom.current().nextInt(10_000)));
+    }
+
+    @Benchmark
+    public PaymentResponse getPaymentCached() {
+        return paymentService.getPayment(randomPayment());
+    }
+
+    @Benchmark
+    public PaymentResponse getPaymentUncached() {
+        String paymentId = randomPayment();
+        paymentResponseCache.evict(paymentId);
+        return paymentService.getPayment(paymentId);
+    }
+
+    @Benchmark
+    public void handlePaymentCallbackTransition() {
+        // FAILED <-> UNKNOWN flips are always accepted, so every call commits a real status change
+        long n = callbacks.getAndIncrement();
+        String paymentId = paymentIds[(int) (n % PAYMENTS)];
+        PaymentStatus status = (n / PAYMENTS) % 2 == 0 ? PaymentStatus.UNKNOWN : PaymentStatus.FAILED;
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, status, AMOUNT));
+    }
+
+    @Benchmark
+    public void handlePaymentCallbackDuplicate() {
+        // each benchmark gets its own trial, so every seeded payment is still FAILED and the callback repeats it
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(randomPayment(), PaymentStatus.FAILED, AMOUNT));
+    }
+
+    private String randomPayment() {
+        return paymentIds[ThreadLocalRandom.current().nextInt(PAYMENTS)];
+    }
+
+    private static CreatePaymentRequest request(String customerId) {
+        return new CreatePaymentRequest("merchant-001", customerId, AMOUNT, "IDR", "benchmark");
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.domain.PaymentStatusChangedEvent;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.service.PaymentService;
+import com.example.payment_service.service.PaymentStatusWatcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        // far fewer servlet threads than parked requests
+        "server.tomcat.threads.max=4",
+        "server.tomcat.threads.min-spare=1"
+})
+class PaymentStatusWatchTest extends AbstractStubGatewayWebTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentStatusWatchTest.class);
+
+    private static final BigDecimal AMOUNT = new BigDecimal("150000");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentStatusWatcher paymentStatusWatcher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void parkedRequestsAreAnsweredWhenTheCallbackCommits() throws Exception {
+        List<String> paymentIds = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<String>>> waits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String paymentId = createPayment();
+            paymentIds.add(paymentId);
+            // one waiter sends the id in upper case and is woken by the same commit
+            waits.add(send("/api/payments/%s/await?timeout=20".formatted(paymentId)));
+            waits.add(send("/api/payments/%s/await?timeout=20".formatted(paymentId.toUpperCase())));
+        }
+        awaitParked(20);
+
+        // the four servlet threads are free while twenty requests are parked
+        assertThat(send("/api/payments/" + paymentIds.get(0)).get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        assertThat(waits).noneMatch(CompletableFuture::isDone);
+
+        paymentIds.forEach(paymentId -> paymentService.handlePaymentCallback(
+                new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS, AMOUNT)));
+
+        for (CompletableFuture<HttpResponse<String>> wait : waits) {
+            HttpResponse<String> response = wait.get(5, TimeUnit.SECONDS);
+            assertThat(response.statusCode()).isEqualTo(200);
+            JsonNode payment = objectMapper.readTree(response.body());
+            assertThat(payment.get("status").asText()).isEqualTo("SUCCESS");
+            // built from the event, yet complete
+            assertThat(payment.get("customerId").asText()).isEqualTo("cust-watch");
+            assertThat(payment.get("description").asText()).isEqualTo("status watch test");
+            assertThat(payment.get("updatedAt").isNull()).isFalse();
+        }
+        awaitParked(0);
+    }
+
+    @Test
+    void answersAtOnceWhenTheStatusAlreadyMoved() throws Exception {
+        String paymentId = createPayment();
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, PaymentStatus.FAILED, AMOUNT));
+
+        HttpResponse<String> response = send("/api/payments/%s/await".formatted(paymentId)).get(5, TimeUnit.SECONDS);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(response.body()).get("status").asText()).isEqualTo("FAILED");
+        awaitParked(0);
+    }
+
+    @Test
+    void answersNoContentAfterTheTimeout() throws Exception {
+        String paymentId = createPayment();
+
+        HttpResponse<String> response = send("/api/payments/%s/await?knownStatus=INITIATED&timeout=1"
+                .formatted(paymentId)).get(10, TimeUnit.SECONDS);
+
+        assertThat(response.statusCode()).isEqualTo(204);
+        awaitParked(0);
+    }
+
+    @Test
+    void aZeroTimeoutStillTimesOut() throws Exception {
+        String paymentId = createPayment();
+
+        HttpResponse<String> response = send("/api/payments/%s/await?timeout=0".formatted(paymentId))
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(response.statusCode()).isEqualTo(204);
+        awaitParked(0);
+    }
+
+    @Test
+    void rejectsUnknownPayments() throws Exception {
+        HttpResponse<String> response = send("/api/payments/%s/await".formatted(UUID.randomUUID()))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(response.statusCode()).isEqualTo(404);
+        awaitParked(0);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void parksAHundredThousandWaitersCheaply() throws InterruptedException {
+        int waiters = Integer.getInteger("loadtest.watch.waiters", 100_000);
+        PaymentSeeder.seed(jdbcTemplate, "merchant-watch", 1, waiters);
+        List<Map<String, Object>> payments = jdbcTemplate.queryForList(
+                "select payment_id, status from payments where merchant_id = 'merchant-watch'");
+        // load the response cache first so the heap delta below is the registry alone
+        payments.forEach(row -> paymentService.getPayment(String.valueOf(row.get("payment_id"))));
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+
+        long started = System.nanoTime();
+        List<Object> parked = new ArrayList<>(waiters);
+        for (Map<String, Object> row : payments) {
+            parked.add(paymentStatusWatcher.await(String.valueOf(row.get("payment_id")),
+                    PaymentStatus.valueOf(String.valueOf(row.get("status"))), Duration.ofMinutes(1)));
+        }
+        long parkNanos = System.nanoTime() - started;
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed() - baseline;
+
+        started = System.nanoTime();
+        for (Map<String, Object> row : payments) {
+            PaymentStatus status = PaymentStatus.valueOf(String.valueOf(row.get("status")));
+            paymentStatusWatcher.onStatusChanged(new PaymentStatusChangedEvent(String.valueOf(row.get("payment_id")),
+                    "merchant-watch", "cust-watch", null, PaymentStatus.INITIATED, status, AMOUNT, "IDR",
+                    OffsetDateTime.now(), OffsetDateTime.now()));
+        }
+        long notifyNanos = System.nanoTime() - started;
+
+        log.info("parked {} waiters in {} ms ({} bytes each), notified them in {} ms", parked.size(),
+                TimeUnit.NANOSECONDS.toMillis(parkNanos), retained / waiters, TimeUnit.NANOSECONDS.toMillis(notifyNanos));
+        assertThat(waiters()).isZero();
+    }
+
+    private String createPayment() {
+        return paymentService.createPayment(new CreatePaymentRequest("merchant-watch", "cust-watch", AMOUNT, "IDR",
+                "status watch test")).paymentId();
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(String path) {
+        return client.sendAsync(HttpRequest.newBuilder(uri(path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void awaitParked(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && waiters() != expected; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(waiters()).isEqualTo(expected);
+    }
+
+    private double waiters() {
+        return meterRegistry.get("payment.status.waiters").gauge().value();
+    }
+}
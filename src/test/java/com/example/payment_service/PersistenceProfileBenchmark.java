@@ -0,0 +1,115 @@
+package com.example.payment_service;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.CreatePaymentResponse;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.dto.PaymentCallbackResult;
+import com.example.payment_service.service.PaymentService;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// "h2" is application.properties as shipped (ddl-auto, show-sql with format_sql); "prod" is the prod profile with
+// Flyway, a fixed Hikari pool and JDBC batching, pointed at H2 in PostgreSQL mode because no PostgreSQL server is
+// assumed on the benchmark host. Point -Dbenchmark.prod.url at a real PostgreSQL to compare against the real thing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class PersistenceProfileBenchmark {
+
+    private static final int PAYMENTS = 4096;
+    private static final int CALLBACK_BATCH = 100;
+    private static final BigDecimal AMOUNT = new BigDecimal("150000");
+
+    @Param({"h2", "prod"})
+    public String profile;
+
+    private StubGateway gateway;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private PrintStream stdout;
+    private String[] paymentIds;
+    private final AtomicLong batches = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        // show-sql writes to System.out; send it to a file so the cost is paid without flooding the JMH console
+        stdout = System.out;
+        System.setOut(new PrintStream(new FileOutputStream("target/jmh-stdout-" + profile + ".log"), true));
+
+        gateway = new StubGateway();
+        context = "prod".equals(profile)
+                ? BenchmarkContext.start(gateway,
+                        "spring.profiles.active=prod",
+                        "spring.datasource.url=" + System.getProperty("benchmark.prod.url",
+                                "jdbc:h2:mem:payment-bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                                        + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1"),
+                        "spring.datasource.username=" + System.getProperty("benchmark.prod.username", "sa"),
+                        "spring.datasource.password=" + System.getProperty("benchmark.prod.password", ""))
+                : BenchmarkContext.start(gateway, "spring.jpa.show-sql=true");
+        paymentService = context.getBean(PaymentService.class);
+
+        paymentIds = new String[PAYMENTS];
+        for (int i = 0; i < PAYMENTS; i++) {
+            paymentIds[i] = paymentService.createPayment(request("seed-" + i)).paymentId();
+            paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentIds[i], PaymentStatus.FAILED, AMOUNT));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        gateway.close();
+        System.out.close();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public CreatePaymentResponse createPayment() {
+        return paymentService.createPayment(request("cust-" + ThreadLocalRandom.current().nextInt(10_000)));
+    }
+
+    @Benchmark
+    public List<PaymentCallbackResult> handleCallbackBatch() {
+        // each batch flips a disjoint slice between FAILED and UNKNOWN, so every item is a real update
+        long n = batches.getAndIncrement();
+        int slices = PAYMENTS / CALLBACK_BATCH;
+        int offset = (int) (n % slices) * CALLBACK_BATCH;
+        PaymentStatus status = (n / slices) % 2 == 0 ? PaymentStatus.UNKNOWN : PaymentStatus.FAILED;
+        List<PaymentCallbackRequest> requests = new ArrayList<>(CALLBACK_BATCH);
+        for (int i = 0; i < CALLBACK_BATCH; i++) {
+            requests.add(new PaymentCallbackRequest(paymentIds[offset + i], status, AMOUNT));
+        }
+        return paymentService.handlePaymentCallbacks(requests);
+    }
+
+    private static CreatePaymentRequest request(String customerId) {
+        return new CreatePaymentRequest("merchant-001", customerId, AMOUNT, "IDR", "benchmark");
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.payment_service;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=false", "spring.jpa.show-sql=false"})
+class PlatformThreadLoadTest extends AbstractPaymentLoadTest {
+
+    @Override
+    String mode() {
+        return "platform";
+    }
+}
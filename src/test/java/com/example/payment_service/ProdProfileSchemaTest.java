@@ -0,0 +1,56 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.CreatePaymentRequest;
+import com.example.payment_service.dto.PaymentCallbackRequest;
+import com.example.payment_service.service.PaymentService;
+import java.math.BigDecimal;
+import java.util.UUID;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+// H2 in PostgreSQL mode stands in for PostgreSQL: Flyway builds the schema and Hibernate validates the entities against it
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payment-prod;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.minimum-idle=1"
+})
+@ActiveProfiles("prod")
+class ProdProfileSchemaTest extends AbstractStubGatewayTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Test
+    void migrationsBuildTheSchemaTheEntitiesExpect() {
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("6");
+        assertThat(jdbcTemplate.queryForList("select index_name from information_schema.indexes", String.class))
+                .contains("idx_payments_status_updated", "idx_notifications_status_next_attempt",
+                        "idx_payments_merchant_created");
+
+        String paymentId = paymentService.createPayment(new CreatePaymentRequest("merchant-001", "cust-001",
+                new BigDecimal("150000"), "IDR", "prod profile")).paymentId();
+        paymentService.handlePaymentCallback(new PaymentCallbackRequest(paymentId, PaymentStatus.SUCCESS,
+                new BigDecimal("150000")));
+
+        assertThat(paymentService.getPayment(paymentId).status()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(UUID.fromString(paymentId).version()).isEqualTo(7);
+        assertThat(jdbcTemplate.queryForObject("select data_type from information_schema.columns "
+                + "where table_name = 'payments' and column_name = 'payment_id'", String.class)).isEqualToIgnoringCase("uuid");
+        assertThat(jdbcTemplate.queryForList("select status from payment_events where payment_id = ? order by seq",
+                String.class, UUID.fromString(paymentId))).containsExactly("INITIATED", "SUCCESS");
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.dto.ReconciliationDiscrepancy;
+import com.example.payment_service.dto.ReconciliationDiscrepancy.Type;
+import com.example.payment_service.dto.ReconciliationJobResponse;
+import com.example.payment_service.dto.ReconciliationJobResponse.State;
+import com.example.payment_service.dto.ReconciliationReport;
+import com.example.payment_service.exception.InvalidSettlementFileException;
+import com.example.payment_service.exception.ReconciliationCorrectionsDisabledException;
+import com.example.payment_service.exception.ResourceNotFoundException;
+import com.example.payment_service.repository.PaymentRepository;
+import com.example.payment_service.service.PaymentService;
+import com.example.payment_service.service.ReconciliationService;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.unit.DataSize;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        // tiny segments and batches so line boundaries, parallel segments and batch flushes are all exercised
+        "payment.reconciliation.segment-size=256B",
+        "payment.reconciliation.batch-size=7",
+        "payment.reconciliation.parallelism=4",
+        "payment.reconciliation.corrections-enabled=true"
+})
+class ReconciliationTest extends AbstractStubGatewayTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationTest.class);
+
+    @TempDir
+    static Path inbox;
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void inboxProperties(DynamicPropertyRegistry registry) {
+        registry.add("payment.reconciliation.inbox-dir", () -> inbox.toString());
+    }
+
+    @Test
+    void reportsMismatchesDriftAndMissingRowsWithoutTouchingPayments() throws IOException {
+        String prefix = seed();
+
+        ReconciliationReport report = reconciliationService.reconcile(settlementFile(prefix), false);
+
+        assertThat(report.getLines()).isEqualTo(25);
+        assertThat(report.getMatched()).isEqualTo(8);
+        assertThat(report.getAmountMismatches()).isEqualTo(1);
+        assertThat(report.getStatusDrift()).isEqualTo(11);
+        assertThat(report.getMissing()).isEqualTo(3);
+        assertThat(report.getMalformed()).isEqualTo(2);
+        assertThat(report.getCorrected()).isZero();
+        assertThat(report.getSamples()).filteredOn(sample -> sample.getType() == Type.AMOUNT_MISMATCH)
+                .singleElement()
+                .satisfies(sample -> assertThat(sample.getPaymentId()).isEqualTo(prefix + "08"));
+        assertThat(statusOf(prefix + "15")).isEqualTo(PaymentStatus.INITIATED);
+    }
+
+    @Test
+    void appliesCorrectionsThroughTheCallbackStateRules() throws IOException {
+        String prefix = seed();
+
+        ReconciliationReport report = reconciliationService.reconcile(settlementFile(prefix), true);
+
+        // INITIATED -> SUCCESS is applied; the settled FAILED for an already successful payment is not
+        assertThat(report.getCorrected()).isEqualTo(10);
+        for (int i = 10; i < 20; i++) {
+            assertThat(statusOf(prefix + i)).isEqualTo(PaymentStatus.SUCCESS);
+        }
+        assertThat(statusOf(prefix + "09")).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(report.getSamples()).extracting(ReconciliationDiscrepancy::getPaymentId).contains(prefix + "09");
+    }
+
+    @Test
+    void rejectsFilesOutsideTheInbox() {
+        assertThatThrownBy(() -> reconciliationService.reconcile("../settlement.csv", false))
+                .isInstanceOf(InvalidSettlementFileException.class);
+        assertThatThrownBy(() -> reconciliationService.reconcile("/etc/passwd", false))
+                .isInstanceOf(InvalidSettlementFileException.class);
+    }
+
+    @Test
+    void runsSubmittedFilesAsBackgroundJobs() throws Exception {
+        String prefix = seed();
+
+        ReconciliationJobResponse submitted = reconciliationService.submit(settlementFile(prefix), true);
+        assertThat(submitted.state()).isIn(State.QUEUED, State.RUNNING, State.COMPLETED);
+
+        ReconciliationJobResponse job = reconciliationService.job(submitted.jobId());
+        for (int i = 0; i < 200 && job.state() != State.COMPLETED && job.state() != State.FAILED; i++) {
+            Thread.sleep(25);
+            job = reconciliationService.job(submitted.jobId());
+        }
+        assertThat(job.state()).isEqualTo(State.COMPLETED);
+        assertThat(job.finishedAt()).isNotNull();
+        assertThat(job.report().getCorrected()).isEqualTo(10);
+        assertThat(statusOf(prefix + "15")).isEqualTo(PaymentStatus.SUCCESS);
+        assertThatThrownBy(() -> reconciliationService.job(UUID.randomUUID().toString()))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void refusesBadFilesWhenSubmittedAndCorrectionsUnlessEnabled() throws IOException {
+        assertThatThrownBy(() -> reconciliationService.submit("../settlement.csv", false))
+                .isInstanceOf(InvalidSettlementFileException.class);
+        assertThatThrownBy(() -> reconciliationService.submit("settlement-missing.csv", false))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        String prefix = seed();
+        String file = settlementFile(prefix);
+        ReconciliationService reportOnly = new ReconciliationService(paymentRepository, paymentService, inbox, 1,
+                DataSize.ofMegabytes(64), 1_000, 100, false, 1, Duration.ofHours(1));
+        try {
+            assertThatThrownBy(() -> reportOnly.submit(file, true))
+                    .isInstanceOf(ReconciliationCorrectionsDisabledException.class);
+            assertThatThrownBy(() -> reportOnly.reconcile(file, true))
+                    .isInstanceOf(ReconciliationCorrectionsDisabledException.class);
+            assertThat(reportOnly.reconcile(file, false).getStatusDrift()).isEqualTo(11);
+        } finally {
+            reportOnly.shutdown();
+        }
+        assertThat(statusOf(prefix + "15")).isEqualTo(PaymentStatus.INITIATED);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void streamsMillionsOfLinesInBoundedMemory() throws IOException {
+        int lines = Integer.getInteger("loadtest.reconciliation.lines", 5_000_000);
+        String prefix = seed();
+        String name = "settlement-bulk.csv";
+        try (BufferedWriter writer = Files.newBufferedWriter(inbox.resolve(name))) {
+            for (int i = 0; i < lines; i++) {
+                // every 1000th line hits a seeded payment, the rest exercise the lookup as missing rows
+                writer.write(i % 1000 == 0 ? prefix + "%02d".formatted(i / 1000 % 10) : new UUID(0, i).toString());
+                writer.write(",150000,SUCCESS\n");
+            }
+        }
+        // production-sized segments and batches rather than the tiny ones this class configures
+        ReconciliationService bulk = new ReconciliationService(paymentRepository, paymentService, inbox, 0,
+                DataSize.ofMegabytes(64), 1_000, 100, false, 1, Duration.ofHours(1));
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+
+        ReconciliationReport report;
+        try {
+            report = bulk.reconcile(name, false);
+        } finally {
+            bulk.shutdown();
+        }
+
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed() - baseline;
+        log.info("reconciled {} lines ({} MB) in {} ms, {} lines/s, retained heap {} MB", report.getLines(),
+                Files.size(inbox.resolve(name)) >> 20, report.getDurationMillis(),
+                report.getLines() * 1000 / Math.max(1, report.getDurationMillis()), retained >> 20);
+        assertThat(report.getLines()).isEqualTo(lines);
+        assertThat(report.getMatched() + report.getMissing()).isEqualTo(lines);
+        assertThat(report.getSamples()).hasSizeLessThanOrEqualTo(100);
+    }
+
+    // 00-09 are SUCCESS and 10-19 INITIATED, all for 150000; the two-digit suffix completes a random uuid
+    private String seed() {
+        String prefix = UUID.randomUUID().toString().substring(0, 34);
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < 20; i++) {
+            jdbcTemplate.update("""
+                    insert into payments (payment_id, merchant_id, customer_id, amount, currency, description,
+                        status, created_at, updated_at, version)
+                    values (?, 'merchant-recon', 'cust-recon', 150000, 'IDR', 'reconciliation test', ?, ?, ?, 0)
+                    """, prefix + "%02d".formatted(i), (i < 10 ? PaymentStatus.SUCCESS : PaymentStatus.INITIATED).name(),
+                    now, now);
+        }
+        return prefix;
+    }
+
+    private String settlementFile(String prefix) throws IOException {
+        StringBuilder file = new StringBuilder("paymentId,amount,status\n");
+        for (int i = 0; i < 8; i++) {
+            file.append(prefix).append("%02d".formatted(i)).append(",150000,SUCCESS\r\n");
+        }
+        file.append(prefix).append("08,150001.50,SUCCESS\n");
+        file.append(prefix).append("09, 150000.00 ,failed\n");
+        file.append("\n");
+        for (int i = 10; i < 20; i++) {
+            file.append(prefix).append(i).append(",150000.0,SUCCESS\n");
+        }
+        for (int i = 0; i < 3; i++) {
+            file.append(UUID.randomUUID()).append(",150000,SUCCESS\n");
+        }
+        file.append("garbage\n");
+        file.append(prefix).append("00,abc,SUCCESS");
+
+        String name = "settlement-" + UUID.randomUUID() + ".csv";
+        Files.writeString(inbox.resolve(name), file);
+        return name;
+    }
+
+    private PaymentStatus statusOf(String paymentId) {
+        return PaymentStatus.valueOf(jdbcTemplate.queryForObject(
+                "select status from payments where payment_id = ?", String.class, paymentId));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.payment_service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.payment_service.domain.PaymentStatus;
+import com.example.payment_service.service.StalePaymentSweeper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        // sweeps are triggered by the tests, not the scheduler
+        "payment.sweeper.interval=1h",
+        "payment.sweeper.stale-after=30m",
+        "payment.sweeper.batch-size=4"
+})
+class StalePaymentSweeperTest extends AbstractStubGatewayTest {
+
+    @Autowired
+    private StalePaymentSweeper sweeper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void resetGateway() {
+        gateway.reset();
+    }
+
+    @Test
+    void resolvesStalePaymentsFromTheGatewayStatus() {
+        gateway.respond(200, 0, "{\"status\":\"SUCCESS\",\"amount\":150000}");
+        List<String> stale = insert(10, PaymentStatus.INITIATED, 2);
+        stale.addAll(insert(10, PaymentStatus.UNKNOWN, 2));
+        List<String> fresh = insert(3, PaymentStatus.INITIATED, 0);
+        double resolvedBefore = outcomes("resolved");
+
+        sweeper.sweep();
+
+        assertThat(stale).allSatisfy(paymentId -> assertThat(statusOf(paymentId)).isEqualTo(PaymentStatus.SUCCESS));
+        assertThat(fresh).allSatisfy(paymentId -> assertThat(statusOf(paymentId)).isEqualTo(PaymentStatus.INITIATED));
+        assertThat(outcomes("resolved") - resolvedBefore).isEqualTo(20);
+    }
+
+    @Test
+    void parksPaymentsTheGatewayHasNoRecordOfAsUnknown() {
+        gateway.respond(404, 0);
+        List<String> initiated = insert(3, PaymentStatus.INITIATED, 2);
+        List<String> unknown = insert(2, PaymentStatus.UNKNOWN, 2);
+        double notFound = outcomes("not_found");
+
+        sweeper.sweep();
+        int hits = gateway.hits();
+        sweeper.sweep();
+
+        assertThat(initiated).allSatisfy(paymentId -> assertThat(statusOf(paymentId)).isEqualTo(PaymentStatus.UNKNOWN));
+        assertThat(unknown).allSatisfy(paymentId -> assertThat(statusOf(paymentId)).isEqualTo(PaymentStatus.UNKNOWN));
+        assertThat(outcomes("not_found") - notFound).isEqualTo(5);
+        // asked again only after the lease
+        assertThat(gateway.hits()).isEqualTo(hits);
+    }
+
+    @Test
+    void leavesPendingPaymentsLeasedUntilTheNextWindow() {
+        gateway.respond(200, 0, "{\"status\":\"UNKNOWN\",\"amount\":150000}");
+        List<String> stale = insert(6, PaymentStatus.INITIATED, 2);
+
+        sweeper.sweep();
+        int hits = gateway.hits();
+        sweeper.sweep();
+
+        assertThat(hits).isGreaterThanOrEqualTo(stale.size());
+        assertThat(gateway.hits()).isEqualTo(hits);
+        assertThat(stale).allSatisfy(paymentId -> assertThat(statusOf(paymentId)).isEqualTo(PaymentStatus.INITIATED));
+    }
+
+    @Test
+    void skipsPaymentsWhoseChargeIsStillQueued() {
+        gateway.respond(404, 0);
+        String queued = insert(1, PaymentStatus.INITIATED, 2).get(0);
+        jdbcTemplate.update("insert into pending_charges (payment_id, attempts, next_attempt_at, created_at, version) "
+                + "values (?, 0, ?, ?, 0)", queued, Timestamp.from(Instant.now().plus(1, ChronoUnit.HOURS)),
+                Timestamp.from(Instant.now()));
+
+        sweeper.sweep();
+
+        assertThat(statusOf(queued)).isEqualTo(PaymentStatus.INITIATED);
+    }
+
+    private List<String> insert(int count, PaymentStatus status, int hoursAgo) {
+        Timestamp updatedAt = Timestamp.from(Instant.now().minus(hoursAgo, ChronoUnit.HOURS));
+        List<String> paymentIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String paymentId = UUID.randomUUID().toString();
+            jdbcTemplate.update("""
+                    insert into payments (payment_id, merchant_id, customer_id, amount, currency, description,
+                        status, created_at, updated_at, version)
+                    values (?, 'merchant-sweep', 'cust-sweep', 150000, 'IDR', 'sweeper test', ?, ?, ?, 0)
+                    """, paymentId, status.name(), updatedAt, updatedAt);
+            paymentIds.add(paymentId);
+        }
+        return paymentIds;
+    }
+
+    private PaymentStatus statusOf(String paymentId) {
+        return PaymentStatus.valueOf(jdbcTemplate.queryForObject(
+                "select status from payments where payment_id = ?", String.class, paymentId));
+    }
+
+    private double outcomes(String outcome) {
+        var counter = meterRegistry.find("payment.sweeper.outcomes").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
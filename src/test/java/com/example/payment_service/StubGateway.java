@@ -0,0 +1,106 @@
+package com.example.payment_service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+class StubGateway implements AutoCloseable {
+
+    private final HttpServer server;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private volatile ToIntFunction<String> itemStatus = paymentId -> 202;
+    private volatile long latencyMillis;
+    private volatile int status = 200;
+    private volatile String body = "";
+
+    StubGateway() throws IOException {
+        // responses with a body are written in two packets; without this delayed ACKs add ~40ms to every batch
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    int hits() {
+        return hits.get();
+    }
+
+    void respond(int status, long latencyMillis) {
+        respond(status, latencyMillis, "");
+    }
+
+    void respond(int status, long latencyMillis, String body) {
+        this.status = status;
+        this.latencyMillis = latencyMillis;
+        this.body = body;
+    }
+
+    // answers each charge of a /payments:batch request with the status for its paymentId
+    void respondPerItem(ToIntFunction<String> itemStatus) {
+        this.itemStatus = itemStatus;
+    }
+
+    List<Integer> batchSizes() {
+        return batchSizes;
+    }
+
+    void reset() {
+        hits.set(0);
+        batchSizes.clear();
+        respond(200, 0);
+        respondPerItem(paymentId -> 202);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        try (exchange) {
+            byte[] request = exchange.getRequestBody().readAllBytes();
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            byte[] payload = status == 200 && exchange.getRequestURI().getPath().endsWith(":batch")
+                    ? batchResults(request)
+                    : body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, payload.length == 0 ? -1 : payload.length);
+            if (payload.length > 0) {
+                exchange.getResponseBody().write(payload);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] batchResults(byte[] request) throws IOException {
+        List<Map<String, Object>> charges = objectMapper.readValue(request, new TypeReference<>() {
+        });
+        batchSizes.add(charges.size());
+        return objectMapper.writeValueAsBytes(charges.stream()
+                .map(charge -> String.valueOf(charge.get("paymentId")))
+                .map(paymentId -> Map.of("paymentId", paymentId, "status", itemStatus.applyAsInt(paymentId)))
+                .toList());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.payment_service;
+
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@EnabledForJreRange(min = JRE.JAVA_21)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=true", "spring.jpa.show-sql=false"})
+class VirtualThreadLoadTest extends AbstractPaymentLoadTest {
+
+    @Override
+    String mode() {
+        return "virtual";
+    }
+}